@@ -15,18 +15,42 @@ CORS(app, resources={r"/api/v1/segmentation/*": {"origins": ["https://*.hibersof
 
 API_PREFIX = "/api/v1/segmentation"
 
-# Load the pre-trained model and scaler (handle potential file absence at startup if retraining in place)
-try:
-    model = joblib.load("kmeans_model.joblib")
-    scaler = joblib.load("scaler.joblib")
-    logging.info("Model and scaler loaded successfully.")
-except FileNotFoundError:
-    logging.warning("Model or scaler files not found. Prediction endpoint will not work until training run.")
-    model = None
-    scaler = None
+MODEL_FILE = "kmeans_model.joblib"
+SCALER_FILE = "scaler.joblib"
+
+# The loaded model, scaler and version; version is the model file's modification time in milliseconds, so
+# it only grows, and clients can tell predictions of a retrained model from older ones
+model = None
+scaler = None
+model_version = None
+model_lock = threading.Lock()
+
+def current_model():
+    """
+    Returns (model, scaler, version), reloading them when the model file changed since they were loaded
+    (a training run in this process or another worker replaced it), or (None, None, None) before any training.
+    """
+    global model, scaler, model_version
+    try:
+        version = os.stat(MODEL_FILE).st_mtime_ns // 1_000_000
+    except FileNotFoundError:
+        return None, None, None
+    with model_lock:
+        if version != model_version:
+            try:
+                # train_and_save_model replaces the scaler before the model, so this pair matches
+                model, scaler, model_version = joblib.load(MODEL_FILE), joblib.load(SCALER_FILE), version
+                logging.info(f"Model and scaler loaded successfully (version {version}).")
+            except FileNotFoundError:
+                logging.warning("Model or scaler files not found. Prediction endpoint will not work until training run.")
+                return None, None, None
+        return model, scaler, model_version
+
+current_model()
 
 @app.route(f'{API_PREFIX}/predict-segment', methods=['POST'])
 def predict():
+    model, scaler, version = current_model()
     if model is None or scaler is None:
         return jsonify({"error": "Model not ready for predictions. Please trigger training first."}), 503
 
@@ -42,7 +66,7 @@ def predict():
     data_scaled = scaler.transform(df[FEATURES])
     predictions = model.predict(data_scaled)
     
-    return jsonify({"predictions": predictions.tolist()})
+    return jsonify({"predictions": predictions.tolist(), "model_version": version})
 
 
 @app.route(f'{API_PREFIX}/trigger-training', methods=['POST'])
@@ -65,10 +89,9 @@ def run_training_job_in_background():
         df = fetch_data_for_training()
         if not df.empty:
             train_and_save_model(df)
+            # Serve the new model right away; other workers pick it up on their next prediction
+            current_model()
             logging.info("Background training job completed.")
-            # OPTIONAL: You may need logic here to reload the 'model' and 'scaler' variables 
-            # in the main app process if you want the new model to be used immediately without service restart.
-            # This is complex in a WSGI environment and usually requires a service restart/reload strategy.
         else:
             logging.warning("Background training job failed: No data found.")
     except Exception as e:
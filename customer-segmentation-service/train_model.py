@@ -75,9 +75,11 @@ def train_and_save_model(df):
     kmeans = KMeans(n_clusters=NUM_CLUSTERS, random_state=42, n_init=10)
     kmeans.fit(X_scaled)
 
-    # 3. Save the model and scaler to disk
-    joblib.dump(kmeans, "kmeans_model.joblib")
-    joblib.dump(scaler, "scaler.joblib")
+    # 3. Save the model and scaler to disk. Each file is replaced atomically, the scaler first: the serving
+    # app reloads both when the model file changes, so it never pairs a new model with the old scaler
+    for obj, path in ((scaler, "scaler.joblib"), (kmeans, "kmeans_model.joblib")):
+        joblib.dump(obj, path + ".tmp")
+        os.replace(path + ".tmp", path)
     logging.info("Model and scaler saved successfully as .joblib files.")
 
 def main():
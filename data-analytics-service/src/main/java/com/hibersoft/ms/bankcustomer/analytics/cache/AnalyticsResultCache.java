@@ -0,0 +1,128 @@
+package com.hibersoft.ms.bankcustomer.analytics.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Results of {@code DataAnalyticsService}, keyed by endpoint and parameters, until a modeling job
+ * writes facts ({@link FactsUpdatedEvent}) or the entry expires.
+ * <p>
+ * Keys also carry a generation that every invalidation increments, so a result computed from data read
+ * before an invalidation can never be served after it. Cached values are shared and must not be modified
+ * by callers.
+ * <p>
+ * Concurrent requests for the same key are coalesced (single flight): the cache holds a future per key,
+ * the first caller computes it on its own thread and later callers wait for that future, so a burst of
+ * identical dashboard requests costs one query. No lock is held while computing, so a slow query
+ * neither blocks other keys nor pins the carrier of a virtual thread. A failed computation is not
+ * cached: its waiters get the same exception and the next caller tries again. Outcomes are counted as
+ * {@code analytics.results{outcome=computed|coalesced|hit}}, and
+ * {@code analytics.results.coalescing.ratio} is the share of cache misses that joined a flight instead
+ * of querying.
+ */
+@Component
+public class AnalyticsResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsResultCache.class);
+
+    private final AsyncCache<List<Object>, Object> results;
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter computed;
+    private final Counter coalesced;
+    private final Counter hits;
+
+    public AnalyticsResultCache(@Value("${app.analytics.cache.max-size:10000}") long maxSize,
+                                @Value("${app.analytics.cache.ttl:PT10M}") Duration ttl,
+                                MeterRegistry meterRegistry) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        // Publishes cache.gets{result=hit|miss}, cache.evictions, cache.size, ... tagged cache=analyticsResults
+        CaffeineCacheMetrics.monitor(meterRegistry, results.synchronous(), "analyticsResults");
+        this.computed = outcome(meterRegistry, "computed");
+        this.coalesced = outcome(meterRegistry, "coalesced");
+        this.hits = outcome(meterRegistry, "hit");
+        Gauge.builder("analytics.results.coalescing.ratio", this, AnalyticsResultCache::coalescingRatio)
+                .description("Share of analytics cache misses served by joining an identical in-flight computation")
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, Supplier<T> loader, Object... params) {
+        List<Object> key = new ArrayList<>(params.length + 2);
+        key.add(generation.get());
+        key.add(endpoint);
+        key.addAll(Arrays.asList(params));
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> result = results.get(key, (ignored, executor) -> flight);
+        if (result != flight) {
+            (result.isDone() ? hits : coalesced).increment();
+            return (T) join(result);
+        }
+
+        computed.increment();
+        try {
+            T value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            // Also drops the entry, so the failure is not cached
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @EventListener
+    public void onFactsUpdated(FactsUpdatedEvent event) {
+        generation.incrementAndGet();
+        results.synchronous().invalidateAll();
+        log.debug("Dropped cached analytics results after facts of {} changed", event.bankId() != null ? event.bankId() : "any bank");
+    }
+
+    double coalescingRatio() {
+        double misses = computed.count() + coalesced.count();
+        return misses == 0 ? 0 : coalesced.count() / misses;
+    }
+
+    // The computing caller's own exception, not its CompletionException wrapper
+    private static Object join(CompletableFuture<Object> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("analytics.results").tag("outcome", outcome).register(meterRegistry);
+    }
+}
@@ -0,0 +1,13 @@
+package com.hibersoft.ms.bankcustomer.analytics.cache;
+
+/**
+ * Facts of {@code bankId} were written by a modeling job. A {@code null} bank id means any facts may
+ * have changed, e.g. while the notification connection was down. The bank id is upper-cased, like the
+ * banks in the analytics cache keys, whatever case the job was started with.
+ */
+public record FactsUpdatedEvent(String bankId) {
+
+    public FactsUpdatedEvent {
+        bankId = bankId != null ? bankId.toUpperCase() : null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.hibersoft.ms.bankcustomer.analytics.cache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listens on the {@code facts_updated} channel that the modeling services notify when a job has written
+ * facts, and republishes each notification as a {@link FactsUpdatedEvent}.
+ * <p>
+ * A background thread keeps one pooled connection with {@code LISTEN facts_updated} open and polls it
+ * for notifications. Whenever it (re)connects it publishes a {@code FactsUpdatedEvent(null)}, since
+ * notifications sent while nobody listened are lost. On any database other than PostgreSQL (H2 in tests)
+ * the thread stops at once and results only expire through the cache TTL.
+ */
+@Component
+@ConditionalOnProperty(name = "app.analytics.cache.listen", havingValue = "true", matchIfMissing = true)
+public class FactsUpdatedListener implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(FactsUpdatedListener.class);
+
+    public static final String CHANNEL = "facts_updated";
+
+    private final DataSource dataSource;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration pollTimeout;
+    private final Duration retryDelay;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public FactsUpdatedListener(DataSource dataSource,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${app.analytics.cache.listen-poll-timeout:PT5S}") Duration pollTimeout,
+                                @Value("${app.analytics.cache.listen-retry-delay:PT10S}") Duration retryDelay) {
+        this.dataSource = dataSource;
+        this.eventPublisher = eventPublisher;
+        this.pollTimeout = pollTimeout;
+        this.retryDelay = retryDelay;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = Thread.ofPlatform().name("facts-updated-listener").daemon().start(this::listen);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                if (!connection.isWrapperFor(PGConnection.class)) {
+                    log.info("Not connected to PostgreSQL, analytics results are only refreshed when they expire");
+                    return;
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                log.info("Listening on {}", CHANNEL);
+                eventPublisher.publishEvent(new FactsUpdatedEvent(null));
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeout.toMillis());
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        log.info("{} for {}", CHANNEL, notification.getParameter());
+                        eventPublisher.publishEvent(new FactsUpdatedEvent(notification.getParameter()));
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lost {} listener connection, retrying in {}: {}", CHANNEL, retryDelay, e.getMessage());
+                try {
+                    Thread.sleep(retryDelay);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.hibersoft.ms.bankcustomer.analytics.cache;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketTotals;
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Totals of closed spending-series buckets, kept without expiry: once a bucket is over, only a modeling
+ * job can change it, so entries are dropped on a {@link FactsUpdatedEvent} for their bank (or for any
+ * bank, for series across banks) and otherwise only when the cache is full. The open bucket is never
+ * stored here. Totals read before an invalidation are not stored after it (see {@link #generation()}).
+ * Published as {@code cache.*} metrics tagged {@code cache=seriesBuckets}.
+ */
+@Component
+public class SeriesBucketCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SeriesBucketCache.class);
+
+    /**
+     * One bucket of one series.
+     * @param bankId the bank of the series, or {@code null} across banks
+     * @param category the category of the series, or {@code null} across categories
+     */
+    public record Key(BucketUnit unit, String bankId, String category, LocalDateTime bucketStart) {
+    }
+
+    private final Cache<Key, BucketTotals> buckets;
+    private final AtomicLong generation = new AtomicLong();
+
+    public SeriesBucketCache(@Value("${app.analytics.series.max-buckets:500000}") long maxBuckets,
+                             MeterRegistry meterRegistry) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "seriesBuckets");
+    }
+
+    public BucketTotals get(Key key) {
+        return buckets.getIfPresent(key);
+    }
+
+    // Incremented by every invalidation; read it before querying the totals to put
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Stores the totals of a closed bucket, unless an invalidation happened since {@code readGeneration}.
+     */
+    public void put(Key key, BucketTotals totals, long readGeneration) {
+        buckets.put(key, totals);
+        if (generation.get() != readGeneration) {
+            buckets.invalidate(key);
+        }
+    }
+
+    @EventListener
+    public void onFactsUpdated(FactsUpdatedEvent event) {
+        generation.incrementAndGet();
+        if (event.bankId() == null) {
+            buckets.invalidateAll();
+        } else {
+            buckets.asMap().keySet().removeIf(key -> key.bankId() == null || Objects.equals(key.bankId(), event.bankId()));
+        }
+        log.debug("Dropped cached series buckets after facts of {} changed", event.bankId() != null ? event.bankId() : "any bank");
+    }
+}
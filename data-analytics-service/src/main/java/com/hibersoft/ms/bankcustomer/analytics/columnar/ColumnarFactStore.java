@@ -0,0 +1,219 @@
+package com.hibersoft.ms.bankcustomer.analytics.columnar;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.hibersoft.ms.bankcustomer.analytics.cache.FactsUpdatedEvent;
+import com.hibersoft.ms.bankcustomer.analytics.model.BankSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.CustomerSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.LeaderboardCursor;
+import com.hibersoft.ms.bankcustomer.analytics.repository.AnalyticsQueries;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps a {@link FactColumns} copy of {@code fact_transactions} in memory and answers the analytics
+ * aggregates from it, when {@code app.analytics.columnar.enabled=true}.
+ * <p>
+ * The first refresh, right after startup, loads every fact; {@code DataAnalyticsService} uses the rollups
+ * until it is done. Later scheduled refreshes only read facts with an id above the highest one loaded, in id
+ * order and in batches, and publish a larger snapshot. The writer upserts facts in place (same id), moves
+ * facts whose time changed to a new id, and ids can commit out of order, none of which an append sees: so
+ * a {@link FactsUpdatedEvent} marks the snapshot stale, which sends queries back to the rollups until it has
+ * been rebuilt from scratch, and the snapshot is also rebuilt every {@code rebuild-interval}. Rebuilds after
+ * events run on a background thread of their own, one at a time: events arriving meanwhile (e.g. one per bank
+ * of a start-all) are coalesced into a single follow-up rebuild. A rebuild needs memory for a second copy
+ * until it is swapped in.
+ * <p>
+ * Size, memory and bytes per fact are published as {@code analytics.columnar.*} gauges.
+ */
+@Component
+@ConditionalOnProperty(name = "app.analytics.columnar.enabled", havingValue = "true")
+public class ColumnarFactStore implements AnalyticsQueries, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarFactStore.class);
+
+    static final String LOAD_SQL = "SELECT id, bank_id, customer_id, transaction_time, amount_standard, category, location_code "
+            + "FROM fact_transactions WHERE id > ? ORDER BY id FETCH FIRST ? ROWS ONLY";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final Duration rebuildInterval;
+
+    // Loader state, only touched by refresh() under the lock (not a monitor, which would pin a virtual
+    // thread's carrier for the whole load)
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private FactColumns.Builder builder;
+    private long lastRebuildNanos;
+
+    private volatile FactColumns snapshot;
+    // FactsUpdatedEvents received, and how many of them the current snapshot was rebuilt after
+    private final AtomicLong factsUpdates = new AtomicLong();
+    private volatile long rebuiltAfterUpdates;
+    // Runs the rebuilds requested by events; at most one is queued behind the running one
+    private final Executor rebuildExecutor;
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    @Autowired
+    public ColumnarFactStore(JdbcTemplate jdbcTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.analytics.columnar.batch-size:100000}") int batchSize,
+                             @Value("${app.analytics.columnar.rebuild-interval:PT6H}") Duration rebuildInterval) {
+        this(jdbcTemplate, meterRegistry, batchSize, rebuildInterval,
+                Executors.newSingleThreadExecutor(Thread.ofVirtual().name("columnar-rebuild").factory()));
+    }
+
+    ColumnarFactStore(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry, int batchSize, Duration rebuildInterval,
+                      Executor rebuildExecutor) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.rebuildExecutor = rebuildExecutor;
+        this.batchSize = batchSize;
+        this.rebuildInterval = rebuildInterval;
+        Gauge.builder("analytics.columnar.rows", this, store -> store.snapshot != null ? store.snapshot.size() : 0)
+                .register(meterRegistry);
+        Gauge.builder("analytics.columnar.bytes", this, store -> store.snapshot != null ? store.snapshot.estimatedBytes() : 0)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("analytics.columnar.bytes.per.row", this, ColumnarFactStore::bytesPerRow)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return snapshot != null && rebuiltAfterUpdates == factsUpdates.get();
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.columnar.refresh-interval-ms:30000}")
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            long updates = factsUpdates.get();
+            boolean rebuild = builder == null || rebuiltAfterUpdates != updates
+                    || System.nanoTime() - lastRebuildNanos >= rebuildInterval.toNanos();
+            FactColumns.Builder target = rebuild ? new FactColumns.Builder() : builder;
+            long started = System.nanoTime();
+            int loaded;
+            try {
+                loaded = load(target);
+            } catch (DataAccessException e) {
+                log.warn("Could not refresh the columnar snapshot, keeping {} fact(s){}: {}",
+                        snapshot != null ? snapshot.size() : 0, isReady() ? "" : " (stale, not used)", e.getMessage());
+                return;
+            }
+            if (rebuild) {
+                builder = target;
+                lastRebuildNanos = started;
+            }
+            if (rebuild || loaded > 0) {
+                snapshot = builder.snapshot();
+                if (rebuild) {
+                    rebuiltAfterUpdates = updates;
+                }
+                log.info("Columnar snapshot {}: {} new fact(s) in {} ms, {} fact(s), {} MB, {} bytes per fact",
+                        rebuild ? "rebuilt" : "refreshed", loaded, Duration.ofNanos(System.nanoTime() - started).toMillis(),
+                        snapshot.size(), snapshot.estimatedBytes() >> 20, Math.round(bytesPerRow()));
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    // Only marks the snapshot stale (queries go to the rollups from now on) and queues a rebuild; if it fails,
+    // the next scheduled refresh rebuilds instead
+    @EventListener
+    public void onFactsUpdated(FactsUpdatedEvent event) {
+        factsUpdates.incrementAndGet();
+        if (rebuildQueued.compareAndSet(false, true)) {
+            rebuildExecutor.execute(() -> {
+                // Cleared first: an event arriving during this rebuild queues another one
+                rebuildQueued.set(false);
+                refresh();
+            });
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (rebuildExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    // Appends the facts above the builder's highest id, a batch at a time; returns the number read
+    private int load(FactColumns.Builder target) {
+        int total = 0;
+        int read;
+        do {
+            read = jdbcTemplate.query(LOAD_SQL, rs -> {
+                int rows = 0;
+                while (rs.next()) {
+                    Timestamp transactionTime = rs.getTimestamp(4);
+                    BigDecimal amount = rs.getBigDecimal(5);
+                    target.append(rs.getLong(1), rs.getString(2), rs.getString(3),
+                            transactionTime != null ? transactionTime.toLocalDateTime() : null, amount,
+                            rs.getString(6), rs.getString(7));
+                    rows++;
+                }
+                return rows;
+            }, target.maxId(), batchSize);
+            total += read;
+        } while (read == batchSize);
+        return total;
+    }
+
+    private double bytesPerRow() {
+        FactColumns current = snapshot;
+        return current == null || current.size() == 0 ? 0 : (double) current.estimatedBytes() / current.size();
+    }
+
+    @Override
+    public List<CustomerSpending> findTopSpendingCustomers(LocalDateTime startDate, LocalDateTime endDate,
+                                                           LeaderboardCursor after, int limit) {
+        return snapshot().findTopSpendingCustomers(startDate, endDate, after, limit);
+    }
+
+    @Override
+    public List<Object[]> countTransactionsByLocation() {
+        return snapshot().countTransactionsByLocation();
+    }
+
+    @Override
+    public List<Object[]> findSpendingByCategory() {
+        return snapshot().findSpendingByCategory();
+    }
+
+    @Override
+    public List<BankSpending> findSpendingByBank() {
+        return snapshot().findSpendingByBank();
+    }
+
+    private FactColumns snapshot() {
+        FactColumns current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("Columnar snapshot is not loaded yet");
+        }
+        return current;
+    }
+}
@@ -0,0 +1,247 @@
+package com.hibersoft.ms.bankcustomer.analytics.columnar;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import com.hibersoft.ms.bankcustomer.analytics.model.BankSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.CustomerSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.LeaderboardCursor;
+import com.hibersoft.ms.bankcustomer.analytics.repository.AnalyticsQueries;
+
+/**
+ * Immutable, column-oriented snapshot of the first {@link #size()} facts: amounts as long cents, transaction
+ * times as epoch seconds (UTC, like the {@code timestamp without time zone} column) and bank, category,
+ * location and customer ids as dictionary codes, i.e. 32 bytes per fact plus the distinct strings.
+ * <p>
+ * Queries split the rows into one range per common-pool thread, aggregate each range into arrays indexed
+ * by dictionary code and add the partial arrays up. A snapshot only reads rows below its size, so the
+ * {@link Builder} can keep appending to the same arrays and publish a larger snapshot later.
+ */
+public final class FactColumns implements AnalyticsQueries {
+
+    // Below this, splitting a scan costs more than it saves
+    private static final int MIN_ROWS_PER_PARTITION = 1 << 16;
+
+    static final int BYTES_PER_ROW = Long.BYTES * 2 + Integer.BYTES * 4;
+
+    private static final Comparator<CustomerSpending> LEADERBOARD_ORDER = Comparator
+            .comparing(CustomerSpending::totalSpent).reversed()
+            .thenComparing(CustomerSpending::customerId);
+
+    record Column(int[] codes, String[] values, int cardinality) {
+    }
+
+    private record Totals(long[] cents, long[] counts) {
+        Totals add(Totals other) {
+            for (int code = 0; code < cents.length; code++) {
+                cents[code] += other.cents[code];
+                counts[code] += other.counts[code];
+            }
+            return this;
+        }
+    }
+
+    private final int size;
+    private final long maxId;
+    private final long[] amountCents;
+    private final long[] epochSeconds;
+    private final Column bank;
+    private final Column category;
+    private final Column location;
+    private final Column customer;
+    private final long estimatedBytes;
+
+    private FactColumns(int size, long maxId, long[] amountCents, long[] epochSeconds, Column bank, Column category,
+                        Column location, Column customer, long estimatedBytes) {
+        this.size = size;
+        this.maxId = maxId;
+        this.amountCents = amountCents;
+        this.epochSeconds = epochSeconds;
+        this.bank = bank;
+        this.category = category;
+        this.location = location;
+        this.customer = customer;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Highest fact id seen by the loader, including facts that were skipped
+    public long maxId() {
+        return maxId;
+    }
+
+    // Heap held by the columns (at their allocated capacity) and the dictionaries
+    public long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public List<CustomerSpending> findTopSpendingCustomers(LocalDateTime startDate, LocalDateTime endDate,
+                                                           LeaderboardCursor after, int limit) {
+        Totals totals = totals(customer, startDate.toEpochSecond(ZoneOffset.UTC), endDate.toEpochSecond(ZoneOffset.UTC));
+        CustomerSpending position = after != null ? new CustomerSpending(after.customerId(), after.totalSpent()) : null;
+
+        // Bounded heap holding the best `limit` entries after the cursor, worst on top
+        PriorityQueue<CustomerSpending> page = new PriorityQueue<>(LEADERBOARD_ORDER.reversed());
+        for (int code = 0; code < customer.cardinality(); code++) {
+            if (totals.counts[code] == 0) {
+                continue;
+            }
+            CustomerSpending entry = new CustomerSpending(customer.values()[code], BigDecimal.valueOf(totals.cents[code], 2));
+            if (position != null && LEADERBOARD_ORDER.compare(entry, position) <= 0) {
+                continue;
+            }
+            page.add(entry);
+            if (page.size() > limit) {
+                page.poll();
+            }
+        }
+        List<CustomerSpending> ordered = new ArrayList<>(page);
+        ordered.sort(LEADERBOARD_ORDER);
+        return ordered;
+    }
+
+    @Override
+    public List<Object[]> countTransactionsByLocation() {
+        Totals totals = totals(location, Long.MIN_VALUE, Long.MAX_VALUE);
+        List<Object[]> rows = new ArrayList<>();
+        for (int code = 0; code < location.cardinality(); code++) {
+            if (totals.counts[code] > 0) {
+                rows.add(new Object[] { location.values()[code], totals.counts[code] });
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public List<Object[]> findSpendingByCategory() {
+        Totals totals = totals(category, Long.MIN_VALUE, Long.MAX_VALUE);
+        List<Object[]> rows = new ArrayList<>();
+        for (int code = 0; code < category.cardinality(); code++) {
+            if (totals.counts[code] > 0) {
+                rows.add(new Object[] { category.values()[code], BigDecimal.valueOf(totals.cents[code], 2) });
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public List<BankSpending> findSpendingByBank() {
+        Totals totals = totals(bank, Long.MIN_VALUE, Long.MAX_VALUE);
+        List<BankSpending> rows = new ArrayList<>();
+        for (int code = 0; code < bank.cardinality(); code++) {
+            if (totals.counts[code] > 0) {
+                rows.add(new BankSpending(bank.values()[code], BigDecimal.valueOf(totals.cents[code], 2), totals.counts[code]));
+            }
+        }
+        rows.sort(Comparator.comparing(BankSpending::bankId));
+        return rows;
+    }
+
+    // Sum of cents and number of facts per code of the column, for facts timed within [fromSecond, toSecond]
+    private Totals totals(Column column, long fromSecond, long toSecond) {
+        int cardinality = column.cardinality();
+        int[] codes = column.codes();
+        int partitions = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), size / MIN_ROWS_PER_PARTITION));
+        return IntStream.range(0, partitions).parallel().mapToObj(partition -> {
+            int from = (int) ((long) size * partition / partitions);
+            int to = (int) ((long) size * (partition + 1) / partitions);
+            long[] cents = new long[cardinality];
+            long[] counts = new long[cardinality];
+            for (int row = from; row < to; row++) {
+                int code = codes[row];
+                long second = epochSeconds[row];
+                if (code >= 0 && second >= fromSecond && second <= toSecond) {
+                    cents[code] += amountCents[row];
+                    counts[code]++;
+                }
+            }
+            return new Totals(cents, counts);
+        }).reduce(Totals::add).orElseGet(() -> new Totals(new long[cardinality], new long[cardinality]));
+    }
+
+    /**
+     * Appends facts to growing columns and publishes {@link FactColumns} snapshots of them. Not thread safe:
+     * one loader thread appends, any thread may read the published snapshots.
+     */
+    static final class Builder {
+
+        private static final int INITIAL_CAPACITY = 1 << 16;
+
+        private final StringDictionary banks = new StringDictionary();
+        private final StringDictionary categories = new StringDictionary();
+        private final StringDictionary locations = new StringDictionary();
+        private final StringDictionary customers = new StringDictionary();
+        private long[] amountCents = new long[INITIAL_CAPACITY];
+        private long[] epochSeconds = new long[INITIAL_CAPACITY];
+        private int[] bankCodes = new int[INITIAL_CAPACITY];
+        private int[] categoryCodes = new int[INITIAL_CAPACITY];
+        private int[] locationCodes = new int[INITIAL_CAPACITY];
+        private int[] customerCodes = new int[INITIAL_CAPACITY];
+        private int size;
+        private long maxId;
+
+        /**
+         * Adds one fact. Facts without a transaction time are only remembered through their id, as they
+         * are in the daily rollups; a missing amount counts as zero.
+         */
+        void append(long id, String bankId, String customerId, LocalDateTime transactionTime, BigDecimal amount,
+                    String categoryName, String locationCode) {
+            maxId = Math.max(maxId, id);
+            if (transactionTime == null) {
+                return;
+            }
+            if (size == amountCents.length) {
+                grow();
+            }
+            amountCents[size] = amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact() : 0;
+            epochSeconds[size] = transactionTime.toEpochSecond(ZoneOffset.UTC);
+            bankCodes[size] = banks.encode(bankId);
+            categoryCodes[size] = categories.encode(categoryName);
+            locationCodes[size] = locations.encode(locationCode);
+            customerCodes[size] = customers.encode(customerId);
+            size++;
+        }
+
+        long maxId() {
+            return maxId;
+        }
+
+        FactColumns snapshot() {
+            long bytes = (long) amountCents.length * BYTES_PER_ROW + banks.estimatedBytes() + categories.estimatedBytes()
+                    + locations.estimatedBytes() + customers.estimatedBytes();
+            return new FactColumns(size, maxId, amountCents, epochSeconds, column(bankCodes, banks),
+                    column(categoryCodes, categories), column(locationCodes, locations), column(customerCodes, customers), bytes);
+        }
+
+        private static Column column(int[] codes, StringDictionary dictionary) {
+            return new Column(codes, dictionary.values(), dictionary.size());
+        }
+
+        // 1.5x, so that loading does not need twice the final size
+        private void grow() {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8L, size + (size >> 1));
+            if (capacity <= size) {
+                throw new IllegalStateException("Columnar snapshot is full at " + size + " facts");
+            }
+            amountCents = Arrays.copyOf(amountCents, capacity);
+            epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            bankCodes = Arrays.copyOf(bankCodes, capacity);
+            categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+            locationCodes = Arrays.copyOf(locationCodes, capacity);
+            customerCodes = Arrays.copyOf(customerCodes, capacity);
+        }
+    }
+}
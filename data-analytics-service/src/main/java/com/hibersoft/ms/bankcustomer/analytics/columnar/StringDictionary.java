@@ -0,0 +1,53 @@
+package com.hibersoft.ms.bankcustomer.analytics.columnar;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only dictionary encoding of a string column: each distinct value gets the next int code and
+ * null is {@link #NULL_CODE}. Codes never change, so a {@link FactColumns} snapshot keeps using the
+ * values array it was published with while the loader appends to a (possibly reallocated) new one.
+ * Only the loader thread calls {@link #encode}.
+ */
+final class StringDictionary {
+
+    static final int NULL_CODE = -1;
+
+    // Rough heap cost of a distinct value: the String and its byte[] headers, the HashMap node and the array slot
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+    private int size;
+    private long valueBytes;
+
+    int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+        codes.put(value, size);
+        valueBytes += ENTRY_OVERHEAD_BYTES + value.length();
+        return size++;
+    }
+
+    String[] values() {
+        return values;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long estimatedBytes() {
+        return valueBytes;
+    }
+}
@@ -1,18 +1,39 @@
 package com.hibersoft.ms.bankcustomer.analytics.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.hibersoft.ms.bankcustomer.analytics.export.ExportFormat;
+import com.hibersoft.ms.bankcustomer.analytics.export.FactExporter;
+
+import com.hibersoft.ms.bankcustomer.analytics.model.AmountQuantiles;
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketUnit;
+import com.hibersoft.ms.bankcustomer.analytics.model.DistinctCustomersEstimate;
+import com.hibersoft.ms.bankcustomer.analytics.model.SpendingComparison;
+import com.hibersoft.ms.bankcustomer.analytics.model.SpendingSeries;
+import com.hibersoft.ms.bankcustomer.analytics.model.TopCustomersPage;
 import com.hibersoft.ms.bankcustomer.analytics.service.DataAnalyticsService;
 
 @RestController
@@ -22,18 +43,27 @@ public class DataAnalyticsController {
     @Autowired
     private DataAnalyticsService analyticsService;
 
+    @Autowired
+    private FactExporter factExporter;
+
     /**
-     * Endpoint to get top spending customers within a time range.
+     * Endpoint to get top spending customers within a time range, highest first.
      * Example URL: http://localhost:8082/api/v1/analytics/top-customers?startDate=2023-01-01T00:00:00&endDate=2025-01-01T00:00:00&limit=5
+     * The next page is fetched with the same dates, limit and the returned nextCursor: ...&cursor=<nextCursor>
      */
     @GetMapping("/top-customers")
-    public ResponseEntity<Map<String, BigDecimal>> getTopCustomers(
+    public ResponseEntity<TopCustomersPage> getTopCustomers(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
-            @RequestParam(defaultValue = "5") int limit) {
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(required = false) String cursor) {
 
-        Map<String, BigDecimal> topSpenders = analyticsService.getTopSpendingCustomers(startDate, endDate, limit);
-        return ResponseEntity.ok(topSpenders);
+        try {
+            return ResponseEntity.ok(analyticsService.getTopSpendingCustomers(startDate, endDate, limit, cursor));
+        } catch (IllegalArgumentException e) {
+            // Malformed cursor
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -60,9 +90,128 @@ public class DataAnalyticsController {
     }
     
 
+    /**
+     * Endpoint to compare the average transaction amount of every bank with the platform average.
+     * Example URL: http://localhost:8082/api/v1/analytics/compare-spending
+     */
+    @GetMapping("/compare-spending")
+    public ResponseEntity<SpendingComparison> compareSpendingOfAllBanks() {
+        return ResponseEntity.ok(analyticsService.getSpendingComparison());
+    }
+
     @GetMapping("/compare-spending/{bankId}")
     public ResponseEntity<Map<String, BigDecimal>> compareSpending(@PathVariable String bankId) {
         Map<String, BigDecimal> comparison = analyticsService.getComparativeAverageSpending(bankId);
         return ResponseEntity.ok(comparison);
     }
+
+    /**
+     * Endpoint to estimate the distinct customers between two days (inclusive), from the daily sketches.
+     * Example URL: http://localhost:8082/api/v1/analytics/distinct-customers?startDate=2024-01-01&endDate=2024-12-31&bankId=BANK_A&category=Dining
+     * bankId and category are optional; without them every bank and every category is counted.
+     */
+    @GetMapping("/distinct-customers")
+    public ResponseEntity<DistinctCustomersEstimate> getDistinctCustomers(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String bankId,
+            @RequestParam(required = false) String category) {
+
+        try {
+            return ResponseEntity.ok(analyticsService.getDistinctCustomers(startDate, endDate, bankId, category));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Endpoint to estimate transaction amount quantiles between two days (inclusive), from the daily sketches.
+     * Example URL: http://localhost:8082/api/v1/analytics/amount-quantiles?startDate=2024-01-01&endDate=2024-12-31&q=0.5,0.9,0.99&bankId=BANK_A
+     * bankId and category are optional, as for distinct-customers.
+     */
+    @GetMapping("/amount-quantiles")
+    public ResponseEntity<AmountQuantiles> getAmountQuantiles(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(name = "q", defaultValue = "0.5,0.9,0.99") List<Double> ranks,
+            @RequestParam(required = false) String bankId,
+            @RequestParam(required = false) String category) {
+
+        try {
+            return ResponseEntity.ok(analyticsService.getAmountQuantiles(startDate, endDate, ranks, bankId, category));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Endpoint to get spending per hour, day or week (weeks start on Monday).
+     * Example URL: http://localhost:8082/api/v1/analytics/series?bucket=day&metric=sum&bank=BANK_A&startDate=2024-03-01T00:00:00&endDate=2024-03-31T23:59:59
+     * bucket defaults to day and metric (sum or count) to sum; bank and category are optional.
+     */
+    @GetMapping("/series")
+    public ResponseEntity<SpendingSeries> getSpendingSeries(
+            @RequestParam(defaultValue = "day") String bucket,
+            @RequestParam(defaultValue = "sum") String metric,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) String bank,
+            @RequestParam(required = false) String category) {
+
+        try {
+            return ResponseEntity.ok(analyticsService.getSpendingSeries(BucketUnit.of(bucket), metric.toLowerCase(),
+                    startDate, endDate, bank, category));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Endpoint to download facts, streamed from a database cursor (gzip-encoded when the client accepts it).
+     * Example URL: http://localhost:8082/api/v1/analytics/export?format=csv&bankId=BANK_A&startDate=2024-01-01&endDate=2024-03-31
+     * All filters are optional; format is ndjson (default) or csv. Example: curl --compressed -o facts.csv '<url>'
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportFacts(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String bankId,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (startDate != null && endDate != null && endDate.isBefore(startDate)) {
+            return ResponseEntity.badRequest().build();
+        }
+        String bank = bankId != null ? bankId.toUpperCase() : null;
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            try {
+                factExporter.export(bank, category, startDate, endDate, exportFormat, target);
+            } catch (SQLException e) {
+                throw new IOException("Fact export query failed", e);
+            }
+            if (target instanceof GZIPOutputStream gzipOut) {
+                gzipOut.finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(new MediaType(MediaType.parseMediaType(exportFormat.contentType()), StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("facts." + exportFormat.extension()).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
 }
@@ -0,0 +1,32 @@
+package com.hibersoft.ms.bankcustomer.analytics.export;
+
+import java.util.Locale;
+
+// Output formats of the fact export
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name is not a format
+     */
+    public static ExportFormat of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,211 @@
+package com.hibersoft.ms.bankcustomer.analytics.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Streams {@code fact_transactions} rows, optionally filtered by bank, category and days, as NDJSON
+ * (one object per line) or CSV (with a header line), in no particular order.
+ * <p>
+ * Rows are read through a forward-only, read-only cursor: with auto-commit off and a fixed fetch size,
+ * the PostgreSQL driver fetches {@code fetch-size} rows at a time instead of the whole result, and each
+ * row is written out before the next one is read, so memory does not grow with the export. The day
+ * filter is a plain range on {@code transaction_time}, so only the partitions of those months are read.
+ * When a write fails (typically because the client disconnected or the request timed out), the
+ * statement is cancelled and the cursor closed, which ends the query on the server.
+ */
+@Component
+public class FactExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(FactExporter.class);
+
+    static final List<String> COLUMNS = List.of("id", "bank_id", "source_transaction_id", "customer_id", "transaction_time",
+            "amount_standard", "description_standard", "location_code", "transaction_type", "is_valid", "category",
+            "customer_segment");
+    static final String SELECT_SQL = "SELECT " + String.join(", ", COLUMNS) + " FROM fact_transactions";
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final DataSource dataSource;
+    private final int fetchSize;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public FactExporter(DataSource dataSource, @Value("${app.analytics.export.fetch-size:5000}") int fetchSize) {
+        this.dataSource = dataSource;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Writes the matching facts to {@code out}, which is flushed but not closed.
+     * @param bankId the bank, or {@code null} for all banks
+     * @param category the category, or {@code null} for all categories
+     * @param startDate the first day, or {@code null} for no lower bound
+     * @param endDate the last day (inclusive), or {@code null} for no upper bound
+     * @return the number of rows written
+     */
+    public long export(String bankId, String category, LocalDate startDate, LocalDate endDate, ExportFormat format,
+                       OutputStream out) throws IOException, SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = SELECT_SQL + where(bankId, category, startDate, endDate, params);
+        long start = System.nanoTime();
+        long rows = 0;
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            // The PostgreSQL driver only fetches with a cursor inside a transaction
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                for (int i = 0; i < params.size(); i++) {
+                    statement.setObject(i + 1, params.get(i));
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+                    try {
+                        rows = format == ExportFormat.CSV ? writeCsv(rs, writer) : writeNdjson(rs, writer);
+                        writer.flush();
+                    } catch (IOException e) {
+                        statement.cancel();
+                        log.info("Fact export aborted: {}", e.getMessage());
+                        throw e;
+                    }
+                }
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        log.info("Exported {} facts as {} in {} ms", rows, format, (System.nanoTime() - start) / 1_000_000);
+        return rows;
+    }
+
+    static String where(String bankId, String category, LocalDate startDate, LocalDate endDate, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (bankId != null) {
+            conditions.add("bank_id = ?");
+            params.add(bankId);
+        }
+        if (category != null) {
+            conditions.add("category = ?");
+            params.add(category);
+        }
+        if (startDate != null) {
+            conditions.add("transaction_time >= ?");
+            params.add(Timestamp.valueOf(startDate.atStartOfDay()));
+        }
+        if (endDate != null) {
+            conditions.add("transaction_time < ?");
+            params.add(Timestamp.valueOf(endDate.plusDays(1).atStartOfDay()));
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private long writeNdjson(ResultSet rs, Writer writer) throws SQLException, IOException {
+        long rows = 0;
+        try (JsonGenerator json = jsonFactory.createGenerator(writer)) {
+            // The writer is flushed by the caller, and closed by the servlet container
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (rs.next()) {
+                json.writeStartObject();
+                for (int column = 1; column <= COLUMNS.size(); column++) {
+                    json.writeFieldName(COLUMNS.get(column - 1));
+                    Object value = value(rs, column);
+                    if (value == null) {
+                        json.writeNull();
+                    } else if (value instanceof BigDecimal amount) {
+                        json.writeNumber(amount);
+                    } else if (value instanceof Long id) {
+                        json.writeNumber(id);
+                    } else if (value instanceof Boolean valid) {
+                        json.writeBoolean(valid);
+                    } else {
+                        json.writeString(value.toString());
+                    }
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private long writeCsv(ResultSet rs, Writer writer) throws SQLException, IOException {
+        writer.write(String.join(",", COLUMNS));
+        writer.write('\n');
+        StringBuilder line = new StringBuilder(256);
+        long rows = 0;
+        while (rs.next()) {
+            line.setLength(0);
+            for (int column = 1; column <= COLUMNS.size(); column++) {
+                if (column > 1) {
+                    line.append(',');
+                }
+                appendCsvField(line, value(rs, column));
+            }
+            line.append('\n');
+            writer.append(line);
+            rows++;
+        }
+        return rows;
+    }
+
+    // Nulls are empty fields, text is quoted (so an empty string stays distinguishable from null)
+    static void appendCsvField(StringBuilder line, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (!(value instanceof String text)) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int c = 0; c < text.length(); c++) {
+            char ch = text.charAt(c);
+            if (ch == '"') {
+                line.append('"');
+            }
+            line.append(ch);
+        }
+        line.append('"');
+    }
+
+    // Column value in its export type: Long, String, LocalDateTime (written as ISO-8601), BigDecimal or Boolean
+    private static Object value(ResultSet rs, int column) throws SQLException {
+        Object value = switch (column) {
+            case 1 -> rs.getLong(column);
+            case 5 -> {
+                Timestamp time = rs.getTimestamp(column);
+                yield time != null ? time.toLocalDateTime() : null;
+            }
+            case 6 -> rs.getBigDecimal(column);
+            case 10 -> rs.getBoolean(column);
+            default -> rs.getString(column);
+        };
+        return rs.wasNull() ? null : value;
+    }
+}
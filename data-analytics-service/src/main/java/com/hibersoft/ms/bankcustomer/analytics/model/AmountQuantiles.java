@@ -0,0 +1,12 @@
+package com.hibersoft.ms.bankcustomer.analytics.model;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Approximate transaction amount quantiles, from merged KLL sketches: {@code quantiles} maps each
+ * requested rank (0 to 1) to the amount at that rank. {@code count} is the exact number of amounts
+ * sketched; when it is 0, {@code quantiles} is empty.
+ */
+public record AmountQuantiles(long count, Map<Double, BigDecimal> quantiles) {
+}
@@ -0,0 +1,7 @@
+package com.hibersoft.ms.bankcustomer.analytics.model;
+
+import java.math.BigDecimal;
+
+// Total amount and number of transactions of one bank; averages are derived from these pairs
+public record BankSpending(String bankId, BigDecimal totalSpent, long transactionCount) {
+}
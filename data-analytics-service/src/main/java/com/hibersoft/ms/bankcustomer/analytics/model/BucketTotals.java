@@ -0,0 +1,9 @@
+package com.hibersoft.ms.bankcustomer.analytics.model;
+
+import java.math.BigDecimal;
+
+// Total amount and number of transactions of one series bucket
+public record BucketTotals(BigDecimal totalSpent, long transactionCount) {
+
+    public static final BucketTotals EMPTY = new BucketTotals(BigDecimal.ZERO, 0);
+}
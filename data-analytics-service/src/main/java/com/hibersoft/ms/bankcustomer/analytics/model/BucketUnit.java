@@ -0,0 +1,46 @@
+package com.hibersoft.ms.bankcustomer.analytics.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+/**
+ * Width of the buckets of a spending series. {@link #truncate} matches PostgreSQL's {@code date_trunc}
+ * for the same unit (weeks start on Monday).
+ */
+public enum BucketUnit {
+    HOUR,
+    DAY,
+    WEEK;
+
+    // Field name for date_trunc
+    public String sqlName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public LocalDateTime truncate(LocalDateTime time) {
+        return switch (this) {
+            case HOUR -> time.truncatedTo(ChronoUnit.HOURS);
+            case DAY -> time.truncatedTo(ChronoUnit.DAYS);
+            case WEEK -> time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        };
+    }
+
+    // Start of the bucket after the one starting at bucketStart
+    public LocalDateTime next(LocalDateTime bucketStart) {
+        return switch (this) {
+            case HOUR -> bucketStart.plusHours(1);
+            case DAY -> bucketStart.plusDays(1);
+            case WEEK -> bucketStart.plusWeeks(1);
+        };
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name is not a unit
+     */
+    public static BucketUnit of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
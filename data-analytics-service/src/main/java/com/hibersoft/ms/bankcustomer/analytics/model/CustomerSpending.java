@@ -0,0 +1,7 @@
+package com.hibersoft.ms.bankcustomer.analytics.model;
+
+import java.math.BigDecimal;
+
+// One entry of the spending leaderboard
+public record CustomerSpending(String customerId, BigDecimal totalSpent) {
+}
@@ -0,0 +1,8 @@
+package com.hibersoft.ms.bankcustomer.analytics.model;
+
+/**
+ * Approximate number of distinct customers, from merged HyperLogLog sketches; the bounds hold the
+ * true count with about 95% confidence.
+ */
+public record DistinctCustomersEstimate(long estimate, long lowerBound, long upperBound) {
+}
@@ -0,0 +1,34 @@
+package com.hibersoft.ms.bankcustomer.analytics.model;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in the spending leaderboard: the last entry of the previous page. The next page
+ * starts right after it in (total DESC, customer id ASC) order, so paging costs the same on every page.
+ * Sent to clients as an opaque URL-safe token.
+ */
+public record LeaderboardCursor(BigDecimal totalSpent, String customerId) {
+
+    public static LeaderboardCursor after(CustomerSpending last) {
+        return new LeaderboardCursor(last.totalSpent(), last.customerId());
+    }
+
+    public String encode() {
+        String position = totalSpent.toPlainString() + ":" + customerId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static LeaderboardCursor decode(String token) {
+        String position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        int separator = position.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed leaderboard cursor");
+        }
+        return new LeaderboardCursor(new BigDecimal(position.substring(0, separator)), position.substring(separator + 1));
+    }
+}
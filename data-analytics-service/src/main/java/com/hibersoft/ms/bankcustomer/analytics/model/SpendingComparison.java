@@ -0,0 +1,14 @@
+package com.hibersoft.ms.bankcustomer.analytics.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Average transaction amount of every bank (ordered by bank id) and of the whole platform, all derived
+ * from the same per-bank totals. Averages are zero when there are no transactions.
+ */
+public record SpendingComparison(BigDecimal overallAverage, long transactionCount, List<BankAverage> banks) {
+
+    public record BankAverage(String bankId, BigDecimal average, long transactionCount) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.hibersoft.ms.bankcustomer.analytics.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Spending per time bucket, oldest first, with one point per bucket (zero when it has no transactions).
+ * {@code metric} is {@code sum} (total amount) or {@code count} (number of transactions).
+ */
+public record SpendingSeries(String bucket, String metric, List<Point> points) {
+
+    public record Point(LocalDateTime bucketStart, BigDecimal value) {
+    }
+}
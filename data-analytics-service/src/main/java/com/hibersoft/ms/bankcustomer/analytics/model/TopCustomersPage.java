@@ -0,0 +1,10 @@
+package com.hibersoft.ms.bankcustomer.analytics.model;
+
+import java.util.List;
+
+/**
+ * One page of the spending leaderboard, highest total first (ties by customer id).
+ * {@code nextCursor} fetches the following page with the same date range, or is {@code null} on the last page.
+ */
+public record TopCustomersPage(List<CustomerSpending> customers, String nextCursor) {
+}
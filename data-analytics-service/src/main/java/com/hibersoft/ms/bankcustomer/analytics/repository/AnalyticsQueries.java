@@ -0,0 +1,32 @@
+package com.hibersoft.ms.bankcustomer.analytics.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.hibersoft.ms.bankcustomer.analytics.model.BankSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.CustomerSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.LeaderboardCursor;
+
+/**
+ * The aggregates behind {@code DataAnalyticsService}. Facts without a transaction time, and facts without
+ * the grouping key, are not counted.
+ */
+public interface AnalyticsQueries {
+
+    /**
+     * Customers and total spent between both dates (inclusive), highest first and then by customer id.
+     * @param after last entry of the previous page, or {@code null} for the first page
+     * @param limit maximum number of entries returned
+     */
+    List<CustomerSpending> findTopSpendingCustomers(LocalDateTime startDate, LocalDateTime endDate,
+                                                    LeaderboardCursor after, int limit);
+
+    // Location code and number of transactions (Long)
+    List<Object[]> countTransactionsByLocation();
+
+    // Category and total amount
+    List<Object[]> findSpendingByCategory();
+
+    // Total amount and number of transactions of every bank with transactions, ordered by bank id
+    List<BankSpending> findSpendingByBank();
+}
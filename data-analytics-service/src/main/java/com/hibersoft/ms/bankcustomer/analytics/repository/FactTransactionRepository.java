@@ -10,6 +10,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
+// Full-scan aggregates over the fact table; DataAnalyticsService answers from RollupRepository instead
 @Repository
 public interface FactTransactionRepository extends JpaRepository<FactTransactionEntity, Long> {
     // Custom query to find top customers by spending in a time range
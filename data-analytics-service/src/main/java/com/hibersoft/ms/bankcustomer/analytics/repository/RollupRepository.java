@@ -0,0 +1,93 @@
+package com.hibersoft.ms.bankcustomer.analytics.repository;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.hibersoft.ms.bankcustomer.analytics.model.BankSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.CustomerSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.LeaderboardCursor;
+
+/**
+ * Analytics aggregates answered from the daily rollup tables that the modeling job's writer keeps
+ * up to date, so the cost of a query depends on the number of days and keys, not on the number of facts.
+ * <p>
+ * Apart from the leaderboard, results have the same shape as the matching {@link FactTransactionRepository}
+ * queries. Facts without a transaction time or without the grouping key are not part of the rollups.
+ */
+@Repository
+public class RollupRepository implements AnalyticsQueries {
+
+    // Whole days from the customer rollup (via rollup_customer_daily_date_idx), partial edge days from the
+    // facts (via fact_transactions_time_idx). Each edge is its own plain range on transaction_time, so only
+    // the monthly partitions holding those days are read. Only the requested page leaves the database: the
+    // optional keyset condition skips the entries up to the previous page's last one, and the limit stops the sort.
+    static final String TOP_SPENDING_CUSTOMERS_SQL = "SELECT customer_id, SUM(amount) AS total_spent FROM ("
+            + "SELECT customer_id, amount_sum AS amount FROM rollup_customer_daily "
+            + "WHERE txn_date >= :firstDay AND txn_date < :endDay "
+            + "UNION ALL "
+            + "SELECT customer_id, amount_standard AS amount FROM fact_transactions "
+            + "WHERE customer_id IS NOT NULL AND amount_standard IS NOT NULL "
+            + "AND transaction_time >= :headStart AND transaction_time < :headEnd "
+            + "UNION ALL "
+            + "SELECT customer_id, amount_standard AS amount FROM fact_transactions "
+            + "WHERE customer_id IS NOT NULL AND amount_standard IS NOT NULL "
+            + "AND transaction_time >= :tailStart AND transaction_time <= :tailEnd"
+            + ") spending GROUP BY customer_id "
+            + "HAVING :afterCustomer IS NULL OR SUM(amount) < :afterTotal "
+            + "OR (SUM(amount) = :afterTotal AND customer_id > :afterCustomer) "
+            + "ORDER BY total_spent DESC, customer_id FETCH FIRST :limit ROWS ONLY";
+    static final String COUNTS_BY_LOCATION_SQL =
+            "SELECT location_code, SUM(txn_count) FROM rollup_location_daily GROUP BY location_code";
+    static final String SPENDING_BY_CATEGORY_SQL =
+            "SELECT category, SUM(amount_sum) FROM rollup_category_daily GROUP BY category";
+    static final String SPENDING_BY_BANK_SQL =
+            "SELECT bank_id, SUM(amount_sum), SUM(txn_count) FROM rollup_bank_daily GROUP BY bank_id ORDER BY bank_id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public RollupRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<CustomerSpending> findTopSpendingCustomers(LocalDateTime startDate, LocalDateTime endDate,
+                                                           LeaderboardCursor after, int limit) {
+        RollupWindow window = RollupWindow.of(startDate, endDate);
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("firstDay", window.firstDay())
+                .addValue("endDay", window.endDay())
+                .addValue("headStart", window.headStart())
+                .addValue("headEnd", window.headEnd())
+                .addValue("tailStart", window.tailStart())
+                .addValue("tailEnd", window.tailEnd())
+                .addValue("afterTotal", after != null ? after.totalSpent() : null, Types.NUMERIC)
+                .addValue("afterCustomer", after != null ? after.customerId() : null, Types.VARCHAR)
+                .addValue("limit", limit);
+        return jdbcTemplate.query(TOP_SPENDING_CUSTOMERS_SQL, params,
+                (rs, rowNum) -> new CustomerSpending(rs.getString(1), rs.getBigDecimal(2)));
+    }
+
+    @Override
+    public List<Object[]> countTransactionsByLocation() {
+        return jdbcTemplate.query(COUNTS_BY_LOCATION_SQL, Map.of(),
+                (rs, rowNum) -> new Object[] { rs.getString(1), rs.getLong(2) });
+    }
+
+    @Override
+    public List<Object[]> findSpendingByCategory() {
+        return jdbcTemplate.query(SPENDING_BY_CATEGORY_SQL, Map.of(),
+                (rs, rowNum) -> new Object[] { rs.getString(1), rs.getBigDecimal(2) });
+    }
+
+    @Override
+    public List<BankSpending> findSpendingByBank() {
+        return jdbcTemplate.query(SPENDING_BY_BANK_SQL, Map.of(),
+                (rs, rowNum) -> new BankSpending(rs.getString(1), rs.getBigDecimal(2), rs.getLong(3)));
+    }
+}
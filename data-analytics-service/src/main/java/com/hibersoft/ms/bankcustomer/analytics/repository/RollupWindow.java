@@ -0,0 +1,28 @@
+package com.hibersoft.ms.bankcustomer.analytics.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Splits an inclusive {@code [start, end]} time range into the whole days answered by the daily
+ * rollups ({@code firstDay} inclusive to {@code endDay} exclusive) and the partial days at both edges,
+ * which are read from {@code fact_transactions}: {@code [headStart, headEnd)} and {@code [tailStart, tailEnd]}.
+ * A range without a whole day is read from the facts only.
+ */
+public record RollupWindow(LocalDateTime headStart, LocalDateTime headEnd, LocalDate firstDay, LocalDate endDay,
+                           LocalDateTime tailStart, LocalDateTime tailEnd) {
+
+    public static RollupWindow of(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime wholeDaysStart = start.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? start
+                : start.toLocalDate().plusDays(1).atStartOfDay();
+        LocalDateTime wholeDaysEnd = end.toLocalDate().atStartOfDay();
+        if (!wholeDaysStart.isBefore(wholeDaysEnd)) {
+            // No whole day in the range: empty head and rollup parts, the tail covers everything
+            return new RollupWindow(start, start, LocalDate.EPOCH, LocalDate.EPOCH, start, end);
+        }
+        return new RollupWindow(start, wholeDaysStart, wholeDaysStart.toLocalDate(), wholeDaysEnd.toLocalDate(),
+                wholeDaysEnd, end);
+    }
+}
@@ -0,0 +1,53 @@
+package com.hibersoft.ms.bankcustomer.analytics.repository;
+
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketTotals;
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketUnit;
+
+/**
+ * Spending per time bucket, bucketed by the database with {@code date_trunc} over {@code fact_transactions}.
+ * The range is a plain one on {@code transaction_time}, so only the partitions of those months are read.
+ */
+@Repository
+public class SeriesRepository {
+
+    static final String SERIES_SQL_TEMPLATE = "SELECT date_trunc('%1$s', transaction_time) AS bucket, "
+            + "COALESCE(SUM(amount_standard), 0), COUNT(*) FROM fact_transactions "
+            + "WHERE transaction_time >= :from AND transaction_time < :to "
+            + "AND (:bankId IS NULL OR bank_id = :bankId) AND (:category IS NULL OR category = :category) "
+            + "GROUP BY date_trunc('%1$s', transaction_time) ORDER BY bucket";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public SeriesRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Totals of the buckets with transactions in [from, to), by bucket start, oldest first.
+     * @param bankId the bank, or {@code null} for all banks
+     * @param category the category, or {@code null} for all categories
+     */
+    public Map<LocalDateTime, BucketTotals> findBucketTotals(BucketUnit unit, LocalDateTime from, LocalDateTime to,
+                                                             String bankId, String category) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", from)
+                .addValue("to", to)
+                .addValue("bankId", bankId, Types.VARCHAR)
+                .addValue("category", category, Types.VARCHAR);
+        Map<LocalDateTime, BucketTotals> buckets = new LinkedHashMap<>();
+        // The unit is one of the enum's names, so it is safe to inline (and lets the planner see a constant)
+        jdbcTemplate.query(String.format(SERIES_SQL_TEMPLATE, unit.sqlName()), params, rs -> {
+            buckets.put(rs.getTimestamp(1).toLocalDateTime(), new BucketTotals(rs.getBigDecimal(2), rs.getLong(3)));
+        });
+        return buckets;
+    }
+}
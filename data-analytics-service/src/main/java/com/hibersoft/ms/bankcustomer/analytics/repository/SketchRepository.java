@@ -0,0 +1,68 @@
+package com.hibersoft.ms.bankcustomer.analytics.repository;
+
+import java.sql.Types;
+import java.time.LocalDate;
+
+import org.apache.datasketches.hll.HllSketch;
+import org.apache.datasketches.hll.Union;
+import org.apache.datasketches.kll.KllDoublesSketch;
+import org.apache.datasketches.memory.Memory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Approximate analytics from {@code sketch_daily}, the HyperLogLog (customer ids) and KLL (amounts)
+ * sketches that the modeling job's writer keeps per bank, category and day. A query merges the cells
+ * of its date range, optionally of one bank and/or one category: a few hundred small blobs for a year
+ * of one bank, whatever the number of facts behind them.
+ */
+@Repository
+public class SketchRepository {
+
+    // Register count of the merged HyperLogLog; matches the sketches written by the modeling service
+    static final int HLL_LG_K = 12;
+
+    static final String FILTER = " FROM sketch_daily WHERE txn_date >= :startDate AND txn_date <= :endDate "
+            + "AND (:bankId IS NULL OR bank_id = :bankId) AND (:category IS NULL OR category = :category)";
+    static final String CUSTOMERS_SQL = "SELECT customers_hll" + FILTER;
+    static final String AMOUNTS_SQL = "SELECT amounts_kll" + FILTER;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public SketchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Union of the customer sketches of the matching cells (empty when none match).
+     * @param bankId the bank, or {@code null} for all banks
+     * @param category the category, or {@code null} for all categories
+     */
+    public HllSketch mergeCustomers(LocalDate startDate, LocalDate endDate, String bankId, String category) {
+        Union union = new Union(HLL_LG_K);
+        jdbcTemplate.query(CUSTOMERS_SQL, params(startDate, endDate, bankId, category),
+                rs -> { union.update(HllSketch.wrap(Memory.wrap(rs.getBytes(1)))); });
+        return union.getResult();
+    }
+
+    /**
+     * Merge of the amount sketches of the matching cells (empty when none match).
+     * @param bankId the bank, or {@code null} for all banks
+     * @param category the category, or {@code null} for all categories
+     */
+    public KllDoublesSketch mergeAmounts(LocalDate startDate, LocalDate endDate, String bankId, String category) {
+        KllDoublesSketch merged = KllDoublesSketch.newHeapInstance();
+        jdbcTemplate.query(AMOUNTS_SQL, params(startDate, endDate, bankId, category),
+                rs -> { merged.merge(KllDoublesSketch.wrap(Memory.wrap(rs.getBytes(1)))); });
+        return merged;
+    }
+
+    private static MapSqlParameterSource params(LocalDate startDate, LocalDate endDate, String bankId, String category) {
+        return new MapSqlParameterSource()
+                .addValue("startDate", startDate)
+                .addValue("endDate", endDate)
+                .addValue("bankId", bankId, Types.VARCHAR)
+                .addValue("category", category, Types.VARCHAR);
+    }
+}
@@ -1,47 +1,106 @@
 package com.hibersoft.ms.bankcustomer.analytics.service;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import org.apache.datasketches.hll.HllSketch;
+import org.apache.datasketches.kll.KllDoublesSketch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.hibersoft.ms.bankcustomer.analytics.repository.FactTransactionRepository;
+import com.hibersoft.ms.bankcustomer.analytics.cache.AnalyticsResultCache;
+import com.hibersoft.ms.bankcustomer.analytics.cache.SeriesBucketCache;
+import com.hibersoft.ms.bankcustomer.analytics.columnar.ColumnarFactStore;
+import com.hibersoft.ms.bankcustomer.analytics.model.AmountQuantiles;
+import com.hibersoft.ms.bankcustomer.analytics.model.BankSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketTotals;
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketUnit;
+import com.hibersoft.ms.bankcustomer.analytics.model.CustomerSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.DistinctCustomersEstimate;
+import com.hibersoft.ms.bankcustomer.analytics.model.LeaderboardCursor;
+import com.hibersoft.ms.bankcustomer.analytics.model.SpendingComparison;
+import com.hibersoft.ms.bankcustomer.analytics.model.SpendingSeries;
+import com.hibersoft.ms.bankcustomer.analytics.model.TopCustomersPage;
+import com.hibersoft.ms.bankcustomer.analytics.repository.AnalyticsQueries;
+import com.hibersoft.ms.bankcustomer.analytics.repository.RollupRepository;
+import com.hibersoft.ms.bankcustomer.analytics.repository.SeriesRepository;
+import com.hibersoft.ms.bankcustomer.analytics.repository.SketchRepository;
 
 @Service
 public class DataAnalyticsService {
 
         private static final Logger log = LoggerFactory.getLogger(DataAnalyticsService.class);
 
+    // Aggregates come from the daily rollups instead of GROUP BY scans of FACT_TRANSACTIONS
     @Autowired
-    private FactTransactionRepository repository;
+    private RollupRepository repository;
+
+    // Approximate distinct counts and quantiles from the daily sketches
+    @Autowired
+    private SketchRepository sketchRepository;
+
+    // In-memory copy of the facts, when app.analytics.columnar.enabled=true; preferred once loaded
+    @Autowired(required = false)
+    private ColumnarFactStore columnarStore;
+
+    // Results are recomputed only after a modeling job wrote facts (or on expiry), and identical
+    // concurrent requests share one computation
+    @Autowired
+    private AnalyticsResultCache resultCache;
+
+    // Spending series are bucketed from the facts; closed buckets are kept until their bank's facts change
+    @Autowired
+    private SeriesRepository seriesRepository;
+
+    @Autowired
+    private SeriesBucketCache seriesCache;
+
+    // Decides which series bucket is still open
+    Clock clock = Clock.systemDefaultZone();
+
+    // Upper bound on a leaderboard page, so a large limit cannot pull every customer into memory
+    static final int MAX_TOP_CUSTOMERS_LIMIT = 1000;
+
+    // Upper bound on the points of a series (more than a year of hours)
+    static final int MAX_SERIES_BUCKETS = 10_000;
 
     /**
-     * Retrieves the top N spending customers within a given time range.
+     * Retrieves one page of the top spending customers within a given time range.
      * @param startDate the start of the time range
      * @param endDate the end of the time range
-     * @param limit the number of top customers to return
-     * @return a map of customer ID to total spending amount
+     * @param limit the number of customers per page, capped at {@value #MAX_TOP_CUSTOMERS_LIMIT}
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     * @return the customers in order of total spending, highest first
+     * @throws IllegalArgumentException if the cursor is malformed
      */
-    public Map<String, BigDecimal> getTopSpendingCustomers(LocalDateTime startDate, LocalDateTime endDate, int limit) {
-        // This repository method returns a List<Object[]>, where Object[0] is customerId and Object[1] is total_spent
-        List<Object[]> results = repository.findTopSpendingCustomers(startDate, endDate);
+    public TopCustomersPage getTopSpendingCustomers(LocalDateTime startDate, LocalDateTime endDate, int limit, String cursor) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_TOP_CUSTOMERS_LIMIT));
+        LeaderboardCursor after = cursor != null && !cursor.isBlank() ? LeaderboardCursor.decode(cursor) : null;
+        return resultCache.get("top-customers", () -> topSpendingCustomers(startDate, endDate, pageSize, after),
+                startDate, endDate, pageSize, after);
+    }
 
-        // Process the results into a readable map and apply the limit
-        return results.stream()
-                .limit(limit)
-                .collect(Collectors.toMap(
-                        result -> (String) result[0], // customerId
-                        result -> (BigDecimal) result[1], // total_spent
-                        (oldValue, newValue) -> oldValue, // handle potential key collisions (unlikely here)
-                        HashMap::new
-                ));
+    private TopCustomersPage topSpendingCustomers(LocalDateTime startDate, LocalDateTime endDate, int pageSize,
+                                                  LeaderboardCursor after) {
+        // One extra row tells whether another page follows without a separate count query
+        List<CustomerSpending> results = queries().findTopSpendingCustomers(startDate, endDate, after, pageSize + 1);
+        if (results.size() <= pageSize) {
+            return new TopCustomersPage(results, null);
+        }
+        List<CustomerSpending> page = results.subList(0, pageSize);
+        return new TopCustomersPage(List.copyOf(page), LeaderboardCursor.after(page.get(pageSize - 1)).encode());
     }
 
     /**
@@ -49,19 +108,22 @@ public class DataAnalyticsService {
      * @return a map of location code to transaction count
      */
     public Map<String, Long> getTransactionCountsByLocation() {
-        // This repository method returns a List<Object[]>, where Object[0] is locationCode and Object[1] is count
-        List<Object[]> results = repository.countTransactionsByLocation();
+        return resultCache.get("counts-by-location", () -> {
+            // This repository method returns a List<Object[]>, where Object[0] is locationCode and Object[1] is count
+            List<Object[]> results = queries().countTransactionsByLocation();
 
-        return results.stream()
-                .collect(Collectors.toMap(
-                        result -> (String) result[0], // locationCode
-                        result -> (Long) result[1]  // count
-                ));
+            return results.stream()
+                    .collect(Collectors.toMap(
+                            result -> (String) result[0], // locationCode
+                            result -> (Long) result[1]  // count
+                    ));
+        });
     }
 
     public Map<String, BigDecimal> getSpendingByCategory() {
+        return resultCache.get("spending-by-category", () -> {
             // Note the casting might need adjustment based on runtime types in Object[]
-            List<Object[]> results = repository.findSpendingByCategory();
+            List<Object[]> results = queries().findSpendingByCategory();
 
             return results.stream()
                             .filter(result -> result[0] != null) // Filter out any rows where the category (result[0])
@@ -70,27 +132,189 @@ public class DataAnalyticsService {
                                             result -> (String) result[0], // Category name
                                             result -> (BigDecimal) result[1] // Sum of amount
                             ));
+        });
+    }
+
+    /**
+     * Average transaction amount of every bank and of the platform, from one grouped query.
+     */
+    public SpendingComparison getSpendingComparison() {
+        return resultCache.get("compare-spending-all", () -> {
+            List<BankSpending> banks = spendingByBank();
+            List<SpendingComparison.BankAverage> averages = banks.stream()
+                    .map(bank -> new SpendingComparison.BankAverage(bank.bankId(),
+                            average(bank.totalSpent(), bank.transactionCount()), bank.transactionCount()))
+                    .toList();
+            long count = banks.stream().mapToLong(BankSpending::transactionCount).sum();
+            return new SpendingComparison(average(total(banks), count), count, averages);
+        });
     }
 
     public Map<String, BigDecimal> getComparativeAverageSpending(String bankId) {
         log.info("Comparing average spending for bankId: {}", bankId);
-        BigDecimal overallAvg = repository.findOverallAverageTransactionAmount();
-        BigDecimal bankAvg = repository.findAverageTransactionAmountByBank(bankId.toUpperCase());
+        return resultCache.get("compare-spending", () -> comparativeAverageSpending(bankId), bankId.toUpperCase());
+    }
+
+    private Map<String, BigDecimal> comparativeAverageSpending(String bankId) {
+        List<BankSpending> banks = spendingByBank();
+        BigDecimal overallAvg = average(total(banks), banks.stream().mapToLong(BankSpending::transactionCount).sum());
+        BigDecimal bankAvg = banks.stream()
+                .filter(bank -> bank.bankId().equals(bankId.toUpperCase()))
+                .findFirst()
+                .map(bank -> average(bank.totalSpent(), bank.transactionCount()))
+                .orElse(BigDecimal.ZERO);
 
         log.debug("Overall Average: {}", overallAvg);
         log.debug("Bank {} Average: {}", bankId, bankAvg);
 
         Map<String, BigDecimal> comparison = new HashMap<>();
-        comparison.put("Overall_Platform_Average", overallAvg != null ? overallAvg : BigDecimal.ZERO);
-        comparison.put(bankId.toUpperCase() + "_Average", bankAvg != null ? bankAvg : BigDecimal.ZERO);
+        comparison.put("Overall_Platform_Average", overallAvg);
+        comparison.put(bankId.toUpperCase() + "_Average", bankAvg);
 
         return comparison;
     }
 
     public BigDecimal getOverallPlatformAverage() {
-        BigDecimal overallAvg = repository.findOverallAverageTransactionAmount();
-        return overallAvg != null ? overallAvg : BigDecimal.ZERO;
+        return resultCache.get("average-spending-overall", () -> {
+            List<BankSpending> banks = spendingByBank();
+            return average(total(banks), banks.stream().mapToLong(BankSpending::transactionCount).sum());
+        });
+    }
+
+    // Per-bank totals behind every average: comparing any number of banks costs this one query
+    private List<BankSpending> spendingByBank() {
+        return resultCache.get("spending-by-bank", () -> List.copyOf(queries().findSpendingByBank()));
     }
 
-    
+    private static BigDecimal total(List<BankSpending> banks) {
+        return banks.stream().map(BankSpending::totalSpent).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    // Zero without transactions
+    static BigDecimal average(BigDecimal total, long count) {
+        return count == 0 ? BigDecimal.ZERO : total.divide(BigDecimal.valueOf(count), MathContext.DECIMAL64);
+    }
+
+    /**
+     * Estimates the number of distinct customers with transactions between two days (inclusive).
+     * @param bankId the bank, or {@code null} for all banks
+     * @param category the category, or {@code null} for all categories
+     * @throws IllegalArgumentException if the range is reversed
+     */
+    public DistinctCustomersEstimate getDistinctCustomers(LocalDate startDate, LocalDate endDate, String bankId, String category) {
+        checkRange(startDate, endDate);
+        String bank = bankId != null ? bankId.toUpperCase() : null;
+        return resultCache.get("distinct-customers", () -> {
+            HllSketch customers = sketchRepository.mergeCustomers(startDate, endDate, bank, category);
+            // Two standard deviations: about 95% confidence
+            return new DistinctCustomersEstimate(Math.round(customers.getEstimate()),
+                    (long) Math.floor(customers.getLowerBound(2)), (long) Math.ceil(customers.getUpperBound(2)));
+        }, startDate, endDate, bank, category);
+    }
+
+    /**
+     * Estimates transaction amount quantiles between two days (inclusive).
+     * @param ranks the ranks to return, each between 0 and 1 (0.5 is the median)
+     * @param bankId the bank, or {@code null} for all banks
+     * @param category the category, or {@code null} for all categories
+     * @throws IllegalArgumentException if the range is reversed or a rank is out of bounds
+     */
+    public AmountQuantiles getAmountQuantiles(LocalDate startDate, LocalDate endDate, List<Double> ranks,
+                                              String bankId, String category) {
+        checkRange(startDate, endDate);
+        for (Double rank : ranks) {
+            if (rank == null || !(rank >= 0 && rank <= 1)) {
+                throw new IllegalArgumentException("Quantile rank must be between 0 and 1: " + rank);
+            }
+        }
+        String bank = bankId != null ? bankId.toUpperCase() : null;
+        List<Double> sortedRanks = ranks.stream().distinct().sorted().toList();
+        return resultCache.get("amount-quantiles", () -> {
+            KllDoublesSketch amounts = sketchRepository.mergeAmounts(startDate, endDate, bank, category);
+            Map<Double, BigDecimal> quantiles = new LinkedHashMap<>();
+            if (!amounts.isEmpty()) {
+                for (Double rank : sortedRanks) {
+                    quantiles.put(rank, BigDecimal.valueOf(amounts.getQuantile(rank)).setScale(2, RoundingMode.HALF_UP));
+                }
+            }
+            return new AmountQuantiles(amounts.getN(), quantiles);
+        }, startDate, endDate, sortedRanks, bank, category);
+    }
+
+    /**
+     * Retrieves spending per time bucket, for every whole bucket overlapping a time range.
+     * <p>
+     * Closed buckets are read from the {@link SeriesBucketCache} and only the buckets from the first one
+     * missing there are queried, so a dashboard refreshing a series recomputes just the open bucket (the
+     * one containing now), which is never cached.
+     * @param metric {@code sum} (total amount) or {@code count} (number of transactions)
+     * @param bankId the bank, or {@code null} for all banks
+     * @param category the category, or {@code null} for all categories
+     * @throws IllegalArgumentException if the metric is unknown, the range is reversed or it has more than
+     * {@value #MAX_SERIES_BUCKETS} buckets
+     */
+    public SpendingSeries getSpendingSeries(BucketUnit unit, String metric, LocalDateTime startDate, LocalDateTime endDate,
+                                            String bankId, String category) {
+        if (!"sum".equals(metric) && !"count".equals(metric)) {
+            throw new IllegalArgumentException("Unknown series metric: " + metric);
+        }
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("endDate " + endDate + " is before startDate " + startDate);
+        }
+        String bank = bankId != null ? bankId.toUpperCase() : null;
+        List<LocalDateTime> bucketStarts = new ArrayList<>();
+        for (LocalDateTime bucket = unit.truncate(startDate); !bucket.isAfter(endDate); bucket = unit.next(bucket)) {
+            if (bucketStarts.size() == MAX_SERIES_BUCKETS) {
+                throw new IllegalArgumentException("Series has more than " + MAX_SERIES_BUCKETS + " buckets");
+            }
+            bucketStarts.add(bucket);
+        }
+
+        // Read before the cache, so totals queried across an invalidation are not cached
+        long generation = seriesCache.generation();
+        LocalDateTime openBucket = unit.truncate(LocalDateTime.now(clock));
+        Map<LocalDateTime, BucketTotals> totals = new HashMap<>();
+        int firstMissing = -1;
+        for (int i = 0; i < bucketStarts.size(); i++) {
+            LocalDateTime bucket = bucketStarts.get(i);
+            BucketTotals cached = bucket.isBefore(openBucket)
+                    ? seriesCache.get(new SeriesBucketCache.Key(unit, bank, category, bucket)) : null;
+            if (cached != null) {
+                totals.put(bucket, cached);
+            } else if (firstMissing < 0) {
+                firstMissing = i;
+            }
+        }
+        if (firstMissing >= 0) {
+            // One range query rather than one per missing bucket: normally only the open bucket is missing
+            Map<LocalDateTime, BucketTotals> queried = seriesRepository.findBucketTotals(unit, bucketStarts.get(firstMissing),
+                    unit.next(bucketStarts.getLast()), bank, category);
+            for (LocalDateTime bucket : bucketStarts.subList(firstMissing, bucketStarts.size())) {
+                BucketTotals bucketTotals = queried.getOrDefault(bucket, BucketTotals.EMPTY);
+                totals.put(bucket, bucketTotals);
+                if (bucket.isBefore(openBucket)) {
+                    seriesCache.put(new SeriesBucketCache.Key(unit, bank, category, bucket), bucketTotals, generation);
+                }
+            }
+        }
+
+        List<SpendingSeries.Point> points = bucketStarts.stream()
+                .map(bucket -> {
+                    BucketTotals bucketTotals = totals.get(bucket);
+                    return new SpendingSeries.Point(bucket, "sum".equals(metric)
+                            ? bucketTotals.totalSpent() : BigDecimal.valueOf(bucketTotals.transactionCount()));
+                })
+                .toList();
+        return new SpendingSeries(unit.sqlName(), metric, points);
+    }
+
+    private static void checkRange(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("endDate " + endDate + " is before startDate " + startDate);
+        }
+    }
+
+    private AnalyticsQueries queries() {
+        return columnarStore != null && columnarStore.isReady() ? columnarStore : repository;
+    }
 }
@@ -0,0 +1,81 @@
+package com.hibersoft.ms.bankcustomer.analytics.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AnalyticsResultCacheTest {
+
+    @Test
+    public void testGet_ConcurrentIdenticalRequestsShareOneComputation() throws Exception {
+        // Arrange
+        MeterRegistry registry = new SimpleMeterRegistry();
+        AnalyticsResultCache cache = new AnalyticsResultCache(100, Duration.ofMinutes(10), registry);
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        // Act: the first caller's query blocks until every other caller has joined it
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> cache.get("spending-by-category", () -> {
+                    queries.incrementAndGet();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "result";
+                })));
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (registry.get("analytics.results").tag("outcome", "coalesced").counter().count() < callers - 1
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("result", result.get(10, TimeUnit.SECONDS));
+            }
+        }
+        String cached = cache.get("spending-by-category", () -> "recomputed");
+
+        // Assert
+        assertEquals(1, queries.get());
+        assertEquals("result", cached);
+        assertEquals(1.0, registry.get("analytics.results").tag("outcome", "computed").counter().count());
+        assertEquals(7.0, registry.get("analytics.results").tag("outcome", "coalesced").counter().count());
+        assertEquals(1.0, registry.get("analytics.results").tag("outcome", "hit").counter().count());
+        assertEquals(0.875, registry.get("analytics.results.coalescing.ratio").gauge().value());
+    }
+
+    @Test
+    public void testGet_FailuresAreNotCached() {
+        // Arrange
+        AnalyticsResultCache cache = new AnalyticsResultCache(100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> cache.get("counts-by-location", () -> {
+            throw new IllegalStateException("database unavailable");
+        }));
+        String retried = cache.get("counts-by-location", () -> "result");
+
+        // Assert
+        assertEquals("result", retried);
+    }
+}
@@ -0,0 +1,39 @@
+package com.hibersoft.ms.bankcustomer.analytics.cache;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketTotals;
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SeriesBucketCacheTest {
+
+    @Test
+    public void testOnFactsUpdated_DropsTheBucketsOfTheBankWhateverCaseItWasNotifiedIn() {
+        // Arrange: the service keys series by the upper-cased bank, a job may have been started as bank_a
+        SeriesBucketCache cache = new SeriesBucketCache(100, new SimpleMeterRegistry());
+        LocalDateTime day = LocalDateTime.parse("2024-03-01T00:00:00");
+        SeriesBucketCache.Key bankA = new SeriesBucketCache.Key(BucketUnit.DAY, "BANK_A", null, day);
+        SeriesBucketCache.Key bankB = new SeriesBucketCache.Key(BucketUnit.DAY, "BANK_B", null, day);
+        SeriesBucketCache.Key allBanks = new SeriesBucketCache.Key(BucketUnit.DAY, null, null, day);
+        BucketTotals totals = new BucketTotals(new BigDecimal("10.00"), 1);
+        for (SeriesBucketCache.Key key : new SeriesBucketCache.Key[] { bankA, bankB, allBanks }) {
+            cache.put(key, totals, cache.generation());
+        }
+
+        // Act
+        cache.onFactsUpdated(new FactsUpdatedEvent("bank_a"));
+
+        // Assert
+        assertNull(cache.get(bankA));
+        assertNull(cache.get(allBanks));
+        assertNotNull(cache.get(bankB));
+    }
+}
@@ -0,0 +1,193 @@
+package com.hibersoft.ms.bankcustomer.analytics.columnar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.hibersoft.ms.bankcustomer.analytics.cache.FactsUpdatedEvent;
+import com.hibersoft.ms.bankcustomer.analytics.model.BankSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.CustomerSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.LeaderboardCursor;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ColumnarFactStoreTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private MeterRegistry registry;
+    private ColumnarFactStore store;
+    // Rebuilds queued by onFactsUpdated, run by the test
+    private final List<Runnable> queuedRebuilds = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:analytics-schema-h2.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        registry = new SimpleMeterRegistry();
+        // Batches of two rows, and no rebuild within a test
+        store = new ColumnarFactStore(jdbcTemplate, registry, 2, Duration.ofDays(1), queuedRebuilds::add);
+
+        fact("BANK_A", "U_1", "2024-03-01T09:00:00", "10.00", "Dining", "L1");
+        fact("BANK_A", "U_1", "2024-03-02T12:00:00", "20.00", "Groceries", "L1");
+        fact("BANK_A", "U_2", "2024-03-02T23:00:00", "100.00", "Dining", "L1");
+        fact("BANK_B", "U_2", "2024-03-03T06:00:00", "1.00", null, "L2");
+        fact("BANK_B", "U_1", "2024-03-03T20:00:00", "500.00", "Shopping", "L2");
+        // Not part of any aggregate, like in the rollups
+        fact("BANK_B", "U_3", null, "999.00", "Shopping", "L3");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testRefresh_LoadsFactsAndAnswersTheRollupQueries() {
+        // Arrange
+        assertFalse(store.isReady());
+
+        // Act
+        store.refresh();
+
+        // Assert
+        assertTrue(store.isReady());
+        assertEquals(List.of(new CustomerSpending("U_2", new BigDecimal("101.00")), new CustomerSpending("U_1", new BigDecimal("20.00"))),
+                store.findTopSpendingCustomers(LocalDateTime.parse("2024-03-01T10:00:00"), LocalDateTime.parse("2024-03-03T06:00:00"), null, 10));
+        assertEquals(Map.of("L1", 3L, "L2", 2L), toMap(store.countTransactionsByLocation()));
+        assertEquals(Map.of("Dining", new BigDecimal("110.00"), "Groceries", new BigDecimal("20.00"), "Shopping", new BigDecimal("500.00")),
+                toMap(store.findSpendingByCategory()));
+        assertEquals(List.of(new BankSpending("BANK_A", new BigDecimal("130.00"), 3), new BankSpending("BANK_B", new BigDecimal("501.00"), 2)),
+                store.findSpendingByBank());
+        assertEquals(5.0, registry.get("analytics.columnar.rows").gauge().value());
+        assertTrue(registry.get("analytics.columnar.bytes.per.row").gauge().value() >= FactColumns.BYTES_PER_ROW);
+    }
+
+    @Test
+    public void testRefresh_AppendsOnlyFactsPastTheHighestLoadedId() {
+        // Arrange
+        store.refresh();
+        List<Object[]> before = store.countTransactionsByLocation();
+
+        // Act
+        fact("BANK_C", "U_4", "2024-03-04T08:00:00", "7.50", "Dining", "L4");
+        store.refresh();
+
+        // Assert: the earlier snapshot's answers do not change, the new one sees the new fact
+        assertEquals(Map.of("L1", 3L, "L2", 2L), toMap(before));
+        assertEquals(Map.of("L1", 3L, "L2", 2L, "L4", 1L), toMap(store.countTransactionsByLocation()));
+        assertEquals(new BankSpending("BANK_C", new BigDecimal("7.50"), 1), store.findSpendingByBank().get(2));
+    }
+
+    @Test
+    public void testOnFactsUpdated_StaleUntilTheQueuedRebuildSeesTheUpsertedAmount() {
+        // Arrange
+        store.refresh();
+        jdbcTemplate.update("UPDATE fact_transactions SET amount_standard = 30.00 WHERE customer_id = 'U_1' AND category = 'Groceries'");
+        store.refresh(); // A scheduled refresh only appends new ids, so it cannot see the upsert
+
+        // Act
+        store.onFactsUpdated(new FactsUpdatedEvent("BANK_A"));
+        boolean readyBeforeRebuild = store.isReady();
+        runQueuedRebuilds();
+
+        // Assert: the event itself only marks the snapshot stale, queries use the rollups until the rebuild ran
+        assertFalse(readyBeforeRebuild);
+        assertTrue(store.isReady());
+        assertEquals(new BankSpending("BANK_A", new BigDecimal("140.00"), 3), store.findSpendingByBank().get(0));
+        assertEquals(5.0, registry.get("analytics.columnar.rows").gauge().value());
+    }
+
+    @Test
+    public void testOnFactsUpdated_CoalescesEventsIntoOneQueuedRebuild() {
+        // Arrange
+        store.refresh();
+
+        // Act: one event per bank of a start-all, plus a reconnect
+        store.onFactsUpdated(new FactsUpdatedEvent("BANK_A"));
+        store.onFactsUpdated(new FactsUpdatedEvent("BANK_B"));
+        store.onFactsUpdated(new FactsUpdatedEvent(null));
+        int queued = queuedRebuilds.size();
+        runQueuedRebuilds();
+
+        // Assert
+        assertEquals(1, queued);
+        assertTrue(store.isReady());
+    }
+
+    @Test
+    public void testOnFactsUpdated_StaleSnapshotIsNotUsedWhenTheRebuildFails() {
+        // Arrange
+        store.refresh();
+        jdbcTemplate.execute("ALTER TABLE fact_transactions RENAME TO fact_transactions_moved");
+
+        // Act
+        store.onFactsUpdated(new FactsUpdatedEvent(null));
+        runQueuedRebuilds();
+        boolean readyAfterFailedRebuild = store.isReady();
+        jdbcTemplate.execute("ALTER TABLE fact_transactions_moved RENAME TO fact_transactions");
+        store.refresh();
+
+        // Assert
+        assertFalse(readyAfterFailedRebuild);
+        assertTrue(store.isReady());
+    }
+
+    @Test
+    public void testFindTopSpendingCustomers_PagesByKeysetWithTiesOrderedByCustomer() {
+        // Arrange
+        fact("BANK_A", "U_0", "2024-03-02T10:00:00", "100.00", "Dining", "L1");
+        store.refresh();
+        LocalDateTime start = LocalDateTime.parse("2024-03-02T00:00:00");
+        LocalDateTime end = LocalDateTime.parse("2024-03-02T23:59:59");
+
+        // Act
+        List<CustomerSpending> first = store.findTopSpendingCustomers(start, end, null, 1);
+        List<CustomerSpending> rest = store.findTopSpendingCustomers(start, end, LeaderboardCursor.after(first.get(0)), 10);
+
+        // Assert
+        assertEquals(List.of(new CustomerSpending("U_0", new BigDecimal("100.00"))), first);
+        assertEquals(List.of(new CustomerSpending("U_2", new BigDecimal("100.00")), new CustomerSpending("U_1", new BigDecimal("20.00"))), rest);
+    }
+
+    private void runQueuedRebuilds() {
+        List<Runnable> rebuilds = new ArrayList<>(queuedRebuilds);
+        queuedRebuilds.clear();
+        rebuilds.forEach(Runnable::run);
+    }
+
+    private static <V> Map<String, V> toMap(List<Object[]> rows) {
+        return rows.stream().collect(Collectors.toMap(row -> (String) row[0], row -> {
+            @SuppressWarnings("unchecked")
+            V value = (V) row[1];
+            return value;
+        }));
+    }
+
+    private void fact(String bankId, String customerId, String time, String amount, String category, String locationCode) {
+        jdbcTemplate.update("INSERT INTO fact_transactions (bank_id, customer_id, transaction_time, amount_standard, category, location_code) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", bankId, customerId, time != null ? LocalDateTime.parse(time) : null,
+                new BigDecimal(amount), category, locationCode);
+    }
+}
@@ -0,0 +1,110 @@
+package com.hibersoft.ms.bankcustomer.analytics.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class FactExporterTest {
+
+    private EmbeddedDatabase database;
+    private FactExporter exporter;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:analytics-schema-h2.sql")
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.update("INSERT INTO fact_transactions (bank_id, source_transaction_id, customer_id, transaction_time, "
+                + "amount_standard, description_standard, location_code, transaction_type, is_valid, category) VALUES "
+                + "('BANK_A', 'ACC1', 'U_1', TIMESTAMP '2024-03-01 09:00:00', 12.50, 'Corner \"Shop\", Main St', 'L1', 'DEBIT', TRUE, 'Groceries'), "
+                + "('BANK_A', 'ACC2', 'U_2', TIMESTAMP '2024-03-31 23:59:59', 40.00, NULL, 'L2', 'DEBIT', TRUE, 'Dining'), "
+                + "('BANK_A', 'ACC3', 'U_1', TIMESTAMP '2024-04-01 00:00:00', 7.00, 'Bus', 'L1', 'DEBIT', TRUE, 'Transport'), "
+                + "('BANK_B', 'ACC1', 'U_9', TIMESTAMP '2024-03-15 12:00:00', 99.99, 'Hotel', 'L3', 'DEBIT', FALSE, 'Other')");
+        // A fetch size below the row count, so that the cursor is read in several fetches
+        exporter = new FactExporter(database, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testExport_WritesOneJsonObjectPerMatchingFact() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act: March of BANK_A, end day inclusive
+        long rows = exporter.export("BANK_A", null, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), ExportFormat.NDJSON, out);
+
+        // Assert
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(2, rows);
+        assertEquals(2, lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+        List<JsonNode> facts = List.of(mapper.readTree(lines.get(0)), mapper.readTree(lines.get(1)));
+        assertEquals(List.of("ACC1", "ACC2"), facts.stream().map(fact -> fact.get("source_transaction_id").asText()).sorted().toList());
+        JsonNode first = facts.stream().filter(fact -> fact.get("source_transaction_id").asText().equals("ACC1")).findFirst().orElseThrow();
+        assertEquals("2024-03-01T09:00", first.get("transaction_time").asText());
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"amount_standard\":12.50,")));
+        assertEquals("Corner \"Shop\", Main St", first.get("description_standard").asText());
+        assertTrue(first.get("is_valid").asBoolean());
+        assertTrue(first.get("customer_segment").isNull());
+    }
+
+    @Test
+    public void testExport_WritesCsvWithHeaderQuotedTextAndEmptyNulls() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows = exporter.export(null, "Groceries", null, null, ExportFormat.CSV, out);
+
+        // Assert
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(1, rows);
+        assertEquals(String.join(",", FactExporter.COLUMNS), lines.get(0));
+        assertTrue(lines.get(1).endsWith(",\"BANK_A\",\"ACC1\",\"U_1\",2024-03-01T09:00,12.50,\"Corner \"\"Shop\"\", Main St\","
+                + "\"L1\",\"DEBIT\",true,\"Groceries\","), lines.get(1));
+    }
+
+    @Test
+    public void testExport_StopsWhenTheClientGoesAway() {
+        // Arrange: a client that disconnects on the first write
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // Act / Assert
+        assertThrows(IOException.class, () -> exporter.export(null, null, null, null, ExportFormat.NDJSON, disconnected));
+    }
+}
@@ -0,0 +1,128 @@
+package com.hibersoft.ms.bankcustomer.analytics.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.hibersoft.ms.bankcustomer.analytics.model.BankSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.CustomerSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.LeaderboardCursor;
+
+public class RollupRepositoryTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private RollupRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:analytics-schema-h2.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        repository = new RollupRepository(new NamedParameterJdbcTemplate(database));
+
+        // Facts of 1-3 March 2024 and the rollups the modeling writer keeps for them
+        fact("U_1", "2024-03-01T09:00:00", "10.00");
+        fact("U_1", "2024-03-02T12:00:00", "20.00");
+        fact("U_2", "2024-03-02T23:00:00", "100.00");
+        fact("U_2", "2024-03-03T06:00:00", "1.00");
+        fact("U_1", "2024-03-03T20:00:00", "500.00");
+        jdbcTemplate.update("INSERT INTO rollup_customer_daily VALUES ('U_1', DATE '2024-03-01', 10.00, 1), "
+                + "('U_1', DATE '2024-03-02', 20.00, 1), ('U_2', DATE '2024-03-02', 100.00, 1), "
+                + "('U_2', DATE '2024-03-03', 1.00, 1), ('U_1', DATE '2024-03-03', 500.00, 1)");
+        jdbcTemplate.update("INSERT INTO rollup_location_daily VALUES ('L1', DATE '2024-03-01', 10.00, 1), "
+                + "('L1', DATE '2024-03-02', 120.00, 2), ('L2', DATE '2024-03-03', 501.00, 2)");
+        jdbcTemplate.update("INSERT INTO rollup_bank_daily VALUES ('BANK_A', DATE '2024-03-01', 10.00, 1), "
+                + "('BANK_A', DATE '2024-03-02', 120.00, 2), ('BANK_B', DATE '2024-03-03', 501.00, 2)");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testFindTopSpendingCustomers_CombinesWholeDayRollupsWithPartialEdgeDays() {
+        // Act: 1 March from 10:00 (partial), 2 March (whole day), 3 March up to 06:00 (partial)
+        List<CustomerSpending> results = repository.findTopSpendingCustomers(
+                LocalDateTime.parse("2024-03-01T10:00:00"), LocalDateTime.parse("2024-03-03T06:00:00"), null, 10);
+
+        // Assert
+        assertEquals(List.of(new CustomerSpending("U_2", new BigDecimal("101.00")),
+                new CustomerSpending("U_1", new BigDecimal("20.00"))), results);
+    }
+
+    @Test
+    public void testFindTopSpendingCustomers_ReadsFactsOnlyWithinASingleDay() {
+        // Act
+        List<CustomerSpending> results = repository.findTopSpendingCustomers(
+                LocalDateTime.parse("2024-03-02T11:00:00"), LocalDateTime.parse("2024-03-02T23:00:00"), null, 10);
+
+        // Assert
+        assertEquals(List.of(new CustomerSpending("U_2", new BigDecimal("100.00")),
+                new CustomerSpending("U_1", new BigDecimal("20.00"))), results);
+    }
+
+    @Test
+    public void testFindTopSpendingCustomers_PagesByKeysetWithTiesOrderedByCustomer() {
+        // Arrange: U_3 ties with U_2 on the whole of 2 March
+        jdbcTemplate.update("INSERT INTO rollup_customer_daily VALUES ('U_3', DATE '2024-03-02', 100.00, 1)");
+        LocalDateTime start = LocalDateTime.parse("2024-03-02T00:00:00");
+        LocalDateTime end = LocalDateTime.parse("2024-03-03T00:00:00");
+
+        // Act
+        List<CustomerSpending> first = repository.findTopSpendingCustomers(start, end, null, 1);
+        List<CustomerSpending> second = repository.findTopSpendingCustomers(start, end, LeaderboardCursor.after(first.get(0)), 1);
+        List<CustomerSpending> rest = repository.findTopSpendingCustomers(start, end, LeaderboardCursor.after(second.get(0)), 10);
+
+        // Assert
+        assertEquals(List.of(new CustomerSpending("U_2", new BigDecimal("100.00"))), first);
+        assertEquals(List.of(new CustomerSpending("U_3", new BigDecimal("100.00"))), second);
+        assertEquals(List.of(new CustomerSpending("U_1", new BigDecimal("20.00"))), rest);
+    }
+
+    @Test
+    public void testRollupWindow_MidnightBoundsAreWholeDays() {
+        // Act
+        RollupWindow window = RollupWindow.of(LocalDateTime.parse("2024-03-01T00:00:00"), LocalDateTime.parse("2024-03-03T00:00:00"));
+
+        // Assert: 1-2 March from the rollups, only the instant 3 March 00:00 from the facts
+        assertEquals(LocalDate.parse("2024-03-01"), window.firstDay());
+        assertEquals(LocalDate.parse("2024-03-03"), window.endDay());
+        assertEquals(window.headStart(), window.headEnd());
+        assertEquals(LocalDateTime.parse("2024-03-03T00:00:00"), window.tailStart());
+    }
+
+    @Test
+    public void testAggregates_AreSummedOverDays() {
+        // Act
+        List<Object[]> counts = repository.countTransactionsByLocation();
+        List<BankSpending> banks = repository.findSpendingByBank();
+
+        // Assert
+        assertEquals(2, counts.size());
+        assertEquals(3L, counts.stream().filter(row -> "L1".equals(row[0])).findFirst().orElseThrow()[1]);
+        assertEquals(List.of(new BankSpending("BANK_A", new BigDecimal("130.00"), 3), new BankSpending("BANK_B", new BigDecimal("501.00"), 2)),
+                banks);
+    }
+
+    private void fact(String customerId, String time, String amount) {
+        jdbcTemplate.update("INSERT INTO fact_transactions (bank_id, customer_id, transaction_time, amount_standard) VALUES (?, ?, ?, ?)",
+                "BANK_A", customerId, LocalDateTime.parse(time), new BigDecimal(amount));
+    }
+}
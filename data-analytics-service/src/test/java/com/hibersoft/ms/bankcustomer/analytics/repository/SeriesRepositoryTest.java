@@ -0,0 +1,74 @@
+package com.hibersoft.ms.bankcustomer.analytics.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketTotals;
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketUnit;
+
+public class SeriesRepositoryTest {
+
+    private static final LocalDateTime MARCH_1 = LocalDateTime.of(2024, 3, 1, 0, 0);
+
+    private EmbeddedDatabase database;
+    private SeriesRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:analytics-schema-h2.sql")
+                .build();
+        new JdbcTemplate(database).update("INSERT INTO fact_transactions (bank_id, source_transaction_id, customer_id, "
+                + "transaction_time, amount_standard, category) VALUES "
+                + "('BANK_A', 'T1', 'U_1', TIMESTAMP '2024-03-01 09:05:00', 10.00, 'Groceries'), "
+                + "('BANK_A', 'T2', 'U_2', TIMESTAMP '2024-03-01 09:55:00', 5.50, 'Dining'), "
+                + "('BANK_A', 'T3', 'U_1', TIMESTAMP '2024-03-01 11:00:00', 7.00, 'Groceries'), "
+                + "('BANK_B', 'T1', 'U_9', TIMESTAMP '2024-03-01 09:30:00', 100.00, 'Groceries'), "
+                + "('BANK_A', 'T4', 'U_1', TIMESTAMP '2024-03-02 08:00:00', 1.00, 'Groceries')");
+        repository = new SeriesRepository(new NamedParameterJdbcTemplate(database));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testFindBucketTotals_GroupsByHourWithinTheRange() {
+        // Act: 1 March only, BANK_A
+        Map<LocalDateTime, BucketTotals> hours = repository.findBucketTotals(BucketUnit.HOUR, MARCH_1, MARCH_1.plusDays(1),
+                "BANK_A", null);
+
+        // Assert: empty hours are absent
+        assertEquals(List.of(MARCH_1.withHour(9), MARCH_1.withHour(11)), List.copyOf(hours.keySet()));
+        assertEquals(new BucketTotals(new BigDecimal("15.50"), 2), hours.get(MARCH_1.withHour(9)));
+        assertEquals(new BucketTotals(new BigDecimal("7.00"), 1), hours.get(MARCH_1.withHour(11)));
+    }
+
+    @Test
+    public void testFindBucketTotals_GroupsByDayAcrossBanks() {
+        // Act
+        Map<LocalDateTime, BucketTotals> days = repository.findBucketTotals(BucketUnit.DAY, MARCH_1, MARCH_1.plusDays(7),
+                null, "Groceries");
+
+        // Assert
+        assertEquals(List.of(MARCH_1, MARCH_1.plusDays(1)), List.copyOf(days.keySet()));
+        assertEquals(new BucketTotals(new BigDecimal("117.00"), 3), days.get(MARCH_1));
+        assertEquals(new BucketTotals(new BigDecimal("1.00"), 1), days.get(MARCH_1.plusDays(1)));
+    }
+}
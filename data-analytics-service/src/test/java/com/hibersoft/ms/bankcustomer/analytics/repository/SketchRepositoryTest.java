@@ -0,0 +1,86 @@
+package com.hibersoft.ms.bankcustomer.analytics.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+
+import org.apache.datasketches.hll.HllSketch;
+import org.apache.datasketches.kll.KllDoublesSketch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+public class SketchRepositoryTest {
+
+    private static final LocalDate MARCH_1 = LocalDate.of(2024, 3, 1);
+    private static final LocalDate MARCH_2 = LocalDate.of(2024, 3, 2);
+    private static final LocalDate MARCH_3 = LocalDate.of(2024, 3, 3);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private SketchRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:analytics-schema-h2.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        repository = new SketchRepository(new NamedParameterJdbcTemplate(database));
+
+        // Customers C0..C999 of BANK_A on 1 March, C500..C1499 on 2 March; BANK_B's C0..C99 on 3 March
+        cell("BANK_A", "Groceries", MARCH_1, 0, 1000);
+        cell("BANK_A", "Dining", MARCH_2, 500, 1500);
+        cell("BANK_B", "Groceries", MARCH_3, 0, 100);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testMergeCustomers_CountsCustomersSeenOnSeveralDaysOnce() {
+        // Act
+        HllSketch bankA = repository.mergeCustomers(MARCH_1, MARCH_3, "BANK_A", null);
+        HllSketch groceries = repository.mergeCustomers(MARCH_1, MARCH_3, null, "Groceries");
+        HllSketch none = repository.mergeCustomers(MARCH_3, MARCH_3, "BANK_A", null);
+
+        // Assert: within 5%, far above the HyperLogLog's standard error
+        assertEquals(1500, bankA.getEstimate(), 75);
+        assertEquals(1000, groceries.getEstimate(), 50);
+        assertTrue(none.isEmpty());
+    }
+
+    @Test
+    public void testMergeAmounts_MergesTheCellsOfTheRange() {
+        // Act
+        KllDoublesSketch amounts = repository.mergeAmounts(MARCH_1, MARCH_2, null, null);
+
+        // Assert: amounts 0..999 and 500..1499, so the median of the 2000 values is about 750
+        assertEquals(2000, amounts.getN());
+        assertEquals(0.0, amounts.getMinItem());
+        assertEquals(1499.0, amounts.getMaxItem());
+        assertEquals(750.0, amounts.getQuantile(0.5), 40);
+    }
+
+    // One cell holding customers C<from>..C<to - 1>, each with one transaction of amount <n>
+    private void cell(String bankId, String category, LocalDate day, int from, int to) {
+        HllSketch customers = new HllSketch(SketchRepository.HLL_LG_K);
+        KllDoublesSketch amounts = KllDoublesSketch.newHeapInstance();
+        for (int n = from; n < to; n++) {
+            customers.update("C" + n);
+            amounts.update(n);
+        }
+        jdbcTemplate.update("INSERT INTO sketch_daily VALUES (?, ?, ?, ?, ?)", bankId, category, day,
+                customers.toCompactByteArray(), amounts.toByteArray());
+    }
+}
@@ -1,20 +1,46 @@
 package com.hibersoft.ms.bankcustomer.analytics.service;
 
-import com.hibersoft.ms.bankcustomer.analytics.repository.FactTransactionRepository;
+import com.hibersoft.ms.bankcustomer.analytics.cache.AnalyticsResultCache;
+import com.hibersoft.ms.bankcustomer.analytics.cache.FactsUpdatedEvent;
+import com.hibersoft.ms.bankcustomer.analytics.cache.SeriesBucketCache;
+import com.hibersoft.ms.bankcustomer.analytics.model.AmountQuantiles;
+import com.hibersoft.ms.bankcustomer.analytics.model.BankSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketTotals;
+import com.hibersoft.ms.bankcustomer.analytics.model.BucketUnit;
+import com.hibersoft.ms.bankcustomer.analytics.model.CustomerSpending;
+import com.hibersoft.ms.bankcustomer.analytics.model.LeaderboardCursor;
+import com.hibersoft.ms.bankcustomer.analytics.model.SpendingComparison;
+import com.hibersoft.ms.bankcustomer.analytics.model.SpendingSeries;
+import com.hibersoft.ms.bankcustomer.analytics.model.TopCustomersPage;
+import com.hibersoft.ms.bankcustomer.analytics.repository.RollupRepository;
+import com.hibersoft.ms.bankcustomer.analytics.repository.SeriesRepository;
+import com.hibersoft.ms.bankcustomer.analytics.repository.SketchRepository;
+import org.apache.datasketches.kll.KllDoublesSketch;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,35 +50,54 @@ public class DataAnalyticsServiceTest {
     private DataAnalyticsService analyticsService;
 
     @Mock
-    private FactTransactionRepository repository;
+    private RollupRepository repository;
+
+    @Mock
+    private SketchRepository sketchRepository;
+
+    @Mock
+    private SeriesRepository seriesRepository;
+
+    @Spy
+    private AnalyticsResultCache resultCache = new AnalyticsResultCache(100, Duration.ofMinutes(10), new SimpleMeterRegistry());
+
+    @Spy
+    private SeriesBucketCache seriesCache = new SeriesBucketCache(1000, new SimpleMeterRegistry());
 
     @Test
-    public void testGetTopSpendingCustomers_ReturnsMappedResults() {
+    public void testGetTopSpendingCustomers_ReturnsOrderedPageWithCursor() {
         // Arrange
         LocalDateTime start = LocalDateTime.MIN;
         LocalDateTime end = LocalDateTime.MAX;
         int limit = 2;
 
-        // Mock the repository response: List<Object[]> where Object[0] is customerId, Object[1] is total_spent
-        List<Object[]> mockResults = Arrays.asList(
-            new Object[]{"U_CUST_1", new BigDecimal("550.75")},
-            new Object[]{"U_CUST_2", new BigDecimal("400.00")},
-            new Object[]{"U_CUST_3", new BigDecimal("300.00")} // This should be limited out
-        );
-        
-        // This cast is necessary due to Java generics in the service method
-        List<Object[]> resultsToReturn = (List<Object[]>) (List<?>) mockResults;
-        
-        when(repository.findTopSpendingCustomers(start, end)).thenReturn(resultsToReturn);
+        // The service asks for one row more than the page to know whether another page follows
+        when(repository.findTopSpendingCustomers(start, end, null, limit + 1)).thenReturn(List.of(
+            new CustomerSpending("U_CUST_1", new BigDecimal("550.75")),
+            new CustomerSpending("U_CUST_2", new BigDecimal("400.00")),
+            new CustomerSpending("U_CUST_3", new BigDecimal("300.00"))
+        ));
+        LeaderboardCursor after = new LeaderboardCursor(new BigDecimal("400.00"), "U_CUST_2");
+        when(repository.findTopSpendingCustomers(start, end, after, limit + 1)).thenReturn(List.of(
+            new CustomerSpending("U_CUST_3", new BigDecimal("300.00"))
+        ));
 
         // Act
-        Map<String, BigDecimal> topCustomers = analyticsService.getTopSpendingCustomers(start, end, limit);
+        TopCustomersPage firstPage = analyticsService.getTopSpendingCustomers(start, end, limit, null);
+        TopCustomersPage lastPage = analyticsService.getTopSpendingCustomers(start, end, limit, firstPage.nextCursor());
 
         // Assert
-        assertNotNull(topCustomers);
-        assertEquals(limit, topCustomers.size()); // Verify limit applied
-        assertEquals(new BigDecimal("550.75"), topCustomers.get("U_CUST_1"));
-        assertEquals(new BigDecimal("400.00"), topCustomers.get("U_CUST_2"));
+        assertEquals(List.of("U_CUST_1", "U_CUST_2"), firstPage.customers().stream().map(CustomerSpending::customerId).toList());
+        assertEquals(new BigDecimal("550.75"), firstPage.customers().get(0).totalSpent());
+        assertNotNull(firstPage.nextCursor());
+        assertEquals(List.of(new CustomerSpending("U_CUST_3", new BigDecimal("300.00"))), lastPage.customers());
+        assertNull(lastPage.nextCursor());
+    }
+
+    @Test
+    public void testGetTopSpendingCustomers_RejectsMalformedCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> analyticsService.getTopSpendingCustomers(LocalDateTime.MIN, LocalDateTime.MAX, 5, "bm90LWEtY3Vyc29y"));
     }
 
     @Test
@@ -78,4 +123,104 @@ public class DataAnalyticsServiceTest {
         assertEquals(150L, countsByLocation.get("L1"));
         assertEquals(80L, countsByLocation.get("L2"));
     }
+
+    @Test
+    public void testGetOverallPlatformAverage_IsCachedUntilFactsAreUpdated() {
+        // Arrange
+        when(repository.findSpendingByBank())
+                .thenReturn(List.of(new BankSpending("BANK_A", new BigDecimal("100.00"), 10)))
+                .thenReturn(List.of(new BankSpending("BANK_A", new BigDecimal("120.00"), 10)));
+
+        // Act
+        BigDecimal first = analyticsService.getOverallPlatformAverage();
+        BigDecimal cached = analyticsService.getOverallPlatformAverage();
+        resultCache.onFactsUpdated(new FactsUpdatedEvent("BANK_A"));
+        BigDecimal refreshed = analyticsService.getOverallPlatformAverage();
+
+        // Assert
+        assertEquals(new BigDecimal("10.00"), first);
+        assertEquals(new BigDecimal("10.00"), cached);
+        assertEquals(new BigDecimal("12.00"), refreshed);
+        verify(repository, times(2)).findSpendingByBank();
+    }
+
+    @Test
+    public void testCompareSpending_DerivesEveryAverageFromOneQuery() {
+        // Arrange
+        when(repository.findSpendingByBank()).thenReturn(List.of(
+                new BankSpending("BANK_A", new BigDecimal("130.00"), 3),
+                new BankSpending("BANK_B", new BigDecimal("501.00"), 2)));
+
+        // Act
+        SpendingComparison all = analyticsService.getSpendingComparison();
+        Map<String, BigDecimal> bankA = analyticsService.getComparativeAverageSpending("bank_a");
+        Map<String, BigDecimal> unknown = analyticsService.getComparativeAverageSpending("BANK_X");
+
+        // Assert
+        assertEquals(0, new BigDecimal("126.20").compareTo(all.overallAverage()));
+        assertEquals(5, all.transactionCount());
+        assertEquals(List.of("BANK_A", "BANK_B"), all.banks().stream().map(SpendingComparison.BankAverage::bankId).toList());
+        assertEquals(0, new BigDecimal("250.50").compareTo(all.banks().get(1).average()));
+        assertEquals(new BigDecimal("43.33"), bankA.get("BANK_A_Average").setScale(2, RoundingMode.HALF_UP));
+        assertEquals(0, new BigDecimal("126.20").compareTo(bankA.get("Overall_Platform_Average")));
+        assertEquals(BigDecimal.ZERO, unknown.get("BANK_X_Average"));
+        verify(repository, times(1)).findSpendingByBank();
+    }
+
+    @Test
+    public void testGetAmountQuantiles_ReturnsRequestedRanksInOrder() {
+        // Arrange
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end = LocalDate.of(2024, 1, 31);
+        KllDoublesSketch amounts = KllDoublesSketch.newHeapInstance();
+        for (int amount = 1; amount <= 100; amount++) {
+            amounts.update(amount);
+        }
+        when(sketchRepository.mergeAmounts(start, end, "BANK_A", null)).thenReturn(amounts);
+
+        // Act
+        AmountQuantiles quantiles = analyticsService.getAmountQuantiles(start, end, List.of(0.9, 0.5), "bank_a", null);
+
+        // Assert: below k items the sketch is exact
+        assertEquals(100, quantiles.count());
+        assertEquals(List.of(0.5, 0.9), List.copyOf(quantiles.quantiles().keySet()));
+        assertEquals(new BigDecimal("50.00"), quantiles.quantiles().get(0.5));
+        assertEquals(new BigDecimal("90.00"), quantiles.quantiles().get(0.9));
+        assertThrows(IllegalArgumentException.class,
+                () -> analyticsService.getAmountQuantiles(start, end, List.of(1.5), null, null));
+    }
+
+    @Test
+    public void testGetSpendingSeries_RequeriesOnlyTheOpenBucket() {
+        // Arrange: it is 1 March, 10:30, and the series covers 08:00 to 10:59
+        LocalDateTime march1 = LocalDateTime.of(2024, 3, 1, 0, 0);
+        analyticsService.clock = Clock.fixed(march1.withHour(10).withMinute(30).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        LocalDateTime start = march1.withHour(8);
+        LocalDateTime end = march1.withHour(10).withMinute(59);
+        when(seriesRepository.findBucketTotals(BucketUnit.HOUR, start, march1.withHour(11), "BANK_A", null)).thenReturn(Map.of(
+            march1.withHour(9), new BucketTotals(new BigDecimal("15.50"), 2),
+            march1.withHour(10), new BucketTotals(new BigDecimal("4.00"), 1)
+        ));
+        when(seriesRepository.findBucketTotals(BucketUnit.HOUR, march1.withHour(10), march1.withHour(11), "BANK_A", null))
+            .thenReturn(Map.of(march1.withHour(10), new BucketTotals(new BigDecimal("6.00"), 2)));
+
+        // Act
+        SpendingSeries first = analyticsService.getSpendingSeries(BucketUnit.HOUR, "sum", start, end, "bank_a", null);
+        SpendingSeries second = analyticsService.getSpendingSeries(BucketUnit.HOUR, "count", start, end, "BANK_A", null);
+        seriesCache.onFactsUpdated(new FactsUpdatedEvent("BANK_A"));
+        analyticsService.getSpendingSeries(BucketUnit.HOUR, "sum", start, end, "BANK_A", null);
+
+        // Assert: the 08:00 bucket has no transactions; the closed buckets are cached until BANK_A's facts change
+        assertEquals(List.of(
+            new SpendingSeries.Point(march1.withHour(8), BigDecimal.ZERO),
+            new SpendingSeries.Point(march1.withHour(9), new BigDecimal("15.50")),
+            new SpendingSeries.Point(march1.withHour(10), new BigDecimal("4.00"))
+        ), first.points());
+        assertEquals(List.of(BigDecimal.ZERO, BigDecimal.valueOf(2), BigDecimal.valueOf(2)),
+            second.points().stream().map(SpendingSeries.Point::value).toList());
+        verify(seriesRepository, times(2)).findBucketTotals(BucketUnit.HOUR, start, march1.withHour(11), "BANK_A", null);
+        verify(seriesRepository, times(1)).findBucketTotals(BucketUnit.HOUR, march1.withHour(10), march1.withHour(11), "BANK_A", null);
+        assertThrows(IllegalArgumentException.class,
+            () -> analyticsService.getSpendingSeries(BucketUnit.HOUR, "avg", start, end, null, null));
+    }
 }
@@ -0,0 +1,57 @@
+-- Tables read by the analytics service (see datamodelingdb.sql)
+
+CREATE TABLE fact_transactions (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    bank_id VARCHAR(255),
+    source_transaction_id VARCHAR(255),
+    customer_id VARCHAR(255),
+    transaction_time TIMESTAMP,
+    amount_standard NUMERIC(19, 2),
+    description_standard VARCHAR(255),
+    location_code VARCHAR(255),
+    transaction_type VARCHAR(255),
+    is_valid BOOLEAN,
+    category VARCHAR(255),
+    customer_segment VARCHAR(255)
+);
+
+CREATE TABLE rollup_customer_daily (
+    customer_id VARCHAR(255) NOT NULL,
+    txn_date DATE NOT NULL,
+    amount_sum NUMERIC(38, 2) NOT NULL,
+    txn_count BIGINT NOT NULL,
+    PRIMARY KEY (customer_id, txn_date)
+);
+
+CREATE TABLE rollup_category_daily (
+    category VARCHAR(255) NOT NULL,
+    txn_date DATE NOT NULL,
+    amount_sum NUMERIC(38, 2) NOT NULL,
+    txn_count BIGINT NOT NULL,
+    PRIMARY KEY (category, txn_date)
+);
+
+CREATE TABLE rollup_location_daily (
+    location_code VARCHAR(255) NOT NULL,
+    txn_date DATE NOT NULL,
+    amount_sum NUMERIC(38, 2) NOT NULL,
+    txn_count BIGINT NOT NULL,
+    PRIMARY KEY (location_code, txn_date)
+);
+
+CREATE TABLE rollup_bank_daily (
+    bank_id VARCHAR(255) NOT NULL,
+    txn_date DATE NOT NULL,
+    amount_sum NUMERIC(38, 2) NOT NULL,
+    txn_count BIGINT NOT NULL,
+    PRIMARY KEY (bank_id, txn_date)
+);
+
+CREATE TABLE sketch_daily (
+    bank_id VARCHAR(255) NOT NULL,
+    category VARCHAR(255) NOT NULL,
+    txn_date DATE NOT NULL,
+    customers_hll VARBINARY NOT NULL,
+    amounts_kll VARBINARY NOT NULL,
+    PRIMARY KEY (bank_id, category, txn_date)
+);
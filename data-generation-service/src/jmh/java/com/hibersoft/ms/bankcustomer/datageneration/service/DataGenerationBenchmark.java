@@ -0,0 +1,54 @@
+package com.hibersoft.ms.bankcustomer.datageneration.service;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.hibersoft.ms.bankcustomer.datageneration.model.GenerationResult;
+
+/**
+ * Per-row cost of building the generated transactions in {@link DataGenerationService#generateData}
+ * (ids, amounts, dates and batch arguments), with the database round trips stubbed out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DataGenerationBenchmark {
+
+    private static final int RECORDS = 10_000;
+
+    private DataGenerationService service;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        service = new DataGenerationService();
+        Field jdbcTemplate = DataGenerationService.class.getDeclaredField("jdbcTemplate");
+        jdbcTemplate.setAccessible(true);
+        jdbcTemplate.set(service, new DiscardingJdbcTemplate());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public GenerationResult generateData() {
+        return service.generateData("A", RECORDS);
+    }
+
+    // Accepts every batch without a database, so only the row building is measured
+    static class DiscardingJdbcTemplate extends JdbcTemplate {
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            return new int[batchArgs.size()];
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package com.hibersoft.ms.bankcustomer.datageneration.controller;
 
+import com.hibersoft.ms.bankcustomer.datageneration.model.GenerationResult;
+import com.hibersoft.ms.bankcustomer.datageneration.model.GenerationSettings;
+import com.hibersoft.ms.bankcustomer.datageneration.model.WorkloadProfile;
 import com.hibersoft.ms.bankcustomer.datageneration.service.DataGenerationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -9,7 +14,11 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 @RestController
 @RequestMapping("/api/v1/generate")
@@ -18,18 +27,90 @@ public class DataGenerationController {
     @Autowired
     private DataGenerationService generationService;
 
+    // Upper bound on generation threads, each holding a database connection while it writes a chunk
+    @Value("${app.generation.max-threads:8}")
+    private int maxThreads;
+
+    /**
+     * Generates transactions for one bank. Pass the profile, seed, threads and until of the response to
+     * generate the same rows again (e.g. for a reproducible benchmark).
+     * profile is uniform (default), realistic or hotspot (see WorkloadProfile).
+     * Example URL: http://localhost:8080/api/v1/generate/bank/A?count=1000000&profile=realistic&seed=42&until=2024-03-31T00:00:00
+     */
     @PostMapping("/bank/{bankId}")
     public ResponseEntity<Map<String, String>> generateDataForBank(
             @PathVariable String bankId,
-            @RequestParam(defaultValue = "100") int count) {
-        
-        int generatedCount = generationService.generateData(bankId, count);
+            @RequestParam(defaultValue = "100") long count,
+            @RequestParam(defaultValue = "uniform") String profile,
+            @RequestParam(required = false) Long seed,
+            @RequestParam(required = false) Integer threads,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime until) {
+
+        if (count < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        GenerationSettings settings;
+        try {
+            settings = settings(profile, seed, threads, until);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        GenerationResult result = generationService.generateData(List.of(bankId), count, settings);
         
-        return ResponseEntity.ok(Map.of(
+        return ResponseEntity.ok(response("bankId", bankId, result, settings));
+    }
+
+    /**
+     * Generates count transactions for each of several banks concurrently, sharing the threads.
+     * Customers shared across banks by the realistic and hotspot profiles only overlap within one run.
+     * Example URL: http://localhost:8080/api/v1/generate/banks?bankIds=A,B,C&count=1000000&profile=realistic&seed=42
+     */
+    @PostMapping("/banks")
+    public ResponseEntity<Map<String, String>> generateDataForBanks(
+            @RequestParam List<String> bankIds,
+            @RequestParam(defaultValue = "100") long count,
+            @RequestParam(defaultValue = "uniform") String profile,
+            @RequestParam(required = false) Long seed,
+            @RequestParam(required = false) Integer threads,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime until) {
+
+        List<String> banks = bankIds.stream().map(String::trim).filter(bank -> !bank.isEmpty()).distinct().toList();
+        if (count < 0 || banks.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        GenerationSettings settings;
+        try {
+            settings = settings(profile, seed, threads, until);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        GenerationResult result = generationService.generateData(banks, count, settings);
+
+        return ResponseEntity.ok(response("bankIds", String.join(",", banks), result, settings));
+    }
+
+    // Missing parameters get a random seed, one thread per core and the current time
+    private GenerationSettings settings(String profile, Long seed, Integer threads, LocalDateTime until) {
+        int requestedThreads = threads != null ? threads : Runtime.getRuntime().availableProcessors();
+        return new GenerationSettings(
+            seed != null ? seed : ThreadLocalRandom.current().nextLong(),
+            Math.max(1, Math.min(requestedThreads, maxThreads)),
+            until != null ? until : LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS),
+            WorkloadProfile.of(profile));
+    }
+
+    private static Map<String, String> response(String banksKey, String banks, GenerationResult result, GenerationSettings settings) {
+        return Map.of(
             "status", "success",
-            "bankId", bankId,
-            "recordsGenerated", String.valueOf(generatedCount),
+            banksKey, banks,
+            "profile", settings.profile().name().toLowerCase(),
+            "recordsGenerated", String.valueOf(result.rows()),
+            "elapsedMillis", String.valueOf(result.elapsed().toMillis()),
+            "rowsPerSecond", String.valueOf(result.rowsPerSecond()),
+            "seed", String.valueOf(settings.seed()),
+            "threads", String.valueOf(settings.threads()),
+            "until", settings.until().toString(),
             "message", "Data generation started successfully."
-        ));
+        );
     }
 }
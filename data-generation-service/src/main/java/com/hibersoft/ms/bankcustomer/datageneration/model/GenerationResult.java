@@ -0,0 +1,12 @@
+package com.hibersoft.ms.bankcustomer.datageneration.model;
+
+import java.time.Duration;
+
+// Outcome of one generation run: rows written (to the bank table, plus as many MDM links) and wall time
+public record GenerationResult(long rows, Duration elapsed) {
+
+    public long rowsPerSecond() {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return (long) (rows * 1_000_000_000.0 / nanos);
+    }
+}
@@ -0,0 +1,14 @@
+package com.hibersoft.ms.bankcustomer.datageneration.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * How a dataset is generated. The same settings (and {@code app.generation.chunk-size}) always produce the
+ * same rows, whatever the number of threads.
+ * @param seed root of every random stream of the run
+ * @param threads number of chunks generated and written concurrently
+ * @param until transaction dates are generated up to this time
+ * @param profile distributions of customers, merchants, amounts and dates
+ */
+public record GenerationSettings(long seed, int threads, LocalDateTime until, WorkloadProfile profile) {
+}
@@ -0,0 +1,90 @@
+package com.hibersoft.ms.bankcustomer.datageneration.model;
+
+import java.util.Locale;
+
+/**
+ * Shape of the generated transactions, selected with the {@code profile} parameter of the generation
+ * endpoints. Popularity skews are Zipf exponents: the k-th most popular customer (or merchant) is picked
+ * with probability proportional to 1 / k^skew.
+ */
+public enum WorkloadProfile {
+
+    // The original generator: every customer, amount, description and hour equally likely
+    UNIFORM(9000, 0, 0, 0, 0, 0, 0, 0, 0),
+
+    // Production-like: skewed customers and merchants, lognormal amounts (median 35.00), a year of dates
+    // with daily, weekly and yearly cycles, and a fifth of transactions by customers shared across banks
+    REALISTIC(100_000, 1.0, 1.1, 0.2, 20_000, 35.0, 1.0, 365, 0),
+
+    // REALISTIC with a much hotter head, and 5% of transactions in short bursts (flash sales, retries)
+    HOTSPOT(100_000, 1.4, 1.5, 0.2, 20_000, 35.0, 1.2, 365, 0.05);
+
+    private final int customersPerBank;
+    private final double customerSkew;
+    private final double merchantSkew;
+    private final double sharedCustomerShare;
+    private final int sharedCustomers;
+    private final double amountMedian;
+    private final double amountSigma;
+    private final int days;
+    private final double burstShare;
+
+    WorkloadProfile(int customersPerBank, double customerSkew, double merchantSkew, double sharedCustomerShare,
+                    int sharedCustomers, double amountMedian, double amountSigma, int days, double burstShare) {
+        this.customersPerBank = customersPerBank;
+        this.customerSkew = customerSkew;
+        this.merchantSkew = merchantSkew;
+        this.sharedCustomerShare = sharedCustomerShare;
+        this.sharedCustomers = sharedCustomers;
+        this.amountMedian = amountMedian;
+        this.amountSigma = amountSigma;
+        this.days = days;
+        this.burstShare = burstShare;
+    }
+
+    public int customersPerBank() {
+        return customersPerBank;
+    }
+
+    public double customerSkew() {
+        return customerSkew;
+    }
+
+    public double merchantSkew() {
+        return merchantSkew;
+    }
+
+    // Share of transactions whose customer comes from the pool shared by all banks
+    public double sharedCustomerShare() {
+        return sharedCustomerShare;
+    }
+
+    public int sharedCustomers() {
+        return sharedCustomers;
+    }
+
+    // Amounts are lognormal: exp(N(ln(amountMedian), amountSigma^2))
+    public double amountMedian() {
+        return amountMedian;
+    }
+
+    public double amountSigma() {
+        return amountSigma;
+    }
+
+    // Transaction dates span this many days up to GenerationSettings#until
+    public int days() {
+        return days;
+    }
+
+    public double burstShare() {
+        return burstShare;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name is not a profile
+     */
+    public static WorkloadProfile of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
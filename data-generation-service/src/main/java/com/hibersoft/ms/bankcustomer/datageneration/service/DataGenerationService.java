@@ -1,72 +1,165 @@
 package com.hibersoft.ms.bankcustomer.datageneration.service;
 
-import com.hibersoft.ms.bankcustomer.datageneration.model.RawTransactionEntity;
-import com.hibersoft.ms.bankcustomer.datageneration.repository.RawTransactionRepository;
+import com.hibersoft.ms.bankcustomer.datageneration.model.GenerationResult;
+import com.hibersoft.ms.bankcustomer.datageneration.model.GenerationSettings;
+import com.hibersoft.ms.bankcustomer.datageneration.model.WorkloadProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Writes generated transactions for banks, plus their links in {@code customer_mdm_entity}.
+ * <p>
+ * Rows are produced and written in chunks of {@code app.generation.chunk-size}, each chunk committed on
+ * its own, so heap use and transaction length stay flat however many rows are requested. A failure
+ * leaves the chunks committed before it in place.
+ * <p>
+ * Chunks of every requested bank are shared out between {@link GenerationSettings#threads()} workers.
+ * Each chunk draws from its own {@link SplittableRandom}, derived from the seed, the bank and the chunk
+ * number only, so a seed reproduces the same rows (ids included) on any number of threads. What the
+ * rows look like is up to the {@link WorkloadProfile} (see {@link TransactionSampler}).
+ */
 @Service
 public class DataGenerationService {
 
-    // @Autowired
-    // private RawTransactionRepository repository;
+    private static final Logger log = LoggerFactory.getLogger(DataGenerationService.class);
+
+    // Progress is logged at most this often
+    private static final long PROGRESS_INTERVAL_NANOS = Duration.ofSeconds(10).toNanos();
+
     @Autowired // Autowire JdbcTemplate instead
     private JdbcTemplate jdbcTemplate;
 
-    private final Random random = new Random();
-    private final String[] descriptions = {"Groceries", "Gas", "Dinner", "Online Purchase", "ATM Withdrawal", "Deposit"};
-    private final String[] locationCodes = {"L1", "L2", "L3", "L4", "L5"};
-
-    @Transactional
-    public int generateData(String bankId, int recordCount) {
-        // ... (data generation loop creates List<RawTransactionEntity> data) ...
-        List<RawTransactionEntity> data = new ArrayList<>();
-        List<Object[]> mdmBatchArgs = new ArrayList<>();
-
-        for (int i = 0; i < recordCount; i++) {
-            String transactionUuid = UUID.randomUUID().toString(); 
-            String unifiedCustomerId = "U_CUST_" + bankId + "_" + random.nextInt(9000);
-            mdmBatchArgs.add(new Object[]{ transactionUuid, unifiedCustomerId }); 
-
-            String accountId = "ACC" + bankId.charAt(bankId.length() - 1) + (1000 + random.nextInt(9000));
-            String amount = String.format("%.2f", 10.0 + (90.0 * random.nextDouble()));
-            String description = descriptions[random.nextInt(descriptions.length)];
-            String location = locationCodes[random.nextInt(locationCodes.length)];
-            String date = LocalDateTime.now().minusHours(random.nextInt(100)).toString();
-
-            RawTransactionEntity entity = new RawTransactionEntity();
-            entity.setBankSpecificAccountId(transactionUuid); // Use UUID as PK for multiple inserts
-            entity.setTransactionDate(date);
-            entity.setAmount(amount);
-            entity.setDescription(description);
-            entity.setLocationCode(location);
-            data.add(entity);
+    // One transaction per chunk; without a transaction manager (e.g. in benchmarks) statements auto-commit
+    @Autowired(required = false)
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${app.generation.chunk-size:10000}")
+    private int chunkSize = 10_000;
+
+    // Generates uniform data from a random seed, on one thread
+    public GenerationResult generateData(String bankId, long recordCount) {
+        return generateData(List.of(bankId), recordCount,
+                new GenerationSettings(ThreadLocalRandom.current().nextLong(), 1, LocalDateTime.now(), WorkloadProfile.UNIFORM));
+    }
+
+    /**
+     * Generates {@code recordsPerBank} transactions for each bank, concurrently.
+     * @return the rows written across all banks
+     */
+    public GenerationResult generateData(List<String> bankIds, long recordsPerBank, GenerationSettings settings) {
+        long chunksPerBank = (recordsPerBank + chunkSize - 1) / chunkSize;
+        long totalChunks = chunksPerBank * bankIds.size();
+        TransactionOperations transactions = transactionTemplate != null ? transactionTemplate : TransactionOperations.withoutTransaction();
+        TransactionSampler sampler = new TransactionSampler(settings);
+        AtomicLong nextChunk = new AtomicLong();
+        AtomicLong written = new AtomicLong();
+        AtomicLong lastProgress = new AtomicLong(System.nanoTime());
+        AtomicBoolean failed = new AtomicBoolean();
+        long started = lastProgress.get();
+        long total = recordsPerBank * bankIds.size();
+
+        // Chunk n is chunk n / banks of bank n % banks, so that all banks progress together
+        Runnable worker = () -> {
+            long chunk;
+            while (!failed.get() && (chunk = nextChunk.getAndIncrement()) < totalChunks) {
+                String bankId = bankIds.get((int) (chunk % bankIds.size()));
+                long bankChunk = chunk / bankIds.size();
+                int size = (int) Math.min(chunkSize, recordsPerBank - bankChunk * chunkSize);
+                writeChunk(transactions, sampler, bankId, size, chunkRandom(settings.seed(), bankId, bankChunk));
+
+                long done = written.addAndGet(size);
+                long current = System.nanoTime();
+                long last = lastProgress.get();
+                if (current - last >= PROGRESS_INTERVAL_NANOS && lastProgress.compareAndSet(last, current)) {
+                    log.info("Generated {} of {} rows for {} ({} rows/s)", done, total, bankIds,
+                            new GenerationResult(done, Duration.ofNanos(current - started)).rowsPerSecond());
+                }
+            }
+        };
+
+        int threads = (int) Math.max(1, Math.min(settings.threads(), totalChunks));
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    try {
+                        worker.run();
+                    } catch (RuntimeException | Error e) {
+                        failed.set(true); // Stops the other workers after their current chunk
+                        throw e;
+                    }
+                }));
+            }
+            for (Future<?> future : workers) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Data generation failed", e.getCause());
+        } catch (InterruptedException e) {
+            failed.set(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Data generation interrupted", e);
         }
 
-        // --- Use dynamic table name insertion via JdbcTemplate ---
+        GenerationResult result = new GenerationResult(written.get(), Duration.ofNanos(System.nanoTime() - started));
+        log.info("Generated {} rows for {} in {} ms ({} rows/s, profile {}, seed {}, {} thread(s), chunks of {})", result.rows(),
+                bankIds, result.elapsed().toMillis(), result.rowsPerSecond(), settings.profile(), settings.seed(), threads, chunkSize);
+        return result;
+    }
+
+    private void writeChunk(TransactionOperations transactions, TransactionSampler sampler, String bankId, int size,
+                            SplittableRandom random) {
         String tableName = "bank_" + bankId.toLowerCase() + "_transactions";
         String sql = "INSERT INTO " + tableName + " (bank_specific_account_id, transaction_date, amount, description, location_code) VALUES (?, ?, ?, ?, ?)";
-        
-        List<Object[]> batchArgs = data.stream().map(entity -> new Object[] {
-            entity.getBankSpecificAccountId(), entity.getTransactionDate(), entity.getAmount(), entity.getDescription(), entity.getLocationCode()
-        }).collect(Collectors.toList());
-
-        jdbcTemplate.batchUpdate(sql, batchArgs);
-        // --------------------------------------------------------
-        
-        // 2. Insert into the MDM table
         String mdmSql = "INSERT INTO customer_mdm_entity (bank_specific_account_id, unified_customer_id) VALUES (?, ?)";
-        jdbcTemplate.batchUpdate(mdmSql, mdmBatchArgs);
 
-        return data.size();
+        List<Object[]> batchArgs = new ArrayList<>(size);
+        List<Object[]> mdmBatchArgs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            TransactionSampler.Transaction transaction = sampler.next(bankId, random);
+            String key = transaction.bankSpecificAccountId();
+            batchArgs.add(new Object[] { key, transaction.date(), transaction.amount(),
+                    transaction.description(), transaction.locationCode() });
+            mdmBatchArgs.add(new Object[] { key, transaction.unifiedCustomerId() });
+        }
+
+        transactions.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(sql, batchArgs);
+            jdbcTemplate.batchUpdate(mdmSql, mdmBatchArgs);
+        });
+    }
+
+    // Independent of which thread generates the chunk, and of how many chunks there are
+    static SplittableRandom chunkRandom(long seed, String bankId, long chunk) {
+        return new SplittableRandom(mix64(mix64(seed ^ bankId.hashCode()) + chunk));
+    }
+
+    // Stafford's variant 13 of the MurmurHash3 finalizer
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
     }
 }
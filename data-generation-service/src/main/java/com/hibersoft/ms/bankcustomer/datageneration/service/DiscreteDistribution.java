@@ -0,0 +1,40 @@
+package com.hibersoft.ms.bankcustomer.datageneration.service;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Distribution over indexes 0..n-1 with given weights. Sampling is a binary search of the precomputed
+ * cumulative distribution (n doubles); instances are immutable and shared between generation threads.
+ */
+final class DiscreteDistribution {
+
+    private final double[] cumulative;
+
+    DiscreteDistribution(double[] weights) {
+        cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < weights.length; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    // Zipf: index k (rank k + 1) has weight 1 / (k + 1)^skew
+    static DiscreteDistribution zipf(int n, double skew) {
+        double[] weights = new double[n];
+        for (int k = 0; k < n; k++) {
+            weights[k] = 1.0 / Math.pow(k + 1, skew);
+        }
+        return new DiscreteDistribution(weights);
+    }
+
+    int sample(RandomGenerator random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        // Not found: (-insertion point - 1), the first index whose cumulative probability is above the draw
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
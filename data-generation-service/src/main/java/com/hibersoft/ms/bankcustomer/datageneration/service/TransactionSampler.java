@@ -0,0 +1,143 @@
+package com.hibersoft.ms.bankcustomer.datageneration.service;
+
+import com.hibersoft.ms.bankcustomer.datageneration.model.GenerationSettings;
+import com.hibersoft.ms.bankcustomer.datageneration.model.WorkloadProfile;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Draws generated transactions following a {@link WorkloadProfile}. Built once per run (the popularity
+ * tables, day weights and burst times are precomputed from the settings) and then only read, so one
+ * instance serves every generation thread; all randomness comes from the caller's stream.
+ */
+final class TransactionSampler {
+
+    // One generated bank row and its MDM link
+    record Transaction(String accountId, String transactionId, String date, String amount, String description,
+                       String locationCode, String unifiedCustomerId) {
+
+        // The bank tables are keyed per row, so the key is the customer's account at the bank followed by the
+        // transaction; the modeling services derive the customer from the part before ACCOUNT_SEPARATOR
+        String bankSpecificAccountId() {
+            return accountId + ACCOUNT_SEPARATOR + transactionId;
+        }
+    }
+
+    static final char ACCOUNT_SEPARATOR = '/';
+
+    private static final String[] DESCRIPTIONS = {"Groceries", "Gas", "Dinner", "Online Purchase", "ATM Withdrawal", "Deposit"};
+    private static final String[] LOCATION_CODES = {"L1", "L2", "L3", "L4", "L5"};
+
+    // Merchant brands carry the category_rules keywords, so every category gets skewed traffic;
+    // merchant k is store k / BRANDS.length + 1 of brand k % BRANDS.length, most popular first
+    private static final String[] BRANDS = {"COSTCO WHOLESALE", "AMAZON ONLINE", "SHELL", "CITY SUPERMARKET",
+            "CORNER RESTAURANT", "HYDRO UTILITY", "ONLINE PURCHASE", "PETROL STATION", "ROGERS", "FRESH GROCERIES",
+            "FAMILY DINNER", "BELL", "ATM WITHDRAWAL", "DEPOSIT"};
+    private static final int STORES_PER_BRAND = 40;
+    private static final int LOCATIONS = 50;
+
+    // Relative activity by hour of day (lunch and evening peaks), day of week (Monday first) and month
+    private static final double[] HOUR_WEIGHTS = {0.3, 0.2, 0.15, 0.1, 0.1, 0.2, 0.5, 1.0, 1.5, 1.6, 1.7, 2.0,
+            2.6, 2.3, 1.8, 1.7, 1.9, 2.4, 2.6, 2.2, 1.7, 1.3, 0.9, 0.5};
+    private static final double[] WEEKDAY_WEIGHTS = {0.9, 0.9, 1.0, 1.0, 1.2, 1.3, 0.8};
+    private static final double[] MONTH_WEIGHTS = {0.8, 0.85, 0.95, 1.0, 1.0, 1.05, 1.1, 1.1, 1.0, 1.0, 1.2, 1.5};
+
+    private static final int BURSTS = 12;
+    private static final int BURST_SECONDS = 600;
+
+    private final WorkloadProfile profile;
+    private final LocalDateTime until;
+    private final DiscreteDistribution customers;
+    private final DiscreteDistribution sharedCustomers;
+    private final DiscreteDistribution merchants;
+    private final DiscreteDistribution days;
+    private final DiscreteDistribution hours;
+    private final LocalDateTime[] burstStarts;
+
+    TransactionSampler(GenerationSettings settings) {
+        this.profile = settings.profile();
+        this.until = settings.until();
+        if (profile == WorkloadProfile.UNIFORM) {
+            customers = sharedCustomers = merchants = days = hours = null;
+            burstStarts = null;
+            return;
+        }
+        customers = DiscreteDistribution.zipf(profile.customersPerBank(), profile.customerSkew());
+        sharedCustomers = DiscreteDistribution.zipf(profile.sharedCustomers(), profile.customerSkew());
+        merchants = DiscreteDistribution.zipf(BRANDS.length * STORES_PER_BRAND, profile.merchantSkew());
+        hours = new DiscreteDistribution(HOUR_WEIGHTS);
+        // Day d is d days before until
+        double[] dayWeights = new double[profile.days()];
+        for (int d = 0; d < dayWeights.length; d++) {
+            LocalDate day = until.toLocalDate().minusDays(d);
+            dayWeights[d] = WEEKDAY_WEIGHTS[day.getDayOfWeek().ordinal()] * MONTH_WEIGHTS[day.getMonthValue() - 1];
+        }
+        days = new DiscreteDistribution(dayWeights);
+        // The same bursts for every bank and chunk of the run; each ends before until
+        SplittableRandom burstRandom = new SplittableRandom(settings.seed());
+        burstStarts = new LocalDateTime[BURSTS];
+        for (int i = 0; i < BURSTS; i++) {
+            burstStarts[i] = until.minusSeconds(BURST_SECONDS + burstRandom.nextLong(profile.days() * 86_400L - BURST_SECONDS));
+        }
+    }
+
+    Transaction next(String bankId, SplittableRandom random) {
+        if (profile == WorkloadProfile.UNIFORM) {
+            String transactionUuid = randomUuid(random); // Part of the PK: a repeated seed repeats the ids
+            int customer = random.nextInt(profile.customersPerBank());
+            String accountId = "ACC_" + bankId + "_" + customer;
+            String unifiedCustomerId = "U_CUST_" + bankId + "_" + customer;
+            String amount = formatCents(1000 + random.nextInt(9001));
+            String description = DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)];
+            String location = LOCATION_CODES[random.nextInt(LOCATION_CODES.length)];
+            String date = until.minusHours(random.nextInt(100)).toString();
+            return new Transaction(accountId, transactionUuid, date, amount, description, location, unifiedCustomerId);
+        }
+
+        String transactionUuid = randomUuid(random);
+        // Shared customers hold an account in every bank, linked to the same unified id in the MDM links
+        String accountId;
+        String unifiedCustomerId;
+        if (random.nextDouble() < profile.sharedCustomerShare()) {
+            int customer = sharedCustomers.sample(random);
+            accountId = "ACC_" + bankId + "_SHARED_" + customer;
+            unifiedCustomerId = "U_CUST_SHARED_" + customer;
+        } else {
+            int customer = customers.sample(random);
+            accountId = "ACC_" + bankId + "_" + customer;
+            unifiedCustomerId = "U_CUST_" + bankId + "_" + customer;
+        }
+        long cents = Math.round(profile.amountMedian() * Math.exp(profile.amountSigma() * random.nextGaussian()) * 100);
+        String amount = formatCents(Math.clamp(cents, 100, 1_000_000));
+        int merchant = merchants.sample(random);
+        String description = BRANDS[merchant % BRANDS.length] + " #" + (merchant / BRANDS.length + 1);
+        String location = "L" + (Math.floorMod(merchant * 31 + 7, LOCATIONS) + 1);
+        LocalDateTime time;
+        if (random.nextDouble() < profile.burstShare()) {
+            time = burstStarts[random.nextInt(BURSTS)].plusSeconds(random.nextInt(BURST_SECONDS));
+        } else {
+            time = until.toLocalDate().minusDays(days.sample(random))
+                    .atTime(hours.sample(random), random.nextInt(60), random.nextInt(60));
+            if (time.isAfter(until)) {
+                time = time.minusDays(1);
+            }
+        }
+        return new Transaction(accountId, transactionUuid, time.toString(), amount, description, location, unifiedCustomerId);
+    }
+
+    // A version 4 UUID from the chunk's stream, instead of UUID.randomUUID()'s contended SecureRandom
+    static String randomUuid(SplittableRandom random) {
+        long mostSigBits = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    // 1234 -> "12.34", as String.format("%.2f") would print it, without parsing a format per row
+    static String formatCents(long cents) {
+        long fraction = cents % 100;
+        return (cents / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
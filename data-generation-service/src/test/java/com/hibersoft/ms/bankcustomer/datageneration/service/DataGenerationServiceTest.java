@@ -1,6 +1,9 @@
 package com.hibersoft.ms.bankcustomer.datageneration.service;
 
+import com.hibersoft.ms.bankcustomer.datageneration.model.GenerationResult;
+import com.hibersoft.ms.bankcustomer.datageneration.model.GenerationSettings;
 import com.hibersoft.ms.bankcustomer.datageneration.model.RawTransactionEntity;
+import com.hibersoft.ms.bankcustomer.datageneration.model.WorkloadProfile;
 import com.hibersoft.ms.bankcustomer.datageneration.repository.RawTransactionRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,9 +12,21 @@ import org.mockito.Mock;
 import org.mockito.ArgumentCaptor;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,10 +57,10 @@ public class DataGenerationServiceTest {
 
 
         // Act
-        int generatedCount = service.generateData(bankId, countToGenerate);
+        GenerationResult result = service.generateData(bankId, countToGenerate);
 
         // Assert
-        assertEquals(countToGenerate, generatedCount);
+        assertEquals(countToGenerate, result.rows());
 
         // Verify that batchUpdate was called exactly once with any String SQL and any List of arguments
         verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
@@ -64,4 +79,108 @@ public class DataGenerationServiceTest {
         //     assert entity.getBankSpecificAccountId() != null && !entity.getBankSpecificAccountId().isEmpty();
         // });
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGenerateData_WritesInChunks() {
+        // Arrange
+        ReflectionTestUtils.setField(service, "chunkSize", 20);
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        when(jdbcTemplate.batchUpdate(anyString(), captor.capture())).thenReturn(new int[0]);
+
+        // Act
+        GenerationResult result = service.generateData("BANK_A", 50);
+
+        // Assert: three chunks of bank rows and MDM links, the last one partial
+        assertEquals(50, result.rows());
+        assertEquals(List.of(20, 20, 20, 20, 10, 10), captor.getAllValues().stream().map(List::size).toList());
+        verify(jdbcTemplate, times(3)).batchUpdate(startsWith("INSERT INTO bank_bank_a_transactions"), anyList());
+        verify(jdbcTemplate, times(3)).batchUpdate(startsWith("INSERT INTO customer_mdm_entity"), anyList());
+    }
+
+    @Test
+    public void testGenerateData_SameSeedGivesSameRowsOnAnyNumberOfThreads() {
+        // Arrange
+        LocalDateTime until = LocalDateTime.of(2024, 3, 31, 0, 0);
+        List<String> banks = List.of("A", "B", "C");
+
+        // Act
+        List<String> sequential = generate(banks, 95, new GenerationSettings(42, 1, until, WorkloadProfile.REALISTIC)).rows();
+        List<String> parallel = generate(banks, 95, new GenerationSettings(42, 4, until, WorkloadProfile.REALISTIC)).rows();
+        List<String> otherSeed = generate(banks, 95, new GenerationSettings(43, 4, until, WorkloadProfile.REALISTIC)).rows();
+
+        // Assert
+        assertEquals(3 * 95 * 2, sequential.size());
+        assertEquals(sequential, parallel);
+        assertNotEquals(sequential, otherSeed);
+    }
+
+    @Test
+    public void testGenerateData_HotspotProfileSkewsCustomersAndSharesThemAcrossBanks() {
+        // Arrange
+        LocalDateTime until = LocalDateTime.of(2024, 3, 31, 0, 0);
+        GenerationSettings settings = new GenerationSettings(7, 4, until, WorkloadProfile.HOTSPOT);
+
+        // Act
+        CollectingJdbcTemplate written = generate(List.of("A", "B"), 10_000, settings);
+
+        // Assert: with uniform customers the busiest would have a handful of the 20000 transactions
+        Map<String, Long> perCustomer = written.links.stream()
+            .collect(Collectors.groupingBy(link -> (String) link[1], Collectors.counting()));
+        assertTrue(perCustomer.values().stream().mapToLong(Long::longValue).max().orElseThrow() > 1000);
+        Set<String> bankA = written.links.stream().filter(link -> written.bankOf.get(link[0]).equals("A"))
+            .map(link -> (String) link[1]).collect(Collectors.toSet());
+        assertTrue(written.links.stream().filter(link -> written.bankOf.get(link[0]).equals("B"))
+            .anyMatch(link -> bankA.contains(link[1]) && ((String) link[1]).startsWith("U_CUST_SHARED_")));
+        for (Object[] row : written.transactions) {
+            LocalDateTime date = LocalDateTime.parse((String) row[1]);
+            assertTrue(!date.isAfter(until) && date.isAfter(until.minusDays(366)), (String) row[1]);
+            BigDecimal amount = new BigDecimal((String) row[2]);
+            assertTrue(amount.compareTo(BigDecimal.ONE) >= 0 && amount.compareTo(new BigDecimal("10000.00")) <= 0);
+        }
+    }
+
+    @Test
+    public void testFormatCents_PrintsTwoDecimals() {
+        assertEquals("10.00", TransactionSampler.formatCents(1000));
+        assertEquals("12.05", TransactionSampler.formatCents(1205));
+        assertEquals("99.99", TransactionSampler.formatCents(9999));
+        assertEquals("100.00", TransactionSampler.formatCents(10000));
+    }
+
+    private static CollectingJdbcTemplate generate(List<String> banks, long recordsPerBank, GenerationSettings settings) {
+        DataGenerationService generator = new DataGenerationService();
+        CollectingJdbcTemplate collector = new CollectingJdbcTemplate();
+        ReflectionTestUtils.setField(generator, "jdbcTemplate", collector);
+        ReflectionTestUtils.setField(generator, "chunkSize", 10);
+        assertEquals(banks.size() * recordsPerBank, generator.generateData(banks, recordsPerBank, settings).rows());
+        return collector;
+    }
+
+    static class CollectingJdbcTemplate extends JdbcTemplate {
+
+        final Queue<String> written = new ConcurrentLinkedQueue<>();
+        final Queue<Object[]> transactions = new ConcurrentLinkedQueue<>();
+        final Queue<Object[]> links = new ConcurrentLinkedQueue<>();
+        final Map<Object, String> bankOf = new ConcurrentHashMap<>();
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            batchArgs.forEach(args -> written.add(sql + Arrays.toString(args)));
+            if (sql.startsWith("INSERT INTO customer_mdm_entity")) {
+                links.addAll(batchArgs);
+            } else {
+                transactions.addAll(batchArgs);
+                // INSERT INTO bank_<id>_transactions
+                String bankId = sql.substring("INSERT INTO bank_".length(), sql.indexOf("_transactions")).toUpperCase();
+                batchArgs.forEach(args -> bankOf.put(args[0], bankId));
+            }
+            return new int[batchArgs.size()];
+        }
+
+        // Every row written (bank rows and MDM links, with their SQL), in a canonical order
+        List<String> rows() {
+            return written.stream().sorted().toList();
+        }
+    }
 }
@@ -0,0 +1,65 @@
+package com.hibersoft.ms.bankcustomer.datageneration.service;
+
+import com.hibersoft.ms.bankcustomer.datageneration.model.GenerationSettings;
+import com.hibersoft.ms.bankcustomer.datageneration.model.WorkloadProfile;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TransactionSamplerTest {
+
+    private static final LocalDateTime UNTIL = LocalDateTime.of(2024, 3, 31, 0, 0);
+
+    @Test
+    public void testNext_HotspotProfileSkewsTheAccountIds() {
+        // Arrange
+        TransactionSampler sampler = new TransactionSampler(new GenerationSettings(7, 1, UNTIL, WorkloadProfile.HOTSPOT));
+        SplittableRandom random = new SplittableRandom(7);
+        Map<String, Long> perAccount = new HashMap<>();
+        Map<String, String> customerOfAccount = new HashMap<>();
+
+        // Act
+        for (int i = 0; i < 10_000; i++) {
+            TransactionSampler.Transaction transaction = sampler.next("A", random);
+            perAccount.merge(accountOf(transaction.bankSpecificAccountId()), 1L, Long::sum);
+            customerOfAccount.merge(transaction.accountId(), transaction.unifiedCustomerId(), (previous, current) -> {
+                assertEquals(previous, current, transaction.accountId());
+                return previous;
+            });
+        }
+
+        // Assert: the account, not only the MDM link, carries the skew that the modeling services turn into
+        // customer ids; with uniform customers the busiest account would have a handful of the 10000 rows
+        assertTrue(perAccount.keySet().stream().allMatch(account -> account.startsWith("ACC_A_")));
+        assertTrue(perAccount.values().stream().mapToLong(Long::longValue).max().orElseThrow() > 1000);
+        assertTrue(perAccount.size() < 5000, "accounts: " + perAccount.size());
+    }
+
+    @Test
+    public void testNext_RowKeysAreUniqueAcrossTransactionsOfAnAccount() {
+        // Arrange
+        TransactionSampler sampler = new TransactionSampler(new GenerationSettings(7, 1, UNTIL, WorkloadProfile.UNIFORM));
+        SplittableRandom random = new SplittableRandom(7);
+
+        // Act
+        Map<String, Long> perKey = IntStream.range(0, 20_000).mapToObj(i -> sampler.next("B", random))
+                .collect(Collectors.groupingBy(TransactionSampler.Transaction::bankSpecificAccountId, Collectors.counting()));
+
+        // Assert: 20000 rows over at most 9000 accounts, each row with its own key
+        assertEquals(20_000, perKey.size());
+        assertTrue(perKey.keySet().stream().map(TransactionSamplerTest::accountOf).distinct().count() <= 9000);
+    }
+
+    // The account part of a bank row key, as the modeling services read it
+    private static String accountOf(String bankSpecificAccountId) {
+        return bankSpecificAccountId.substring(0, bankSpecificAccountId.indexOf(TransactionSampler.ACCOUNT_SEPARATOR));
+    }
+}
@@ -0,0 +1,63 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark input taken from the ingestion output CSVs in {@code local_data_staging}, so descriptions,
+ * amounts and transaction times follow the distribution of real pipeline data.
+ * <p>
+ * The directory comes from the {@code benchmark.staging-dir} system property (set by the jmh task).
+ * Rows repeated across files are kept once, and both date formats found in the files are accepted.
+ */
+public final class StagingTransactions {
+
+    public static final String STAGING_DIR_PROPERTY = "benchmark.staging-dir";
+
+    private static final DateTimeFormatter SPACED_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public record Row(String accountId, LocalDateTime transactionTime, String amount, String description, String locationCode) {
+    }
+
+    private StagingTransactions() {
+    }
+
+    public static List<Row> load() {
+        Path directory = Path.of(System.getProperty(STAGING_DIR_PROPERTY, "../local_data_staging"));
+        Map<String, Row> rows = new LinkedHashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".csv")).sorted().toList()) {
+                for (String line : Files.readAllLines(file)) {
+                    String[] fields = line.split(",", -1);
+                    if (fields.length == 5 && !rows.containsKey(fields[0])) {
+                        rows.put(fields[0], new Row(fields[0], parseDateTime(fields[1]), fields[2], fields[3], fields[4]));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read staging CSVs from " + directory.toAbsolutePath(), e);
+        }
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("No staging rows found in " + directory.toAbsolutePath());
+        }
+        return new ArrayList<>(rows.values());
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(value, SPACED_DATE_TIME);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.mapper;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.benchmark.StagingTransactions;
+import com.hibersoft.ms.bankcustomer.datamodeling.model.EnrichedBankTransaction;
+import com.hibersoft.ms.bankcustomer.datamodeling.model.RawBankTransaction;
+
+/**
+ * Per-row cost of the ingestion and modeling step mappers, each walking an in-memory result set
+ * filled with the staging rows (no driver or network cost).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RowMapperBenchmark {
+
+    private SimpleResultSet rawRows;
+    private SimpleResultSet enrichedRows;
+    private RowMapper<RawBankTransaction> rawMapper;
+    private RowMapper<EnrichedBankTransaction> enrichedMapper;
+
+    @Setup
+    public void setUp() throws SQLException {
+        List<StagingTransactions.Row> staging = StagingTransactions.load();
+
+        rawRows = new SimpleResultSet();
+        rawRows.setAutoClose(false);
+        for (String column : RawBankTransactionRowMapper.COLUMNS.split(", ")) {
+            rawRows.addColumn(column.toUpperCase(), Types.VARCHAR, 255, 0);
+        }
+        enrichedRows = new SimpleResultSet();
+        enrichedRows.setAutoClose(false);
+        enrichedRows.addColumn("BANK_ID", Types.VARCHAR, 255, 0);
+        enrichedRows.addColumn("CUSTOMER_ID", Types.VARCHAR, 255, 0);
+        enrichedRows.addColumn("BANK_SPECIFIC_ACCOUNT_ID", Types.VARCHAR, 255, 0);
+        enrichedRows.addColumn("TRANSACTION_TIME", Types.TIMESTAMP, 26, 6);
+        enrichedRows.addColumn("AMOUNT_STANDARD", Types.DECIMAL, 19, 2);
+        enrichedRows.addColumn("DESCRIPTION", Types.VARCHAR, 255, 0);
+        enrichedRows.addColumn("LOCATION_CODE", Types.VARCHAR, 255, 0);
+        enrichedRows.addColumn("TRANSACTION_TYPE", Types.VARCHAR, 255, 0);
+        enrichedRows.addColumn("IS_VALID", Types.BOOLEAN, 1, 0);
+
+        for (StagingTransactions.Row row : staging) {
+            rawRows.addRow(row.accountId(), row.accountId(), row.transactionTime().toString(), row.amount(),
+                    row.description(), row.locationCode());
+            enrichedRows.addRow("BANK_A", "U_" + row.accountId(), row.accountId(), Timestamp.valueOf(row.transactionTime()),
+                    new BigDecimal(row.amount()), row.description().toUpperCase(), row.locationCode(), "POS_PURCHASE", true);
+        }
+
+        rawMapper = new RawBankTransactionRowMapper();
+        enrichedMapper = new EnrichedBankTransactionRowMapper();
+    }
+
+    @Benchmark
+    public RawBankTransaction rawBankTransaction() throws SQLException {
+        return rawMapper.mapRow(nextRow(rawRows), 0);
+    }
+
+    @Benchmark
+    public EnrichedBankTransaction enrichedBankTransaction() throws SQLException {
+        return enrichedMapper.mapRow(nextRow(enrichedRows), 0);
+    }
+
+    // Cycles through the staging rows
+    private static SimpleResultSet nextRow(SimpleResultSet resultSet) throws SQLException {
+        if (!resultSet.next()) {
+            resultSet.beforeFirst();
+            resultSet.next();
+        }
+        return resultSet;
+    }
+}
@@ -0,0 +1,61 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.processor;
+
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.benchmark.StagingTransactions;
+import com.hibersoft.ms.bankcustomer.datamodeling.model.EnrichedBankTransaction;
+import com.hibersoft.ms.bankcustomer.datamodeling.model.RawBankTransaction;
+
+/**
+ * Per-row cost of {@link CleansingItemProcessor#process} over the staging rows in turn.
+ * <p>
+ * Transaction times are handed over in the {@code yyyy-MM-dd HH:mm:ss} form the processor parses,
+ * so every row takes the full cleansing path rather than the early invalid-date exit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CleansingItemProcessorBenchmark {
+
+    private static final DateTimeFormatter INPUT_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private CleansingItemProcessor processor;
+    private RawBankTransaction[] rows;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        processor = new CleansingItemProcessor();
+
+        List<StagingTransactions.Row> staging = StagingTransactions.load();
+        rows = new RawBankTransaction[staging.size()];
+        for (int i = 0; i < rows.length; i++) {
+            StagingTransactions.Row row = staging.get(i);
+            RawBankTransaction raw = new RawBankTransaction();
+            raw.setBankSpecificTransactionId(row.accountId());
+            raw.setBankSpecificAccountId(row.accountId());
+            raw.setTransactionDate(row.transactionTime().format(INPUT_DATE_FORMATTER));
+            raw.setAmount(row.amount());
+            raw.setDescription(row.description());
+            raw.setLocationCode(row.locationCode());
+            rows[i] = raw;
+        }
+    }
+
+    @Benchmark
+    public EnrichedBankTransaction process() throws Exception {
+        RawBankTransaction row = rows[next];
+        next = next + 1 == rows.length ? 0 : next + 1;
+        return processor.process(row);
+    }
+}
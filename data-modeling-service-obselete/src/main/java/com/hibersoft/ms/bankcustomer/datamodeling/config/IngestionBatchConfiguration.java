@@ -17,9 +17,10 @@ import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import com.hibersoft.ms.bankcustomer.datamodeling.mapper.RawSourceDataRowMapper;
+import com.hibersoft.ms.bankcustomer.datamodeling.mapper.RowMapperRegistry;
 import com.hibersoft.ms.bankcustomer.datamodeling.model.RawSourceData;
 import com.hibersoft.ms.bankcustomer.datamodeling.listener.DynamicOutputPathStepListener;
 
@@ -64,8 +65,8 @@ public class IngestionBatchConfiguration {
         return new JdbcCursorItemReaderBuilder<RawSourceData>()
                 .dataSource(dataSource)
                 .name("sourceDataReader")
-                .sql("SELECT bank_specific_account_id, transaction_date, amount, description, location_code FROM bank_a_transactions")
-                .rowMapper(new BeanPropertyRowMapper<>(RawSourceData.class))
+                .sql("SELECT " + RawSourceDataRowMapper.COLUMNS + " FROM bank_a_transactions")
+                .rowMapper(RowMapperRegistry.forType(RawSourceData.class))
                 .build();
     }
 
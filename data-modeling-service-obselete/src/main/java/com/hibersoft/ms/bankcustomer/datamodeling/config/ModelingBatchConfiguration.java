@@ -1,5 +1,7 @@
 package com.hibersoft.ms.bankcustomer.datamodeling.config;
 
+import com.hibersoft.ms.bankcustomer.datamodeling.mapper.EnrichedBankTransactionRowMapper;
+import com.hibersoft.ms.bankcustomer.datamodeling.mapper.RowMapperRegistry;
 import com.hibersoft.ms.bankcustomer.datamodeling.model.RawBankTransaction;
 import com.hibersoft.ms.bankcustomer.datamodeling.model.EnrichedBankTransaction;
 import com.hibersoft.ms.bankcustomer.datamodeling.processor.CleansingItemProcessor;
@@ -25,7 +27,6 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 
@@ -100,8 +101,8 @@ public class ModelingBatchConfiguration {
                 .dataSource(dataSource)
                 .name("factDataReader")
                 // Use a placeholder SQL that is safe during context load
-                .sql("SELECT * FROM enriched_transactions WHERE 1=0") // Safe placeholder SQL
-                .rowMapper(new BeanPropertyRowMapper<>(EnrichedBankTransaction.class))
+                .sql("SELECT " + EnrichedBankTransactionRowMapper.COLUMNS + " FROM enriched_transactions WHERE 1=0") // Safe placeholder SQL
+                .rowMapper(RowMapperRegistry.forType(EnrichedBankTransaction.class))
                 // Add .scope("step") if your Gradle version supports it
                 .build();
     }
@@ -0,0 +1,36 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.model.EnrichedBankTransaction;
+
+/**
+ * Column-indexed mapper for rows of {@code enriched_transactions}.
+ * <p>
+ * The query must select exactly {@link #COLUMNS}, in that order.
+ */
+public class EnrichedBankTransactionRowMapper implements RowMapper<EnrichedBankTransaction> {
+
+    public static final String COLUMNS = "bank_id, customer_id, bank_specific_account_id, transaction_time, amount_standard, "
+            + "description, location_code, transaction_type, is_valid";
+
+    @Override
+    public EnrichedBankTransaction mapRow(ResultSet rs, int rowNum) throws SQLException {
+        EnrichedBankTransaction transaction = new EnrichedBankTransaction();
+        transaction.setBankId(rs.getString(1));
+        transaction.setCustomerId(rs.getString(2));
+        transaction.setBankSpecificAccountId(rs.getString(3));
+        Timestamp transactionTime = rs.getTimestamp(4);
+        transaction.setTransactionTime(transactionTime != null ? transactionTime.toLocalDateTime() : null);
+        transaction.setAmountStandard(rs.getBigDecimal(5));
+        transaction.setDescription(rs.getString(6));
+        transaction.setLocationCode(rs.getString(7));
+        transaction.setTransactionType(rs.getString(8));
+        transaction.setIsValid(rs.getBoolean(9));
+        return transaction;
+    }
+}
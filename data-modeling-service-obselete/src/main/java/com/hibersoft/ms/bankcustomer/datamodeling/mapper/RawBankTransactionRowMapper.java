@@ -0,0 +1,30 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.model.RawBankTransaction;
+
+/**
+ * Column-indexed mapper for {@link RawBankTransaction}.
+ * <p>
+ * The query must select exactly {@link #COLUMNS}, in that order.
+ */
+public class RawBankTransactionRowMapper implements RowMapper<RawBankTransaction> {
+
+    public static final String COLUMNS = "bank_specific_transaction_id, bank_specific_account_id, transaction_date, amount, description, location_code";
+
+    @Override
+    public RawBankTransaction mapRow(ResultSet rs, int rowNum) throws SQLException {
+        RawBankTransaction transaction = new RawBankTransaction();
+        transaction.setBankSpecificTransactionId(rs.getString(1));
+        transaction.setBankSpecificAccountId(rs.getString(2));
+        transaction.setTransactionDate(rs.getString(3));
+        transaction.setAmount(rs.getString(4));
+        transaction.setDescription(rs.getString(5));
+        transaction.setLocationCode(rs.getString(6));
+        return transaction;
+    }
+}
@@ -0,0 +1,30 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.mapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.model.RawSourceData;
+
+/**
+ * Maps a bank table row to {@link RawSourceData} by column position, without the per-row
+ * metadata lookups and reflective setter calls of {@code BeanPropertyRowMapper}.
+ * <p>
+ * The query must select exactly {@link #COLUMNS}, in that order.
+ */
+public class RawSourceDataRowMapper implements RowMapper<RawSourceData> {
+
+    public static final String COLUMNS = "bank_specific_account_id, transaction_date, amount, description, location_code";
+
+    @Override
+    public RawSourceData mapRow(ResultSet rs, int rowNum) throws SQLException {
+        RawSourceData data = new RawSourceData();
+        data.setBankSpecificAccountId(rs.getString(1));
+        data.setTransactionDate(rs.getString(2));
+        data.setAmount(rs.getString(3));
+        data.setDescription(rs.getString(4));
+        data.setLocationCode(rs.getString(5));
+        return data;
+    }
+}
@@ -0,0 +1,60 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+
+import org.h2.tools.SimpleResultSet;
+import org.junit.jupiter.api.Test;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.model.EnrichedBankTransaction;
+import com.hibersoft.ms.bankcustomer.datamodeling.model.RawBankTransaction;
+import com.hibersoft.ms.bankcustomer.datamodeling.model.RawSourceData;
+
+public class EnrichedBankTransactionRowMapperTest {
+
+    @Test
+    public void testMapRow_ReadsColumnsByPosition() throws Exception {
+        // Arrange
+        LocalDateTime time = LocalDateTime.of(2023, 1, 1, 10, 0);
+        SimpleResultSet resultSet = new SimpleResultSet();
+        resultSet.addColumn("BANK_ID", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("CUSTOMER_ID", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("BANK_SPECIFIC_ACCOUNT_ID", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("TRANSACTION_TIME", Types.TIMESTAMP, 26, 6);
+        resultSet.addColumn("AMOUNT_STANDARD", Types.NUMERIC, 19, 2);
+        resultSet.addColumn("DESCRIPTION", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("LOCATION_CODE", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("TRANSACTION_TYPE", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("IS_VALID", Types.BOOLEAN, 1, 0);
+        resultSet.addRow("BANK_B", "U_CUST_1", "ACC456", Timestamp.valueOf(time), new BigDecimal("500.00"),
+                "COFFEE SHOP", "L1", "POS_PURCHASE", true);
+        resultSet.next();
+
+        // Act
+        EnrichedBankTransaction transaction = new EnrichedBankTransactionRowMapper().mapRow(resultSet, 0);
+
+        // Assert
+        assertEquals("BANK_B", transaction.getBankId());
+        assertEquals("U_CUST_1", transaction.getCustomerId());
+        assertEquals("ACC456", transaction.getBankSpecificAccountId());
+        assertEquals(time, transaction.getTransactionTime());
+        assertEquals(new BigDecimal("500.00"), transaction.getAmountStandard());
+        assertEquals("COFFEE SHOP", transaction.getDescription());
+        assertEquals("L1", transaction.getLocationCode());
+        assertEquals("POS_PURCHASE", transaction.getTransactionType());
+        assertTrue(transaction.getIsValid());
+    }
+
+    @Test
+    public void testRegistry_ReturnsIndexedMappersForAllRawAndEnrichedModels() {
+        assertInstanceOf(RawSourceDataRowMapper.class, RowMapperRegistry.forType(RawSourceData.class));
+        assertInstanceOf(RawBankTransactionRowMapper.class, RowMapperRegistry.forType(RawBankTransaction.class));
+        assertInstanceOf(EnrichedBankTransactionRowMapper.class, RowMapperRegistry.forType(EnrichedBankTransaction.class));
+    }
+}
@@ -0,0 +1,72 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.mapper;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.benchmark.StagingTransactions;
+import com.hibersoft.ms.bankcustomer.datamodeling.model.RawSourceData;
+
+/**
+ * Per-row cost of the column-indexed {@link RawSourceDataRowMapper} against {@link BeanPropertyRowMapper}.
+ * <p>
+ * Both mappers walk the same in-memory result set, filled with the staging rows, so the numbers
+ * exclude any driver or network cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RowMapperBenchmark {
+
+    private SimpleResultSet resultSet;
+    private RowMapper<RawSourceData> indexedMapper;
+    private RowMapper<RawSourceData> beanPropertyMapper;
+
+    @Setup
+    public void setUp() throws SQLException {
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("BANK_SPECIFIC_ACCOUNT_ID", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("TRANSACTION_DATE", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("AMOUNT", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("DESCRIPTION", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("LOCATION_CODE", Types.VARCHAR, 255, 0);
+        for (StagingTransactions.Row row : StagingTransactions.load()) {
+            resultSet.addRow(row.accountId(), row.transactionTime().toString(), row.amount(), row.description(),
+                    row.locationCode());
+        }
+
+        indexedMapper = new RawSourceDataRowMapper();
+        beanPropertyMapper = new BeanPropertyRowMapper<>(RawSourceData.class);
+    }
+
+    @Benchmark
+    public RawSourceData columnIndexed() throws SQLException {
+        return indexedMapper.mapRow(nextRow(), 0);
+    }
+
+    @Benchmark
+    public RawSourceData beanProperty() throws SQLException {
+        return beanPropertyMapper.mapRow(nextRow(), 0);
+    }
+
+    // Cycles through the staging rows; the cursor move is the same for both mappers
+    private SimpleResultSet nextRow() throws SQLException {
+        if (!resultSet.next()) {
+            resultSet.beforeFirst();
+            resultSet.next();
+        }
+        return resultSet;
+    }
+}
@@ -0,0 +1,74 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.catalog;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Finds the banks that can be ingested.
+ * <p>
+ * Active rows of {@code bank_registry} win when that table exists and is not empty; otherwise every
+ * {@code bank_<x>_transactions} table of the current schema is a bank, with id {@code BANK_<X>} (the
+ * reader derives the table name back from the id).
+ */
+@Component
+public class BankCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(BankCatalog.class);
+
+    static final String REGISTRY_TABLE = "bank_registry";
+    static final String REGISTRY_SQL = "SELECT bank_id FROM bank_registry WHERE active ORDER BY bank_id";
+
+    private static final Pattern BANK_TABLE = Pattern.compile("(bank_.+)_transactions");
+    private static final String[] TABLE_TYPES = { "TABLE", "PARTITIONED TABLE", "BASE TABLE" };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BankCatalog(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<String> discoverBankIds() {
+        Set<String> tableNames = tableNames();
+        if (tableNames.contains(REGISTRY_TABLE)) {
+            List<String> registered = jdbcTemplate.queryForList(REGISTRY_SQL, String.class);
+            if (!registered.isEmpty()) {
+                log.info("Discovered {} bank(s) from {}", registered.size(), REGISTRY_TABLE);
+                return registered;
+            }
+        }
+
+        List<String> bankIds = tableNames.stream()
+                .map(BANK_TABLE::matcher)
+                .filter(Matcher::matches)
+                .map(matcher -> matcher.group(1).toUpperCase(Locale.ROOT))
+                .toList();
+        log.info("Discovered {} bank table(s): {}", bankIds.size(), bankIds);
+        return bankIds;
+    }
+
+    // Lower-cased names of the tables in the connection's current schema, sorted
+    private Set<String> tableNames() {
+        return jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+            Set<String> names = new TreeSet<>();
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(), "%", TABLE_TYPES)) {
+                while (tables.next()) {
+                    names.add(tables.getString("TABLE_NAME").toLowerCase(Locale.ROOT));
+                }
+            }
+            return names;
+        });
+    }
+}
@@ -1,33 +1,62 @@
 package com.hibersoft.ms.bankcustomer.datamodeling.config;
 
 // ... (imports) ...
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.batch.core.configuration.annotation.StepScope;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
 import org.springframework.batch.core.repository.JobRepository;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
-import org.springframework.batch.item.database.JdbcCursorItemReader;
-import org.springframework.batch.item.database.JpaItemWriter;
-import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
-import org.springframework.batch.item.database.builder.JpaItemWriterBuilder;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
 import org.springframework.orm.jpa.JpaTransactionManager; 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import com.hibersoft.ms.bankcustomer.datamodeling.listener.FactsUpdatedNotifier;
+import com.hibersoft.ms.bankcustomer.datamodeling.mapper.RawSourceDataRowMapper;
+import com.hibersoft.ms.bankcustomer.datamodeling.mapper.RowMapperRegistry;
+import com.hibersoft.ms.bankcustomer.datamodeling.metrics.IngestionMetricsListener;
 import com.hibersoft.ms.bankcustomer.datamodeling.model.FactTransactionEntity;
 import com.hibersoft.ms.bankcustomer.datamodeling.model.RawSourceData;
+import com.hibersoft.ms.bankcustomer.datamodeling.partition.BankTablePartitioner;
+import com.hibersoft.ms.bankcustomer.datamodeling.partition.FactPartitionListener;
+import com.hibersoft.ms.bankcustomer.datamodeling.partition.FactTablePartitions;
+import com.hibersoft.ms.bankcustomer.datamodeling.watermark.IncrementalIngestionListener;
+import com.hibersoft.ms.bankcustomer.datamodeling.watermark.WatermarkRange;
+import com.hibersoft.ms.bankcustomer.datamodeling.watermark.WatermarkRepository;
+import com.hibersoft.ms.bankcustomer.datamodeling.writer.FactTransactionCopyWriter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.sql.DataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityManagerFactory;
 
 @Configuration
@@ -36,48 +65,123 @@ public class BatchConfiguration {
 
     private static final Logger log = LoggerFactory.getLogger(BatchConfiguration.class);
 
-    // Reader: Reads raw data from the dynamic bank table
+    // Partitioner: Splits the dynamic bank table into key ranges, one per worker step
     @Bean
     @StepScope
-    public JdbcCursorItemReader<RawSourceData> sourceDataReader(
+    public BankTablePartitioner bankTablePartitioner(
         DataSource dataSource,
-        @Value("#{jobParameters['bankId']}") String bankId
+        @Value("#{jobParameters['bankId']}") String bankId,
+        @Value("#{jobParameters['gridSize']}") Long gridSize,
+        @Value("#{jobExecutionContext['watermarkRange']}") WatermarkRange watermarkRange
     ) {
-        log.info("Configuring source data reader dynamically for bankId: {}", bankId);
         String tableName = bankId.toLowerCase() + "_transactions";
-        String sql = "SELECT bank_specific_account_id, transaction_date, amount, description, location_code FROM " + tableName;
-        
-        log.info("Reader SQL: {}", sql);
+        return new BankTablePartitioner(new JdbcTemplate(dataSource), tableName, gridSize != null ? gridSize.intValue() : null,
+                watermarkRange);
+    }
 
-        return new JdbcCursorItemReaderBuilder<RawSourceData>()
+    // Reader: Pages through one key range (partition) of the dynamic bank table by primary key.
+    // Each page is a bounded "WHERE bank_specific_account_id > :lastKey ORDER BY ... LIMIT pageSize" query, so heap
+    // use stays flat, and the last key read is saved in the step ExecutionContext so a restart resumes right after it.
+    @Bean
+    @StepScope
+    public JdbcPagingItemReader<RawSourceData> sourceDataReader(
+        DataSource dataSource,
+        @Value("#{jobParameters['bankId']}") String bankId,
+        @Value("#{stepExecutionContext['minKey']}") String minKey,
+        @Value("#{stepExecutionContext['maxKey']}") String maxKey,
+        @Value("#{jobExecutionContext['watermarkRange']}") WatermarkRange watermarkRange,
+        @Value("${app.ingestion.page-size:1000}") int pageSize,
+        @Value("${app.ingestion.fetch-size:1000}") int fetchSize
+    ) {
+        log.info("Configuring source data reader dynamically for bankId: {} [{} - {})", bankId, minKey, maxKey);
+        String tableName = bankId.toLowerCase() + "_transactions";
+
+        Map<String, Object> parameterValues = new HashMap<>();
+        List<String> conditions = new ArrayList<>();
+        if (minKey != null) {
+            conditions.add("bank_specific_account_id >= :minKey");
+            parameterValues.put("minKey", minKey);
+        }
+        if (maxKey != null) {
+            conditions.add("bank_specific_account_id < :maxKey");
+            parameterValues.put("maxKey", maxKey);
+        }
+        if (watermarkRange != null) {
+            // Incremental run: only rows past the bank's watermark (up to the newest row at job start)
+            watermarkRange.appendConditions(conditions, parameterValues);
+        }
+
+        log.info("Reader table: {}, range: {}, pageSize: {}, fetchSize: {}", tableName, conditions, pageSize, fetchSize);
+
+        JdbcPagingItemReaderBuilder<RawSourceData> builder = new JdbcPagingItemReaderBuilder<RawSourceData>()
                 .dataSource(dataSource)
                 .name("bankDataReader-" + bankId) // Unique name
-                .sql(sql)
-                .rowMapper(new BeanPropertyRowMapper<>(RawSourceData.class))
-                .build();
+                .selectClause("SELECT " + RawSourceDataRowMapper.COLUMNS)
+                .fromClause("FROM " + tableName)
+                .sortKeys(Map.of("bank_specific_account_id", Order.ASCENDING))
+                .pageSize(pageSize)
+                .fetchSize(fetchSize)
+                .rowMapper(RowMapperRegistry.forType(RawSourceData.class));
+        if (!conditions.isEmpty()) {
+            builder.whereClause(String.join(" AND ", conditions))
+                   .parameterValues(parameterValues);
+        }
+        return builder.build();
     }
 
-    // Processor: Simple pass-through with maximum logging
+    // Processor: Simple pass-through; logs one row in every log-sample-rate at DEBUG instead of every row at INFO.
+    // Rows without a parseable transaction date are filtered out (counted as the step's filter count and
+    // ingestion.items{stage=filtered}), so that one bad row does not fail the partition and hold back the watermark
     @Bean
-    public ItemProcessor<RawSourceData, FactTransactionEntity> processor() {
+    @StepScope
+    public ItemProcessor<RawSourceData, FactTransactionEntity> processor(
+        @Value("#{jobParameters['bankId']}") String bankId,
+        @Value("${app.ingestion.log-sample-rate:1000}") long logSampleRate
+    ) {
+        long sampleRate = Math.max(1, logSampleRate);
+        AtomicLong processed = new AtomicLong();
         return rawData -> {
-            log.info("Processing RawSourceData: Account ID={}, Amount={}", rawData.getBankSpecificAccountId(), rawData.getAmount());
+            boolean sampled = log.isDebugEnabled() && processed.getAndIncrement() % sampleRate == 0;
             FactTransactionEntity fact = new FactTransactionEntity();
-            fact.setCustomerId("U_" + rawData.getBankSpecificAccountId()); // Simplified MDM
+            // Natural key of the fact: the writer upserts on (bank_id, source_transaction_id)
+            fact.setBankId(bankId.toUpperCase());
+            fact.setSourceTransactionId(rawData.getBankSpecificAccountId());
+            fact.setCustomerId("U_" + rawData.getAccountId()); // Simplified MDM
+            // Partition key of fact_transactions; bank tables hold ISO or "yyyy-MM-dd HH:mm:ss" text
+            LocalDateTime transactionTime = parseTransactionTime(rawData.getTransactionDate());
+            if (transactionTime == null) {
+                log.warn("Skipping row {} of {}: unparseable transaction date '{}'", rawData.getBankSpecificAccountId(),
+                        bankId.toUpperCase(), rawData.getTransactionDate());
+                return null;
+            }
+            fact.setTransactionTime(transactionTime);
             fact.setDescriptionStandard(rawData.getDescription());
             fact.setLocationCode(rawData.getLocationCode());
-            log.debug("Mapped to Fact Entity for Customer: {}", fact.getCustomerId());
+            if (sampled) {
+                log.debug("Processing RawSourceData #{}: Account ID={}, Amount={} -> Customer {}", processed.get(),
+                        rawData.getBankSpecificAccountId(), rawData.getAmount(), fact.getCustomerId());
+            }
             return fact;
         };
     }
 
-    // Writer: Writes facts to FACT_TRANSACTIONS table (logging is handled by Spring Batch implicitly)
+    // ISO or "yyyy-MM-dd HH:mm:ss" text to a time, or null when missing or malformed
+    static LocalDateTime parseTransactionTime(String transactionDate) {
+        if (transactionDate == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(transactionDate.trim().replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // Writer: Streams facts into FACT_TRANSACTIONS with COPY (multi-row JDBC batch on non-PostgreSQL databases)
     @Bean
-    public JpaItemWriter<FactTransactionEntity> writer(EntityManagerFactory entityManagerFactory) {
-        log.info("Configuring JpaItemWriter for FACT_TRANSACTIONS");
-        return new JpaItemWriterBuilder<FactTransactionEntity>()
-                .entityManagerFactory(entityManagerFactory)
-                .build();
+    public FactTransactionCopyWriter writer(DataSource dataSource) {
+        log.info("Configuring FactTransactionCopyWriter for FACT_TRANSACTIONS");
+        return new FactTransactionCopyWriter(dataSource);
     }
 
     @Bean
@@ -88,25 +192,125 @@ public class BatchConfiguration {
     }
     
 
-    // Step: Defines the chunk size and flow
+    // Executor: Runs the partitions of one job concurrently (platform or virtual threads)
     @Bean
-    public Step ingestionStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
-                              JdbcCursorItemReader<RawSourceData> reader, JpaItemWriter<FactTransactionEntity> writer,
-                              ItemProcessor<RawSourceData, FactTransactionEntity> processor) {
-        log.info("Configuring ingestionStep with chunk size 10");
-        return new StepBuilder("ingestionStep", jobRepository)
-                .<RawSourceData, FactTransactionEntity>chunk(10, transactionManager)
+    public TaskExecutor ingestionTaskExecutor(
+        @Value("${app.ingestion.pool-size:4}") int poolSize,
+        @Value("${app.ingestion.virtual-threads:false}") boolean virtualThreads
+    ) {
+        log.info("Configuring ingestion task executor: poolSize={}, virtualThreads={}", poolSize, virtualThreads);
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ingestion-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(poolSize);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("ingestion-");
+        return executor;
+    }
+
+    // Executor: Runs whole bank jobs launched by start-all; at most max-concurrent-banks at a time, the rest queue
+    @Bean(defaultCandidate = false)
+    public ThreadPoolTaskExecutor bankJobTaskExecutor(@Value("${app.ingestion.max-concurrent-banks:4}") int maxConcurrentBanks) {
+        log.info("Configuring bank job task executor: maxConcurrentBanks={}", maxConcurrentBanks);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentBanks);
+        executor.setMaxPoolSize(maxConcurrentBanks);
+        executor.setThreadNamePrefix("bank-job-");
+        return executor;
+    }
+
+    // Launcher: Returns as soon as the job execution is created; the job itself runs on bankJobTaskExecutor.
+    // Not a default candidate, so the synchronous jobLauncher stays the one injected by type.
+    @Bean(defaultCandidate = false)
+    public JobLauncher asyncJobLauncher(JobRepository jobRepository,
+                                        @Qualifier("bankJobTaskExecutor") TaskExecutor bankJobTaskExecutor) throws Exception {
+        TaskExecutorJobLauncher jobLauncher = new TaskExecutorJobLauncher();
+        jobLauncher.setJobRepository(jobRepository);
+        jobLauncher.setTaskExecutor(bankJobTaskExecutor);
+        jobLauncher.afterPropertiesSet();
+        return jobLauncher;
+    }
+
+    // Listener: Read/process/write timers and chunk latency of one partition, tagged with its bank and step
+    @Bean
+    @StepScope
+    public IngestionMetricsListener<RawSourceData, FactTransactionEntity> ingestionMetricsListener(
+        MeterRegistry meterRegistry,
+        @Value("#{jobParameters['bankId']}") String bankId,
+        @Value("#{stepExecution.stepName}") String stepName
+    ) {
+        return new IngestionMetricsListener<>(meterRegistry, bankId.toUpperCase(), stepName);
+    }
+
+    // Worker step: Defines the chunk size and flow for a single partition
+    @Bean
+    public Step ingestionWorkerStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                    JdbcPagingItemReader<RawSourceData> reader, FactTransactionCopyWriter writer,
+                                    ItemProcessor<RawSourceData, FactTransactionEntity> processor,
+                                    IngestionMetricsListener<RawSourceData, FactTransactionEntity> ingestionMetricsListener,
+                                    @Value("${app.ingestion.chunk-size:1000}") int chunkSize) {
+        log.info("Configuring ingestionWorkerStep with chunk size {}", chunkSize);
+        return new StepBuilder("ingestionWorkerStep", jobRepository)
+                .<RawSourceData, FactTransactionEntity>chunk(chunkSize, transactionManager)
                 .reader(reader)
                 .processor(processor)
                 .writer(writer)
+                .listener((ChunkListener) ingestionMetricsListener)
+                .listener((ItemReadListener<RawSourceData>) ingestionMetricsListener)
+                .listener((ItemProcessListener<RawSourceData, FactTransactionEntity>) ingestionMetricsListener)
+                .listener((ItemWriteListener<FactTransactionEntity>) ingestionMetricsListener)
+                .build();
+    }
+
+    // Step: Partitions the bank table and fans the partitions out to worker steps
+    @Bean
+    public Step ingestionStep(JobRepository jobRepository, Step ingestionWorkerStep,
+                              BankTablePartitioner bankTablePartitioner, TaskExecutor ingestionTaskExecutor,
+                              @Value("${app.ingestion.grid-size:4}") int gridSize) {
+        log.info("Configuring partitioned ingestionStep with default grid size {}", gridSize);
+        return new StepBuilder("ingestionStep", jobRepository)
+                .partitioner("ingestionWorkerStep", bankTablePartitioner)
+                .step(ingestionWorkerStep)
+                .gridSize(gridSize)
+                .taskExecutor(ingestionTaskExecutor)
                 .build();
     }
 
+    // Listener: Fixes the watermark range of each run and advances the bank's watermark when the run completes
+    @Bean
+    public IncrementalIngestionListener incrementalIngestionListener(WatermarkRepository watermarkRepository,
+                                                                     @Value("${app.ingestion.watermark.settle:PT1M}") Duration settle) {
+        return new IncrementalIngestionListener(watermarkRepository, settle);
+    }
+
+    // Listener: Creates the monthly fact partitions of the run's range (after the range is fixed)
+    @Bean
+    public FactPartitionListener factPartitionListener(FactTablePartitions factTablePartitions,
+                                                       WatermarkRepository watermarkRepository) {
+        return new FactPartitionListener(factTablePartitions, watermarkRepository);
+    }
+
+    // Listener: Notifies the analytics service once a run has written facts
+    @Bean
+    public FactsUpdatedNotifier factsUpdatedNotifier(JdbcTemplate jdbcTemplate) {
+        return new FactsUpdatedNotifier(jdbcTemplate);
+    }
+
     // Job: Orchestrates the step
     @Bean
-    public Job ingestBankDataJob(JobRepository jobRepository, Step ingestionStep) {
+    public Job ingestBankDataJob(JobRepository jobRepository, Step ingestionStep,
+                                 IncrementalIngestionListener incrementalIngestionListener,
+                                 FactPartitionListener factPartitionListener,
+                                 FactsUpdatedNotifier factsUpdatedNotifier) {
         log.info("Building ingestBankDataJob");
         return new JobBuilder("ingestBankDataJob", jobRepository)
+                .listener(incrementalIngestionListener)
+                .listener(factPartitionListener)
+                .listener(factsUpdatedNotifier)
                 .start(ingestionStep)
                 .build();
     }
@@ -0,0 +1,37 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.mapper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.model.RawSourceData;
+
+/**
+ * Central lookup of the row mappers used by the batch readers.
+ * <p>
+ * Models with a hand-written, column-indexed mapper are registered here; any other type falls
+ * back to a (cached) {@link BeanPropertyRowMapper}.
+ */
+public final class RowMapperRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(RowMapperRegistry.class);
+
+    private static final Map<Class<?>, RowMapper<?>> MAPPERS = new ConcurrentHashMap<>(Map.of(
+            RawSourceData.class, new RawSourceDataRowMapper()
+    ));
+
+    private RowMapperRegistry() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> RowMapper<T> forType(Class<T> type) {
+        return (RowMapper<T>) MAPPERS.computeIfAbsent(type, missing -> {
+            log.warn("No column-indexed RowMapper registered for {}, falling back to BeanPropertyRowMapper", missing.getName());
+            return new BeanPropertyRowMapper<>(missing);
+        });
+    }
+}
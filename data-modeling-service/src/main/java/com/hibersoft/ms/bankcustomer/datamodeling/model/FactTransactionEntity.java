@@ -1,8 +1,11 @@
 package com.hibersoft.ms.bankcustomer.datamodeling.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -10,15 +13,18 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "FACT_TRANSACTIONS")
+@Table(name = "FACT_TRANSACTIONS", uniqueConstraints = @UniqueConstraint(
+        name = "fact_transactions_natural_key", columnNames = {"bank_id", "source_transaction_id"}))
 @Getter
 @Setter
 public class FactTransactionEntity {
        // Primary key for the fact table (might be a sequence generated ID or a composite key)
     @Id 
+    @GeneratedValue(strategy = GenerationType.IDENTITY) // fact_transactions.id is an identity column
     private Long id; 
     
     private String bankId;
+    private String sourceTransactionId; // Key of the row in the bank's table; unique per bank
     private String customerId; // The unified/master ID
     private LocalDateTime transactionTime;
     private BigDecimal amountStandard;
@@ -16,4 +16,11 @@ public class RawSourceData {
     private String amount;
     private String description;
     private String locationCode;
+
+    // Generated rows are keyed "<account id>/<transaction id>", so that an account's transactions share the
+    // account; rows keyed by a bare id are their own account
+    public String getAccountId() {
+        int separator = bankSpecificAccountId.indexOf('/');
+        return separator < 0 ? bankSpecificAccountId : bankSpecificAccountId.substring(0, separator);
+    }
 }
@@ -0,0 +1,91 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.partition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.watermark.WatermarkRange;
+
+/**
+ * Splits a {@code <bank>_transactions} table into contiguous key ranges of
+ * {@code bank_specific_account_id} holding roughly the same number of rows.
+ * <p>
+ * Each partition carries an inclusive {@link #MIN_KEY} and an exclusive {@link #MAX_KEY}
+ * (absent for the first/last range), so every worker step reads a disjoint slice of the table
+ * and can be restarted on its own. When a {@link WatermarkRange} is given, only the rows inside it
+ * are split, so an incremental run gets evenly sized partitions of the delta.
+ */
+public class BankTablePartitioner implements Partitioner {
+
+    public static final String MIN_KEY = "minKey";
+    public static final String MAX_KEY = "maxKey";
+
+    private static final Logger log = LoggerFactory.getLogger(BankTablePartitioner.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final String tableName;
+    private final Integer gridSizeOverride;
+    private final WatermarkRange range;
+
+    public BankTablePartitioner(JdbcTemplate jdbcTemplate, String tableName, Integer gridSizeOverride) {
+        this(jdbcTemplate, tableName, gridSizeOverride, null);
+    }
+
+    /**
+     * @param gridSizeOverride grid size requested for this run (e.g. from a job parameter);
+     *                         when {@code null} the grid size configured on the step is used
+     * @param range            rows of this run, or {@code null} for the whole table
+     */
+    public BankTablePartitioner(JdbcTemplate jdbcTemplate, String tableName, Integer gridSizeOverride, WatermarkRange range) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.tableName = tableName;
+        this.gridSizeOverride = gridSizeOverride;
+        this.range = range;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        int effectiveGridSize = Math.max(1, gridSizeOverride != null ? gridSizeOverride : gridSize);
+
+        // One ordered pass over the primary key index: NTILE assigns every key to a bucket and the
+        // smallest key of each bucket becomes the lower bound of a partition.
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameterValues = new HashMap<>();
+        if (range != null) {
+            range.appendConditions(conditions, parameterValues);
+        }
+        String sql = "SELECT MIN(bank_specific_account_id) FROM ("
+                + "SELECT bank_specific_account_id, NTILE(" + effectiveGridSize + ") OVER (ORDER BY bank_specific_account_id) AS bucket "
+                + "FROM " + tableName + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + ") ranked GROUP BY bucket ORDER BY 1";
+        List<String> lowerBounds = jdbcTemplate.queryForList(sql, parameterValues, String.class);
+
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        if (lowerBounds.isEmpty()) {
+            // Empty table: still hand out a single (empty) partition so the step completes normally
+            partitions.put("partition0", new ExecutionContext());
+        }
+        for (int i = 0; i < lowerBounds.size(); i++) {
+            ExecutionContext context = new ExecutionContext();
+            if (i > 0) {
+                context.putString(MIN_KEY, lowerBounds.get(i));
+            }
+            if (i + 1 < lowerBounds.size()) {
+                context.putString(MAX_KEY, lowerBounds.get(i + 1));
+            }
+            partitions.put("partition" + i, context);
+        }
+
+        log.info("Split {} into {} partition(s) (requested grid size {})", tableName, partitions.size(), effectiveGridSize);
+        return partitions;
+    }
+}
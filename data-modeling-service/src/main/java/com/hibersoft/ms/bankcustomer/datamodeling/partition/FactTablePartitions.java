@@ -0,0 +1,100 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.partition;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Manages the monthly partitions of {@code fact_transactions}, which is range-partitioned on
+ * {@code transaction_time} in PostgreSQL (see datamodelingdb.sql). The partition of month M is
+ * {@code fact_transactions_yYYYYmMM} and holds {@code [M-01, M+1-01)}; rows outside every month fall
+ * into {@code fact_transactions_default}.
+ * <p>
+ * Everything here is a no-op unless {@code fact_transactions} is a partitioned PostgreSQL table, so H2
+ * and unpartitioned schemas behave as before.
+ */
+@Component
+public class FactTablePartitions {
+
+    private static final Logger log = LoggerFactory.getLogger(FactTablePartitions.class);
+
+    static final String TABLE = "fact_transactions";
+    static final String IS_PARTITIONED_SQL = "SELECT COUNT(*) FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid "
+            + "WHERE c.relname = '" + TABLE + "' AND pg_table_is_visible(c.oid)";
+    static final String MONTHLY_PARTITIONS_SQL = "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+            + "JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = '" + TABLE + "' AND pg_table_is_visible(p.oid) "
+            + "ORDER BY c.relname";
+
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile(TABLE + "_y(\\d{4})m(\\d{2})");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FactTablePartitions(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("%s_y%04dm%02d", TABLE, month.getYear(), month.getMonthValue());
+    }
+
+    /**
+     * Creates the missing monthly partitions from the month of {@code from} to the month of {@code to}.
+     * Runs outside of chunk transactions, since attaching a partition locks the parent table. A month
+     * that cannot be created (e.g. the default partition already holds rows of it) is logged and its
+     * rows keep going to the default partition.
+     */
+    public void ensureMonths(LocalDate from, LocalDate to) {
+        if (!isPartitioned()) {
+            return;
+        }
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+            String sql = "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF " + TABLE
+                    + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+            try {
+                jdbcTemplate.execute(sql);
+            } catch (DataAccessException e) {
+                // Also raised when a concurrent job created the same month first
+                log.warn("Could not create partition {}: {}", partitionName(month), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Detaches every monthly partition that ends on or before {@code before}, so it can be archived or
+     * dropped as a standalone table without deleting rows from {@code fact_transactions}. The daily
+     * rollups keep the detached months' totals.
+     * @return names of the detached tables
+     */
+    public List<String> detachMonthsBefore(YearMonth before) {
+        List<String> detached = new ArrayList<>();
+        if (!isPartitioned()) {
+            return detached;
+        }
+        for (String partition : jdbcTemplate.queryForList(MONTHLY_PARTITIONS_SQL, String.class)) {
+            Matcher matcher = MONTHLY_PARTITION.matcher(partition);
+            if (matcher.matches()
+                    && YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))).isBefore(before)) {
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+                detached.add(partition);
+                log.info("Detached partition {}", partition);
+            }
+        }
+        return detached;
+    }
+
+    boolean isPartitioned() {
+        boolean postgres = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+        return postgres && Integer.valueOf(1).equals(jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Integer.class));
+    }
+}
@@ -0,0 +1,61 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.watermark;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.JobParameter;
+
+/**
+ * Turns {@code ingestBankDataJob} into an incremental load.
+ * <p>
+ * Before the job, the range between the bank's stored watermark and the table's newest settled row
+ * (by {@code ingest_seq}, i.e. insertion order) is put into the job ExecutionContext, where the
+ * partitioner and the readers pick it up. Only when the job completes is the watermark advanced to the
+ * end of that range, so a failed run is simply retried over the same rows. The {@code fullRebuild} job
+ * parameter ignores the stored watermark.
+ * <p>
+ * Rows younger than the settle window are left for the next run: it must be longer than the longest
+ * transaction writing to the bank tables, or a row committed after a later one could be skipped.
+ */
+public class IncrementalIngestionListener implements JobExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(IncrementalIngestionListener.class);
+
+    public static final String FULL_REBUILD = "fullRebuild";
+
+    private final WatermarkRepository watermarkRepository;
+    private final Duration settle;
+
+    public IncrementalIngestionListener(WatermarkRepository watermarkRepository, Duration settle) {
+        this.watermarkRepository = watermarkRepository;
+        this.settle = settle;
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        String bankId = jobExecution.getJobParameters().getString("bankId");
+        JobParameter<?> fullRebuildParameter = jobExecution.getJobParameters().getParameter(FULL_REBUILD);
+        boolean fullRebuild = fullRebuildParameter != null && Boolean.parseBoolean(String.valueOf(fullRebuildParameter.getValue()));
+
+        IngestionWatermark from = fullRebuild ? null : watermarkRepository.find(bankId);
+        IngestionWatermark to = watermarkRepository.findNewestSettled(bankId.toLowerCase() + "_transactions", settle);
+        WatermarkRange range = new WatermarkRange(from, to);
+        jobExecution.getExecutionContext().put(WatermarkRange.CONTEXT_KEY, range);
+        log.info("Ingesting {} {} from {} to {}", bankId, fullRebuild ? "(full rebuild)" : "incrementally", from, to);
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        WatermarkRange range = (WatermarkRange) jobExecution.getExecutionContext().get(WatermarkRange.CONTEXT_KEY);
+        if (jobExecution.getStatus() != BatchStatus.COMPLETED || range == null || range.to() == null) {
+            return;
+        }
+        String bankId = jobExecution.getJobParameters().getString("bankId");
+        watermarkRepository.save(bankId, range.to());
+        log.info("Advanced watermark of {} to {}", bankId, range.to());
+    }
+}
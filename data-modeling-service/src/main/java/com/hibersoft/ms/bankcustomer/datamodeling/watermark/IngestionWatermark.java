@@ -0,0 +1,11 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.watermark;
+
+import java.io.Serializable;
+
+/**
+ * Position in a {@code <bank>_transactions} table: the {@code ingest_seq} of a row. The sequence follows
+ * insertion order, so a row that arrives late with an old {@code transaction_date} still lands past the
+ * watermark of every earlier run.
+ */
+public record IngestionWatermark(long ingestSeq) implements Serializable {
+}
@@ -0,0 +1,71 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.watermark;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads and writes the per-bank high-watermarks kept in {@code ingestion_watermark}.
+ */
+@Repository
+public class WatermarkRepository {
+
+    /**
+     * First and last {@code transaction_date} of the rows in a range (both {@code null} when none is dated).
+     */
+    public record DateSpan(String first, String last) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WatermarkRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public IngestionWatermark find(String bankId) {
+        List<Long> watermarks = jdbcTemplate.queryForList(
+                "SELECT last_ingest_seq FROM ingestion_watermark WHERE bank_id = ?", Long.class, bankId);
+        return watermarks.isEmpty() || watermarks.get(0) == null ? null : new IngestionWatermark(watermarks.get(0));
+    }
+
+    // Newest row of the bank table inserted at least `settle` ago (by the database clock), or null when there is none.
+    // Sequence values are handed out at insert but become visible at commit, so a row with a lower ingest_seq can
+    // still be in flight; waiting `settle` before reading up to a row keeps such rows from falling behind the watermark.
+    public IngestionWatermark findNewestSettled(String tableName, Duration settle) {
+        Timestamp now = jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class);
+        Long newest = jdbcTemplate.queryForObject(
+                "SELECT MAX(ingest_seq) FROM " + tableName + " WHERE ingested_at <= ?",
+                Long.class, Timestamp.from(now.toInstant().minus(settle)));
+        return newest == null ? null : new IngestionWatermark(newest);
+    }
+
+    public DateSpan findDateSpan(String tableName, WatermarkRange range) {
+        List<String> conditions = new ArrayList<>();
+        Map<String, Object> parameterValues = new HashMap<>();
+        conditions.add("transaction_date IS NOT NULL");
+        range.appendConditions(conditions, parameterValues);
+        return new NamedParameterJdbcTemplate(jdbcTemplate).queryForObject(
+                "SELECT MIN(transaction_date), MAX(transaction_date) FROM " + tableName + " WHERE " + String.join(" AND ", conditions),
+                parameterValues, (rs, rowNum) -> new DateSpan(rs.getString(1), rs.getString(2)));
+    }
+
+    public void save(String bankId, IngestionWatermark watermark) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int updated = jdbcTemplate.update(
+                "UPDATE ingestion_watermark SET last_ingest_seq = ?, updated_at = ? WHERE bank_id = ?",
+                watermark.ingestSeq(), now, bankId);
+        if (updated == 0) {
+            jdbcTemplate.update(
+                    "INSERT INTO ingestion_watermark (bank_id, last_ingest_seq, updated_at) VALUES (?, ?, ?)",
+                    bankId, watermark.ingestSeq(), now);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.writer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.model.FactTransactionEntity;
+
+/**
+ * Upserts fact rows into {@code fact_transactions} on their natural key ({@code bank_id},
+ * {@code source_transaction_id}) without going through the persistence context, so re-running a
+ * job, restarting it or overlapping two runs rewrites the same rows instead of duplicating them.
+ * <p>
+ * On PostgreSQL each chunk is streamed with {@code COPY ... FROM STDIN (FORMAT csv)} into a
+ * session-local staging table (emptied on commit) and merged with a single
+ * {@code INSERT ... ON CONFLICT DO UPDATE}; rows that did not change are left untouched. As
+ * {@code fact_transactions} is partitioned by {@code transaction_time}, its unique key also holds the
+ * time, so a fact whose time changed is first deleted from its old partition. On any
+ * other database (H2 in tests) the chunk falls back to a JDBC batch of {@code MERGE ... KEY}.
+ * Ids are left to the table's id default.
+ * <p>
+ * Unlike the simple-data-modeling-service writer, this one only writes {@code fact_transactions}: the daily
+ * rollups ({@code rollup_*}) and sketches ({@code sketch_daily}) read by the analytics service are not
+ * maintained, so facts loaded through this service are missing from them until
+ * {@code migrations/002_rebuild_rollups.sql} is run for the rollups and the simple-data-modeling-service
+ * {@code POST /api/v1/simple-ingestion/sketches/rebuild/{bankId}} for the sketches.
+ */
+public class FactTransactionCopyWriter implements ItemWriter<FactTransactionEntity> {
+
+    private static final Logger log = LoggerFactory.getLogger(FactTransactionCopyWriter.class);
+
+    static final List<String> KEY_COLUMNS = List.of("bank_id", "source_transaction_id");
+    static final List<String> VALUE_COLUMNS = List.of("customer_id", "transaction_time", "amount_standard",
+            "description_standard", "location_code", "transaction_type", "is_valid");
+    static final String COLUMNS = String.join(", ", KEY_COLUMNS) + ", " + String.join(", ", VALUE_COLUMNS);
+    static final String KEY = String.join(", ", KEY_COLUMNS);
+    // Unique key of the partitioned table, which must include the partition key
+    static final String CONFLICT_KEY = KEY + ", transaction_time";
+
+    static final String CREATE_STAGE_SQL = "CREATE TEMP TABLE IF NOT EXISTS fact_transactions_stage ON COMMIT DELETE ROWS AS "
+            + "SELECT " + COLUMNS + " FROM fact_transactions WITH NO DATA";
+    static final String COPY_SQL = "COPY fact_transactions_stage (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+    static final String UPSERT_SQL = "INSERT INTO fact_transactions (" + COLUMNS + ") "
+            + "SELECT DISTINCT ON (" + KEY + ") " + COLUMNS + " FROM fact_transactions_stage ORDER BY " + KEY + " "
+            + "ON CONFLICT (" + CONFLICT_KEY + ") DO UPDATE SET "
+            + VALUE_COLUMNS.stream().map(column -> column + " = EXCLUDED." + column).collect(Collectors.joining(", "))
+            + " WHERE (" + VALUE_COLUMNS.stream().map(column -> "fact_transactions." + column).collect(Collectors.joining(", "))
+            + ") IS DISTINCT FROM (" + VALUE_COLUMNS.stream().map(column -> "EXCLUDED." + column).collect(Collectors.joining(", ")) + ")";
+    // Previous versions of staged facts that moved to another transaction time (and so another partition)
+    static final String DELETE_MOVED_SQL = "DELETE FROM fact_transactions f WHERE EXISTS (SELECT 1 FROM fact_transactions_stage s "
+            + "WHERE s.bank_id = f.bank_id AND s.source_transaction_id = f.source_transaction_id "
+            + "AND s.transaction_time <> f.transaction_time)";
+    static final String MERGE_SQL = "MERGE INTO fact_transactions (" + COLUMNS + ") KEY (" + KEY + ") VALUES ("
+            + String.join(", ", Collections.nCopies(KEY_COLUMNS.size() + VALUE_COLUMNS.size(), "?")) + ")";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public FactTransactionCopyWriter(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void write(Chunk<? extends FactTransactionEntity> chunk) throws Exception {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                int rows = copyAndUpsert(connection, chunk);
+                log.debug("Upserted {} of {} fact rows", rows, chunk.size());
+            } else {
+                batchMerge(chunk);
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private int copyAndUpsert(Connection connection, Chunk<? extends FactTransactionEntity> chunk) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGE_SQL);
+            copy(connection.unwrap(PGConnection.class), chunk);
+            statement.executeUpdate(DELETE_MOVED_SQL);
+            return statement.executeUpdate(UPSERT_SQL);
+        }
+    }
+
+    private long copy(PGConnection connection, Chunk<? extends FactTransactionEntity> chunk) throws Exception {
+        CopyIn copyIn = connection.getCopyAPI().copyIn(COPY_SQL);
+        try {
+            StringBuilder line = new StringBuilder(256);
+            for (FactTransactionEntity fact : chunk) {
+                line.setLength(0);
+                appendCsvLine(line, toRow(fact));
+                byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+            }
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private void batchMerge(Chunk<? extends FactTransactionEntity> chunk) {
+        List<Object[]> batchArgs = new ArrayList<>(chunk.size());
+        for (FactTransactionEntity fact : chunk) {
+            batchArgs.add(toRow(fact));
+        }
+        jdbcTemplate.batchUpdate(MERGE_SQL, batchArgs);
+    }
+
+    // Column values in the order of COLUMNS
+    static Object[] toRow(FactTransactionEntity fact) {
+        return new Object[] {
+            fact.getBankId(), fact.getSourceTransactionId(), fact.getCustomerId(), fact.getTransactionTime(), fact.getAmountStandard(),
+            fact.getDescriptionStandard(), fact.getLocationCode(), fact.getTransactionType(), fact.getIsValid()
+        };
+    }
+
+    /**
+     * Appends one CSV record: nulls become empty unquoted fields (NULL for COPY), strings are always
+     * quoted so that an empty string stays an empty string.
+     */
+    static void appendCsvLine(StringBuilder line, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof String text) {
+                line.append('"');
+                for (int c = 0; c < text.length(); c++) {
+                    char ch = text.charAt(c);
+                    if (ch == '"') {
+                        line.append('"');
+                    }
+                    line.append(ch);
+                }
+                line.append('"');
+            } else if (value instanceof BigDecimal amount) {
+                line.append(amount.toPlainString());
+            } else if (value instanceof LocalDateTime time) {
+                line.append(time);
+            } else {
+                line.append(value);
+            }
+        }
+        line.append('\n');
+    }
+}
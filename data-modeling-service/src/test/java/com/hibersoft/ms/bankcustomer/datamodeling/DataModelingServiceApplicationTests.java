@@ -10,12 +10,18 @@ import org.springframework.context.annotation.Import;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.web.servlet.MockMvc;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.sql.DataSource;
 import org.springframework.batch.core.JobParametersBuilder;
-import org.springframework.batch.item.database.JdbcCursorItemReader;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -28,7 +34,7 @@ import com.hibersoft.ms.bankcustomer.datamodeling.model.RawSourceData;
 @AutoConfigureMockMvc
 @Import(BatchConfiguration.class)
 @SpringBatchTest 
-@Sql(scripts = "classpath:batch-schema-h2.sql", executionPhase = ExecutionPhase.BEFORE_TEST_CLASS)
+@Sql(scripts = { "classpath:batch-schema-h2.sql", "classpath:ingestion-schema-h2.sql" }, executionPhase = ExecutionPhase.BEFORE_TEST_CLASS)
 class DataModelingServiceApplicationTests {
 
     @Autowired
@@ -50,12 +56,90 @@ class DataModelingServiceApplicationTests {
     }
 
     @Test
-    void testDynamicReaderSQL_withBankId() throws Exception {
+    void testStartAllEndpoint_ReturnsExecutionIdPerDiscoveredBank() throws Exception {
+        // Arrange
+        createBankTable("bank_z_transactions", "ACC1");
+
+        // Act & Assert: the response does not wait for the job to run
+        mockMvc.perform(post("/api/v1/ingestion/start-all"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.executions.BANK_Z").isNumber());
+    }
+
+    @Test
+    void testDynamicReader_withBankId_ReadsInKeyOrderAcrossPages() throws Exception {
+        // Arrange
+        createBankTable("bank_b_transactions", "ACC5", "ACC1", "ACC4", "ACC2", "ACC3");
+        JdbcPagingItemReader<RawSourceData> reader = new BatchConfiguration().sourceDataReader(dataSource, "BANK_B", null, null, null, 2, 2);
+        reader.afterPropertiesSet();
+
+        // Act
+        List<String> keys = readKeys(reader, new ExecutionContext(), Integer.MAX_VALUE);
+
+        // Assert
+        Assertions.assertEquals(List.of("ACC1", "ACC2", "ACC3", "ACC4", "ACC5"), keys);
+    }
+
+    @Test
+    void testDynamicReader_withPartitionRange() throws Exception {
+        // Arrange
+        createBankTable("bank_b_transactions", "ACC1", "ACC2", "ACC3", "ACC4", "ACC5");
+        JdbcPagingItemReader<RawSourceData> reader = new BatchConfiguration().sourceDataReader(dataSource, "BANK_B", "ACC2", "ACC4", null, 2, 2);
+        reader.afterPropertiesSet();
+
+        // Act
+        List<String> keys = readKeys(reader, new ExecutionContext(), Integer.MAX_VALUE);
+
+        // Assert
+        Assertions.assertEquals(List.of("ACC2", "ACC3"), keys);
+    }
+
+    @Test
+    void testDynamicReader_RestartResumesAfterLastSavedKey() throws Exception {
         // Arrange
-        String bankId = "BANK_B";
-        JdbcCursorItemReader<RawSourceData> reader = new BatchConfiguration().sourceDataReader(dataSource, bankId);
+        createBankTable("bank_b_transactions", "ACC1", "ACC2", "ACC3", "ACC4", "ACC5");
+        ExecutionContext executionContext = new ExecutionContext();
+        JdbcPagingItemReader<RawSourceData> firstRun = new BatchConfiguration().sourceDataReader(dataSource, "BANK_B", null, null, null, 2, 2);
+        firstRun.afterPropertiesSet();
+        readKeys(firstRun, executionContext, 3);
+
+        // Act
+        JdbcPagingItemReader<RawSourceData> restarted = new BatchConfiguration().sourceDataReader(dataSource, "BANK_B", null, null, null, 2, 2);
+        restarted.afterPropertiesSet();
+        List<String> keys = readKeys(restarted, executionContext, Integer.MAX_VALUE);
+
+        // Assert
+        Assertions.assertEquals(List.of("ACC4", "ACC5"), keys);
+    }
+
+    @Test
+    void testStartJobEndpoint_AcceptsGridSize() throws Exception {
+        mockMvc.perform(post("/api/v1/ingestion/start/BANK_A").param("gridSize", "8"))
+               .andExpect(status().isOk());
+    }
+
+    private void createBankTable(String tableName, String... accountIds) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + tableName);
+        jdbcTemplate.execute("CREATE TABLE " + tableName + " (bank_specific_account_id VARCHAR(255) PRIMARY KEY, "
+                + "transaction_date VARCHAR(255), amount VARCHAR(255), description VARCHAR(255), location_code VARCHAR(255), "
+                + "ingest_seq BIGINT GENERATED BY DEFAULT AS IDENTITY, ingested_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+        for (String accountId : accountIds) {
+            jdbcTemplate.update("INSERT INTO " + tableName + " (bank_specific_account_id, transaction_date, amount, description, location_code) "
+                    + "VALUES (?, '2024-01-01T10:00:00', '10.00', 'Groceries', 'L1')", accountId);
+        }
+    }
 
-        // Act & Assert
-        Assertions.assertEquals("SELECT bank_specific_account_id, transaction_date, amount, description, location_code FROM bank_b_transactions", reader.getSql());
+    // Reads up to maxItems keys, then saves the reader state into the given context (as a chunk commit would)
+    private List<String> readKeys(JdbcPagingItemReader<RawSourceData> reader, ExecutionContext executionContext, int maxItems) throws Exception {
+        List<String> keys = new ArrayList<>();
+        reader.open(executionContext);
+        RawSourceData item;
+        while (keys.size() < maxItems && (item = reader.read()) != null) {
+            keys.add(item.getBankSpecificAccountId());
+        }
+        reader.update(executionContext);
+        reader.close();
+        return keys;
     }
 }
@@ -0,0 +1,61 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.catalog;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+public class BankCatalogTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE bank_b_transactions (bank_specific_account_id VARCHAR(255) PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE bank_a_transactions (bank_specific_account_id VARCHAR(255) PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE fact_transactions (id BIGINT PRIMARY KEY)");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testDiscoverBankIds_FromBankTables() {
+        // Act
+        List<String> bankIds = new BankCatalog(jdbcTemplate).discoverBankIds();
+
+        // Assert
+        assertEquals(List.of("BANK_A", "BANK_B"), bankIds);
+    }
+
+    @Test
+    public void testDiscoverBankIds_RegistryWinsWhenPopulated() {
+        // Arrange
+        jdbcTemplate.execute("CREATE TABLE bank_registry (bank_id VARCHAR(255) PRIMARY KEY, active BOOLEAN DEFAULT TRUE NOT NULL)");
+        BankCatalog catalog = new BankCatalog(jdbcTemplate);
+        List<String> beforeRegistration = catalog.discoverBankIds();
+        jdbcTemplate.update("INSERT INTO bank_registry (bank_id, active) VALUES ('BANK_C', TRUE), ('BANK_A', FALSE)");
+
+        // Act
+        List<String> bankIds = catalog.discoverBankIds();
+
+        // Assert
+        assertEquals(List.of("BANK_A", "BANK_B"), beforeRegistration);
+        assertEquals(List.of("BANK_C"), bankIds);
+    }
+}
@@ -0,0 +1,43 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ItemProcessor;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.model.FactTransactionEntity;
+import com.hibersoft.ms.bankcustomer.datamodeling.model.RawSourceData;
+
+public class BatchConfigurationTest {
+
+    @Test
+    public void testProcessor_FiltersRowsWithoutAParseableTransactionDate() throws Exception {
+        // Arrange
+        ItemProcessor<RawSourceData, FactTransactionEntity> processor = new BatchConfiguration().processor("bank_a", 1000);
+
+        // Act
+        FactTransactionEntity fact = processor.process(row("ACC1", "2024-03-01 09:30:00"));
+
+        // Assert
+        assertEquals("BANK_A", fact.getBankId());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 9, 30), fact.getTransactionTime());
+        assertNull(processor.process(row("ACC2", null)));
+        assertNull(processor.process(row("ACC3", "")));
+        assertNull(processor.process(row("ACC4", "03/01/2024")));
+        assertNull(processor.process(row("ACC5", "2024-02-30T10:00:00")));
+    }
+
+    @Test
+    public void testParseTransactionTime_AcceptsIsoAndSpaceSeparatedText() {
+        assertEquals(LocalDateTime.of(2024, 3, 1, 9, 30), BatchConfiguration.parseTransactionTime("2024-03-01T09:30"));
+        assertEquals(LocalDateTime.of(2024, 3, 1, 9, 30, 15), BatchConfiguration.parseTransactionTime(" 2024-03-01 09:30:15 "));
+        assertNull(BatchConfiguration.parseTransactionTime("2024-03-01"));
+    }
+
+    private static RawSourceData row(String accountId, String transactionDate) {
+        return new RawSourceData(accountId, transactionDate, "10.00", "Groceries", "L1");
+    }
+}
@@ -0,0 +1,46 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.sql.Types;
+
+import org.h2.tools.SimpleResultSet;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.model.FactTransactionEntity;
+import com.hibersoft.ms.bankcustomer.datamodeling.model.RawSourceData;
+
+public class RawSourceDataRowMapperTest {
+
+    @Test
+    public void testMapRow_MatchesBeanPropertyRowMapper() throws Exception {
+        // Arrange
+        SimpleResultSet resultSet = new SimpleResultSet();
+        for (String column : RawSourceDataRowMapper.COLUMNS.split(", ")) {
+            resultSet.addColumn(column.toUpperCase(), Types.VARCHAR, 255, 0);
+        }
+        resultSet.addRow("ACC1001", "2024-01-01T10:00:00", "-25.40", "Groceries", "L2");
+        resultSet.next();
+
+        // Act
+        RawSourceData indexed = new RawSourceDataRowMapper().mapRow(resultSet, 0);
+        RawSourceData reflective = new BeanPropertyRowMapper<>(RawSourceData.class).mapRow(resultSet, 0);
+
+        // Assert
+        assertEquals(reflective.getBankSpecificAccountId(), indexed.getBankSpecificAccountId());
+        assertEquals(reflective.getTransactionDate(), indexed.getTransactionDate());
+        assertEquals(reflective.getAmount(), indexed.getAmount());
+        assertEquals(reflective.getDescription(), indexed.getDescription());
+        assertEquals(reflective.getLocationCode(), indexed.getLocationCode());
+    }
+
+    @Test
+    public void testRegistry_ReturnsIndexedMapperAndFallsBackForUnknownTypes() {
+        assertInstanceOf(RawSourceDataRowMapper.class, RowMapperRegistry.forType(RawSourceData.class));
+        assertInstanceOf(BeanPropertyRowMapper.class, RowMapperRegistry.forType(FactTransactionEntity.class));
+        assertSame(RowMapperRegistry.forType(FactTransactionEntity.class), RowMapperRegistry.forType(FactTransactionEntity.class));
+    }
+}
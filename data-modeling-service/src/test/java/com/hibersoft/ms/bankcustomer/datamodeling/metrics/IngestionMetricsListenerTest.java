@@ -0,0 +1,66 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class IngestionMetricsListenerTest {
+
+    @Test
+    public void testChunk_RecordsStageTimersAndCountsTaggedWithBankAndStep() {
+        // Arrange
+        MeterRegistry registry = new SimpleMeterRegistry();
+        IngestionMetricsListener<String, String> listener =
+                new IngestionMetricsListener<>(registry, "BANK_A", "ingestionWorkerStep:partition2");
+
+        // Act: one chunk of three rows, the last one filtered by the processor
+        listener.beforeChunk(null);
+        for (String row : new String[] { "r1", "r2", "r3" }) {
+            listener.beforeRead();
+            listener.afterRead(row);
+        }
+        for (String row : new String[] { "r1", "r2", "r3" }) {
+            listener.beforeProcess(row);
+            listener.afterProcess(row, "r3".equals(row) ? null : row.toUpperCase());
+        }
+        Chunk<String> written = Chunk.of("R1", "R2");
+        listener.beforeWrite(written);
+        listener.afterWrite(written);
+        listener.afterChunk(null);
+
+        // Assert
+        assertEquals(3, registry.get("ingestion.item.read").tag("bankId", "BANK_A").tag("step", "ingestionWorkerStep").timer().count());
+        assertEquals(3, registry.get("ingestion.item.process").tag("bankId", "BANK_A").timer().count());
+        assertEquals(1, registry.get("ingestion.chunk.write").tag("bankId", "BANK_A").timer().count());
+        assertEquals(1, registry.get("ingestion.chunk").tag("bankId", "BANK_A").timer().count());
+        assertEquals(3.0, registry.get("ingestion.items").tag("stage", "read").counter().count());
+        assertEquals(1.0, registry.get("ingestion.items").tag("stage", "filtered").counter().count());
+        assertEquals(2.0, registry.get("ingestion.items").tag("stage", "written").counter().count());
+        assertEquals(1, registry.get("ingestion.chunk.throughput").summary().count());
+        assertTrue(registry.get("ingestion.chunk.throughput").summary().max() > 0);
+    }
+
+    @Test
+    public void testErrors_AreCountedPerStage() {
+        // Arrange
+        MeterRegistry registry = new SimpleMeterRegistry();
+        IngestionMetricsListener<String, String> listener = new IngestionMetricsListener<>(registry, "BANK_B", "ingestionWorkerStep");
+
+        // Act
+        listener.onReadError(new IllegalStateException("bad row"));
+        listener.onProcessError("r1", new IllegalStateException("bad amount"));
+        listener.onWriteError(new IllegalStateException("copy failed"), Chunk.of("R1"));
+        listener.afterChunkError(null);
+
+        // Assert
+        for (String stage : new String[] { "read", "process", "write", "chunk" }) {
+            assertEquals(1.0, registry.get("ingestion.errors").tag("bankId", "BANK_B").tag("stage", stage).counter().count());
+        }
+        assertEquals(0, registry.get("ingestion.chunk").timer().count());
+    }
+}
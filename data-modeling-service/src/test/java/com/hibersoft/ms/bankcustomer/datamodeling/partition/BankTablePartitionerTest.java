@@ -0,0 +1,94 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.partition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+public class BankTablePartitionerTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE bank_t_transactions (bank_specific_account_id VARCHAR(255) PRIMARY KEY, "
+                + "transaction_date VARCHAR(255), amount VARCHAR(255), description VARCHAR(255), location_code VARCHAR(255))");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testPartition_CoversEveryRowExactlyOnce() {
+        // Arrange
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            rows.add(new Object[]{ String.format("ACC%03d", i) });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO bank_t_transactions (bank_specific_account_id) VALUES (?)", rows);
+
+        // Act
+        Map<String, ExecutionContext> partitions = new BankTablePartitioner(jdbcTemplate, "bank_t_transactions", null).partition(4);
+
+        // Assert
+        assertEquals(4, partitions.size());
+        assertNull(partitions.get("partition0").getString(BankTablePartitioner.MIN_KEY, null));
+        assertNull(partitions.get("partition3").getString(BankTablePartitioner.MAX_KEY, null));
+
+        int total = 0;
+        for (ExecutionContext context : partitions.values()) {
+            String minKey = context.getString(BankTablePartitioner.MIN_KEY, "");
+            String maxKey = context.getString(BankTablePartitioner.MAX_KEY, "~");
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM bank_t_transactions WHERE bank_specific_account_id >= ? AND bank_specific_account_id < ?",
+                    Integer.class, minKey, maxKey);
+            assertEquals(25, count);
+            total += count;
+        }
+        assertEquals(100, total);
+    }
+
+    @Test
+    public void testPartition_GridSizeOverrideWins() {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            jdbcTemplate.update("INSERT INTO bank_t_transactions (bank_specific_account_id) VALUES (?)", "ACC" + i);
+        }
+
+        // Act
+        Map<String, ExecutionContext> partitions = new BankTablePartitioner(jdbcTemplate, "bank_t_transactions", 2).partition(8);
+
+        // Assert
+        assertEquals(2, partitions.size());
+    }
+
+    @Test
+    public void testPartition_EmptyTableYieldsSingleUnboundedPartition() {
+        // Act
+        Map<String, ExecutionContext> partitions = new BankTablePartitioner(jdbcTemplate, "bank_t_transactions", null).partition(4);
+
+        // Assert
+        assertEquals(1, partitions.size());
+        assertFalse(partitions.get("partition0").containsKey(BankTablePartitioner.MIN_KEY));
+    }
+}
@@ -0,0 +1,95 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.partition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.watermark.IngestionWatermark;
+import com.hibersoft.ms.bankcustomer.datamodeling.watermark.WatermarkRange;
+import com.hibersoft.ms.bankcustomer.datamodeling.watermark.WatermarkRepository;
+
+public class FactPartitionListenerTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private final List<LocalDate[]> ensured = new ArrayList<>();
+    private FactPartitionListener listener;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE bank_w_transactions (bank_specific_account_id VARCHAR(255) PRIMARY KEY, "
+                + "transaction_date VARCHAR(255), amount VARCHAR(255), description VARCHAR(255), location_code VARCHAR(255), "
+                + "ingest_seq BIGINT GENERATED BY DEFAULT AS IDENTITY, ingested_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+        jdbcTemplate.update("INSERT INTO bank_w_transactions (bank_specific_account_id, transaction_date) VALUES "
+                + "('ACC1', '2023-11-30 23:00:00'), ('ACC2', '2024-02-01T08:00:00'), ('ACC3', NULL)");
+        FactTablePartitions partitions = new FactTablePartitions(jdbcTemplate) {
+            @Override
+            public void ensureMonths(LocalDate from, LocalDate to) {
+                ensured.add(new LocalDate[] { from, to });
+            }
+        };
+        listener = new FactPartitionListener(partitions, new WatermarkRepository(jdbcTemplate));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testBeforeJob_FullRunCoversTheBankTableFromItsOldestRow() {
+        // Act
+        listener.beforeJob(execution(new WatermarkRange(null, new IngestionWatermark(3))));
+
+        // Assert
+        assertEquals(1, ensured.size());
+        assertEquals(LocalDate.parse("2023-11-30"), ensured.get(0)[0]);
+        assertEquals(LocalDate.parse("2024-02-01"), ensured.get(0)[1]);
+    }
+
+    @Test
+    public void testBeforeJob_IncrementalRunCoversTheDatesOfItsRowsAndEmptyRunsNothing() {
+        // Arrange: a late row dated before everything else arrives after the first three
+        jdbcTemplate.update("INSERT INTO bank_w_transactions (bank_specific_account_id, transaction_date) VALUES ('ACC4', '2023-06-15T12:00:00')");
+
+        // Act
+        listener.beforeJob(execution(new WatermarkRange(new IngestionWatermark(3), new IngestionWatermark(4))));
+        listener.beforeJob(execution(new WatermarkRange(new IngestionWatermark(4), null)));
+
+        // Assert
+        assertEquals(1, ensured.size());
+        assertEquals(LocalDate.parse("2023-06-15"), ensured.get(0)[0]);
+        assertEquals(LocalDate.parse("2023-06-15"), ensured.get(0)[1]);
+    }
+
+    @Test
+    public void testEnsureMonths_IsANoOpOutsidePartitionedPostgres() {
+        // Act / Assert: H2 has no pg_partitioned_table, so nothing is queried or created
+        new FactTablePartitions(jdbcTemplate).ensureMonths(LocalDate.parse("2024-01-01"), LocalDate.parse("2024-03-01"));
+        assertEquals(List.of(), new FactTablePartitions(jdbcTemplate).detachMonthsBefore(YearMonth.of(2024, 1)));
+    }
+
+    private static JobExecution execution(WatermarkRange range) {
+        JobExecution execution = new JobExecution(1L, new JobParametersBuilder().addString("bankId", "BANK_W").toJobParameters());
+        execution.getExecutionContext().put(WatermarkRange.CONTEXT_KEY, range);
+        return execution;
+    }
+}
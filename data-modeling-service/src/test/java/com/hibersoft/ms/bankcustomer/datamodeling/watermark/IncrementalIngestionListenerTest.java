@@ -0,0 +1,144 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.watermark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.config.BatchConfiguration;
+import com.hibersoft.ms.bankcustomer.datamodeling.model.RawSourceData;
+
+public class IncrementalIngestionListenerTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private IncrementalIngestionListener listener;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE bank_w_transactions (bank_specific_account_id VARCHAR(255) PRIMARY KEY, "
+                + "transaction_date VARCHAR(255), amount VARCHAR(255), description VARCHAR(255), location_code VARCHAR(255), "
+                + "ingest_seq BIGINT GENERATED BY DEFAULT AS IDENTITY, ingested_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE ingestion_watermark (bank_id VARCHAR(255) PRIMARY KEY, last_ingest_seq BIGINT NOT NULL, "
+                + "updated_at TIMESTAMP NOT NULL)");
+        listener = new IncrementalIngestionListener(new WatermarkRepository(jdbcTemplate), Duration.ZERO);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testRuns_SecondRunReadsOnlyRowsPastTheWatermark() throws Exception {
+        // Arrange
+        insert("ACC3", "2024-01-01T10:00:00");
+        insert("ACC1", "2024-01-02T10:00:00");
+        List<String> firstRun = run(false, BatchStatus.COMPLETED);
+        insert("ACC2", "2024-01-02T10:00:00");
+        insert("ACC4", "2024-01-03T09:00:00");
+
+        // Act
+        List<String> secondRun = run(false, BatchStatus.COMPLETED);
+
+        // Assert
+        assertEquals(List.of("ACC1", "ACC3"), firstRun);
+        assertEquals(List.of("ACC2", "ACC4"), secondRun);
+        assertEquals(new IngestionWatermark(4), new WatermarkRepository(jdbcTemplate).find("BANK_W"));
+    }
+
+    @Test
+    public void testRuns_LateRowWithAnEarlierDateIsIngestedByTheNextRun() throws Exception {
+        // Arrange
+        insert("ACC5", "2024-01-05T10:00:00");
+        run(false, BatchStatus.COMPLETED);
+        insert("ACC0", "2024-01-01T08:00:00"); // Arrives after the run, dated before every ingested row
+
+        // Act
+        List<String> nextRun = run(false, BatchStatus.COMPLETED);
+
+        // Assert
+        assertEquals(List.of("ACC0"), nextRun);
+    }
+
+    @Test
+    public void testRuns_RowsYoungerThanTheSettleWindowWaitForALaterRun() throws Exception {
+        // Arrange
+        insert("ACC1", "2024-01-01T10:00:00");
+        listener = new IncrementalIngestionListener(new WatermarkRepository(jdbcTemplate), Duration.ofHours(1));
+
+        // Act
+        List<String> keys = run(false, BatchStatus.COMPLETED);
+
+        // Assert
+        assertEquals(List.of(), keys);
+        assertNull(new WatermarkRepository(jdbcTemplate).find("BANK_W"));
+    }
+
+    @Test
+    public void testRuns_FailedRunKeepsWatermarkAndFullRebuildReadsEverything() throws Exception {
+        // Arrange
+        insert("ACC1", "2024-01-01T10:00:00");
+        run(false, BatchStatus.FAILED);
+        WatermarkRepository repository = new WatermarkRepository(jdbcTemplate);
+        IngestionWatermark afterFailure = repository.find("BANK_W");
+        run(false, BatchStatus.COMPLETED);
+        insert("ACC2", "2024-01-02T10:00:00");
+
+        // Act
+        List<String> rebuild = run(true, BatchStatus.COMPLETED);
+
+        // Assert
+        assertNull(afterFailure);
+        assertEquals(List.of("ACC1", "ACC2"), rebuild);
+    }
+
+    // Simulates one job run: listener before, a single unpartitioned reader, listener after with the given outcome
+    private List<String> run(boolean fullRebuild, BatchStatus outcome) throws Exception {
+        JobExecution jobExecution = new JobExecution(1L, new JobParametersBuilder()
+                .addString("bankId", "BANK_W")
+                .addJobParameter(IncrementalIngestionListener.FULL_REBUILD, fullRebuild, Boolean.class)
+                .toJobParameters());
+        listener.beforeJob(jobExecution);
+
+        WatermarkRange range = (WatermarkRange) jobExecution.getExecutionContext().get(WatermarkRange.CONTEXT_KEY);
+        JdbcPagingItemReader<RawSourceData> reader = new BatchConfiguration().sourceDataReader(database, "BANK_W", null, null, range, 10, 10);
+        reader.afterPropertiesSet();
+        reader.open(new ExecutionContext());
+        List<String> keys = new ArrayList<>();
+        RawSourceData item;
+        while ((item = reader.read()) != null) {
+            keys.add(item.getBankSpecificAccountId());
+        }
+        reader.close();
+
+        jobExecution.setStatus(outcome);
+        listener.afterJob(jobExecution);
+        return keys;
+    }
+
+    private void insert(String accountId, String transactionDate) {
+        jdbcTemplate.update("INSERT INTO bank_w_transactions (bank_specific_account_id, transaction_date, amount, description, location_code) "
+                + "VALUES (?, ?, '10.00', 'Groceries', 'L1')", accountId, transactionDate);
+    }
+}
@@ -0,0 +1,152 @@
+package com.hibersoft.ms.bankcustomer.datamodeling.writer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.hibersoft.ms.bankcustomer.datamodeling.model.FactTransactionEntity;
+
+public class FactTransactionCopyWriterTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        // Unpartitioned, but with the unique key of the partitioned table, which must hold transaction_time
+        jdbcTemplate.execute("CREATE TABLE fact_transactions (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "bank_id VARCHAR(255), source_transaction_id VARCHAR(255), customer_id VARCHAR(255), transaction_time TIMESTAMP, "
+                + "amount_standard NUMERIC(19,2), description_standard VARCHAR(255), location_code VARCHAR(255), "
+                + "transaction_type VARCHAR(255), is_valid BOOLEAN, UNIQUE (bank_id, source_transaction_id, transaction_time))");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testWrite_FallsBackToBatchMergeOnH2() throws Exception {
+        // Arrange
+        FactTransactionCopyWriter writer = new FactTransactionCopyWriter(database);
+        Chunk<FactTransactionEntity> chunk = new Chunk<>(
+                fact("U_ACC1", "12.50", "Groceries"),
+                fact("U_ACC2", "40.00", "Dinner"));
+
+        // Act
+        writer.write(chunk);
+
+        // Assert
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fact_transactions", Integer.class));
+        assertEquals(new BigDecimal("52.50"),
+                jdbcTemplate.queryForObject("SELECT SUM(amount_standard) FROM fact_transactions", BigDecimal.class));
+    }
+
+    @Test
+    public void testWrite_RerunningAChunkUpdatesInsteadOfDuplicating() throws Exception {
+        // Arrange
+        FactTransactionCopyWriter writer = new FactTransactionCopyWriter(database);
+        writer.write(new Chunk<>(fact("U_ACC1", "12.50", "Groceries"), fact("U_ACC2", "40.00", "Dinner")));
+        Long firstId = jdbcTemplate.queryForObject("SELECT id FROM fact_transactions WHERE source_transaction_id = 'ACC1'", Long.class);
+
+        // Act
+        writer.write(new Chunk<>(fact("U_ACC1", "15.00", "Groceries"), fact("U_ACC3", "5.00", "Gas")));
+
+        // Assert
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fact_transactions", Integer.class));
+        assertEquals(new BigDecimal("15.00"), jdbcTemplate.queryForObject(
+                "SELECT amount_standard FROM fact_transactions WHERE source_transaction_id = 'ACC1'", BigDecimal.class));
+        assertEquals(firstId, jdbcTemplate.queryForObject("SELECT id FROM fact_transactions WHERE source_transaction_id = 'ACC1'", Long.class));
+    }
+
+    @Test
+    public void testWrite_FactWhoseTimeMovedIsRewrittenNotDuplicated() throws Exception {
+        // Arrange
+        FactTransactionCopyWriter writer = new FactTransactionCopyWriter(database);
+        writer.write(new Chunk<>(fact("U_ACC1", "12.50", "Groceries")));
+        FactTransactionEntity moved = fact("U_ACC1", "12.50", "Groceries");
+        moved.setTransactionTime(LocalDateTime.of(2024, 2, 1, 8, 0));
+
+        // Act
+        writer.write(new Chunk<>(moved));
+
+        // Assert
+        assertEquals(List.of(Timestamp.valueOf(moved.getTransactionTime())),
+                jdbcTemplate.queryForList("SELECT transaction_time FROM fact_transactions", Timestamp.class));
+    }
+
+    @Test
+    public void testUpsertSql_ConflictsOnTheNaturalKeyAndTheTransactionTime() {
+        assertEquals("bank_id, source_transaction_id, transaction_time", FactTransactionCopyWriter.CONFLICT_KEY);
+        assertTrue(FactTransactionCopyWriter.UPSERT_SQL.contains(
+                "ON CONFLICT (bank_id, source_transaction_id, transaction_time) DO UPDATE SET customer_id = EXCLUDED.customer_id, "));
+        // Duplicates within a chunk are dropped first, as ON CONFLICT cannot update a row twice
+        assertTrue(FactTransactionCopyWriter.UPSERT_SQL.contains("SELECT DISTINCT ON (bank_id, source_transaction_id) "));
+    }
+
+    @Test
+    public void testDeleteMovedSql_DeletesOnlyStoredVersionsAtAnotherTime() throws Exception {
+        // Arrange: ACC1 moves to February, ACC2 keeps its time, ACC3 is new, and BANK_B's ACC2 is another fact
+        new FactTransactionCopyWriter(database).write(new Chunk<>(fact("U_ACC1", "12.50", "Groceries"),
+                fact("U_ACC2", "40.00", "Dinner")));
+        jdbcTemplate.execute("CREATE TABLE fact_transactions_stage AS SELECT " + FactTransactionCopyWriter.COLUMNS
+                + " FROM fact_transactions WITH NO DATA");
+        String stage = "INSERT INTO fact_transactions_stage (bank_id, source_transaction_id, transaction_time) VALUES (?, ?, ?)";
+        jdbcTemplate.update(stage, "BANK_A", "ACC1", LocalDateTime.of(2024, 2, 1, 8, 0));
+        jdbcTemplate.update(stage, "BANK_A", "ACC2", LocalDateTime.of(2024, 1, 1, 12, 0));
+        jdbcTemplate.update(stage, "BANK_A", "ACC3", LocalDateTime.of(2024, 2, 1, 8, 0));
+        jdbcTemplate.update(stage, "BANK_B", "ACC2", LocalDateTime.of(2024, 2, 1, 8, 0));
+
+        // Act
+        int deleted = jdbcTemplate.update(FactTransactionCopyWriter.DELETE_MOVED_SQL);
+
+        // Assert
+        assertEquals(1, deleted);
+        assertEquals(List.of("ACC2"), jdbcTemplate.queryForList("SELECT source_transaction_id FROM fact_transactions", String.class));
+    }
+
+    @Test
+    public void testAppendCsvLine_QuotesStringsAndLeavesNullsEmpty() {
+        // Arrange
+        StringBuilder line = new StringBuilder();
+        Object[] values = { "BANK_A", null, LocalDateTime.of(2024, 3, 1, 10, 15, 30), new BigDecimal("1E+2"), "Say \"hi\", ok", "", true };
+
+        // Act
+        FactTransactionCopyWriter.appendCsvLine(line, values);
+
+        // Assert
+        assertEquals("\"BANK_A\",,2024-03-01T10:15:30,100,\"Say \"\"hi\"\", ok\",\"\",true\n", line.toString());
+    }
+
+    private FactTransactionEntity fact(String customerId, String amount, String description) {
+        FactTransactionEntity fact = new FactTransactionEntity();
+        fact.setBankId("BANK_A");
+        fact.setSourceTransactionId(customerId.substring(2));
+        fact.setCustomerId(customerId);
+        fact.setTransactionTime(LocalDateTime.of(2024, 1, 1, 12, 0));
+        fact.setAmountStandard(new BigDecimal(amount));
+        fact.setDescriptionStandard(description);
+        fact.setLocationCode("L1");
+        fact.setTransactionType("DEBIT");
+        fact.setIsValid(true);
+        return fact;
+    }
+}
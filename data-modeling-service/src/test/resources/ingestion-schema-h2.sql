@@ -0,0 +1,9 @@
+-- Control tables of the ingestion job (see datamodelingdb.sql); FACT_TRANSACTIONS itself is created by Hibernate
+
+DROP TABLE IF EXISTS ingestion_watermark;
+
+CREATE TABLE ingestion_watermark (
+    bank_id VARCHAR(255) NOT NULL PRIMARY KEY,
+    last_ingest_seq BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
@@ -6,7 +6,9 @@ CREATE TABLE bank_a_transactions (
     transaction_date character varying(255),
     amount character varying(255),
     description character varying(255),
-    location_code character varying(255)
+    location_code character varying(255),
+    ingest_seq bigserial NOT NULL,
+    ingested_at timestamp with time zone DEFAULT clock_timestamp() NOT NULL
 );
 
 
@@ -15,7 +17,9 @@ CREATE TABLE bank_b_transactions (
     transaction_date character varying(255),
     amount character varying(255),
     description character varying(255),
-    location_code character varying(255)
+    location_code character varying(255),
+    ingest_seq bigserial NOT NULL,
+    ingested_at timestamp with time zone DEFAULT clock_timestamp() NOT NULL
 );
 
 
@@ -152,11 +156,23 @@ ALTER TABLE customer_mdm_entity ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDEN
 );
 
 
+CREATE SEQUENCE fact_transactions_id_seq
+    START WITH 1
+    INCREMENT BY 1
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+
+-- Monthly range partitions on transaction_time (fact_transactions_yYYYYmMM), created by the modeling job
+-- for the months it ingests; rows outside every month land in fact_transactions_default. Old months are
+-- archived by detaching their partition. id uses a sequence default: PostgreSQL 14 has no identity
+-- columns on partitioned tables.
 CREATE TABLE fact_transactions (
-    id bigint NOT NULL,
+    id bigint DEFAULT nextval('fact_transactions_id_seq') NOT NULL,
     bank_id character varying(255),
+    source_transaction_id character varying(255),
     customer_id character varying(255),
-    transaction_time timestamp without time zone,
+    transaction_time timestamp without time zone NOT NULL,
     amount_standard numeric,
     description_standard character varying(255),
     location_code character varying(255),
@@ -164,10 +180,78 @@ CREATE TABLE fact_transactions (
     is_valid boolean,
     category character varying(255),
     customer_segment character varying(255)
+) PARTITION BY RANGE (transaction_time);
+
+ALTER SEQUENCE fact_transactions_id_seq OWNED BY fact_transactions.id;
+
+CREATE TABLE fact_transactions_default PARTITION OF fact_transactions DEFAULT;
+
+-- Daily rollups of fact_transactions (sum and count per key and day), kept up to date by the modeling job's writer
+CREATE TABLE rollup_customer_daily (
+    customer_id character varying(255) NOT NULL,
+    txn_date date NOT NULL,
+    amount_sum numeric NOT NULL,
+    txn_count bigint NOT NULL
 );
 
-ALTER TABLE fact_transactions ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY (
-    SEQUENCE NAME fact_transactions_id_seq
+CREATE TABLE rollup_category_daily (
+    category character varying(255) NOT NULL,
+    txn_date date NOT NULL,
+    amount_sum numeric NOT NULL,
+    txn_count bigint NOT NULL
+);
+
+CREATE TABLE rollup_location_daily (
+    location_code character varying(255) NOT NULL,
+    txn_date date NOT NULL,
+    amount_sum numeric NOT NULL,
+    txn_count bigint NOT NULL
+);
+
+CREATE TABLE rollup_bank_daily (
+    bank_id character varying(255) NOT NULL,
+    txn_date date NOT NULL,
+    amount_sum numeric NOT NULL,
+    txn_count bigint NOT NULL
+);
+
+-- Daily sketches per bank, category and day (HyperLogLog of customer_id, KLL of amount_standard, in the
+-- DataSketches binary formats), merged by the modeling job's writer and read by the approximate analytics
+CREATE TABLE sketch_daily (
+    bank_id character varying(255) NOT NULL,
+    category character varying(255) NOT NULL,
+    txn_date date NOT NULL,
+    customers_hll bytea NOT NULL,
+    amounts_kll bytea NOT NULL
+);
+
+-- High-watermark of the last completed ingestion per bank (the ingest_seq of the last bank row it read)
+CREATE TABLE ingestion_watermark (
+    bank_id character varying(255) NOT NULL,
+    last_ingest_seq bigint NOT NULL,
+    updated_at timestamp without time zone NOT NULL
+);
+
+-- One row per bank, locked by the fact writer while a chunk updates the bank's rollups
+CREATE TABLE ingestion_bank_lock (
+    bank_id character varying(255) NOT NULL
+);
+
+-- Optional list of banks for start-all; when empty, every bank_*_transactions table is ingested
+CREATE TABLE bank_registry (
+    bank_id character varying(255) NOT NULL,
+    active boolean DEFAULT true NOT NULL
+);
+
+CREATE TABLE category_rules (
+    id bigint NOT NULL,
+    keyword character varying(255) NOT NULL,
+    category character varying(255) NOT NULL,
+    priority integer DEFAULT 0 NOT NULL
+);
+
+ALTER TABLE category_rules ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY (
+    SEQUENCE NAME category_rules_id_seq
     START WITH 1
     INCREMENT BY 1
     NO MINVALUE
@@ -175,6 +259,14 @@ ALTER TABLE fact_transactions ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTI
     CACHE 1
 );
 
+-- Default rules; the modeling service reloads this table periodically, so rows can be edited live
+INSERT INTO category_rules (keyword, category, priority) VALUES
+    ('utility', 'Utilities', 50), ('hydro', 'Utilities', 50), ('bell', 'Utilities', 50), ('rogers', 'Utilities', 50),
+    ('groceries', 'Groceries', 40), ('supermarket', 'Groceries', 40), ('costco', 'Groceries', 40),
+    ('gas', 'Transport', 30), ('petrol', 'Transport', 30), ('shell', 'Transport', 30),
+    ('online', 'Shopping', 20), ('amazon', 'Shopping', 20), ('purchase', 'Shopping', 20),
+    ('dinner', 'Dining', 10), ('restaurant', 'Dining', 10);
+
 
 ALTER TABLE ONLY bank_a_transactions
     ADD CONSTRAINT bank_a_transactions_pkey PRIMARY KEY (bank_specific_account_id);
@@ -197,11 +289,44 @@ ALTER TABLE ONLY batch_step_execution_context
 ALTER TABLE ONLY batch_step_execution
     ADD CONSTRAINT batch_step_execution_pkey PRIMARY KEY (step_execution_id);
 
+ALTER TABLE ONLY ingestion_watermark
+    ADD CONSTRAINT ingestion_watermark_pkey PRIMARY KEY (bank_id);
+
+ALTER TABLE ONLY ingestion_bank_lock
+    ADD CONSTRAINT ingestion_bank_lock_pkey PRIMARY KEY (bank_id);
+
+ALTER TABLE ONLY bank_registry
+    ADD CONSTRAINT bank_registry_pkey PRIMARY KEY (bank_id);
+
+ALTER TABLE ONLY category_rules
+    ADD CONSTRAINT category_rules_pkey PRIMARY KEY (id);
+
 ALTER TABLE ONLY customer_mdm_entity
     ADD CONSTRAINT customer_mdm_entity_pkey PRIMARY KEY (id);
 
-ALTER TABLE ONLY fact_transactions
-    ADD CONSTRAINT fact_transactions_pkey PRIMARY KEY (id);
+-- Unique constraints of a partitioned table must include the partition key
+ALTER TABLE fact_transactions
+    ADD CONSTRAINT fact_transactions_pkey PRIMARY KEY (id, transaction_time);
+
+ALTER TABLE ONLY rollup_customer_daily
+    ADD CONSTRAINT rollup_customer_daily_pkey PRIMARY KEY (customer_id, txn_date);
+
+ALTER TABLE ONLY rollup_category_daily
+    ADD CONSTRAINT rollup_category_daily_pkey PRIMARY KEY (category, txn_date);
+
+ALTER TABLE ONLY rollup_location_daily
+    ADD CONSTRAINT rollup_location_daily_pkey PRIMARY KEY (location_code, txn_date);
+
+ALTER TABLE ONLY rollup_bank_daily
+    ADD CONSTRAINT rollup_bank_daily_pkey PRIMARY KEY (bank_id, txn_date);
+
+ALTER TABLE ONLY sketch_daily
+    ADD CONSTRAINT sketch_daily_pkey PRIMARY KEY (bank_id, category, txn_date);
+
+-- Natural key: the ingestion writer upserts on it, so re-running a job does not duplicate facts
+-- (it also serves lookups by bank_id and source_transaction_id alone, one probe per partition)
+ALTER TABLE fact_transactions
+    ADD CONSTRAINT fact_transactions_natural_key UNIQUE (bank_id, source_transaction_id, transaction_time);
 
 ALTER TABLE ONLY batch_job_instance
     ADD CONSTRAINT job_inst_un UNIQUE (job_name, job_key);
@@ -214,3 +339,18 @@ ALTER TABLE ONLY batch_job_execution
 
 ALTER TABLE ONLY batch_job_execution_params
     ADD CONSTRAINT job_exec_params_fk FOREIGN KEY (job_execution_id) REFERENCES batch_job_execution(job_execution_id);
+
+-- Incremental ingestion looks up rows past the watermark and the newest settled row of each bank table
+CREATE INDEX bank_a_transactions_ingest_seq_idx ON bank_a_transactions (ingest_seq) INCLUDE (ingested_at);
+
+CREATE INDEX bank_b_transactions_ingest_seq_idx ON bank_b_transactions (ingest_seq) INCLUDE (ingested_at);
+
+-- Analytics read partial days at the edges of a date range straight from the facts (only the
+-- partitions of those days are scanned)
+CREATE INDEX fact_transactions_time_idx ON fact_transactions (transaction_time);
+
+-- The top-customers leaderboard reads whole days of the customer rollup with an index-only scan
+CREATE INDEX rollup_customer_daily_date_idx ON rollup_customer_daily (txn_date) INCLUDE (customer_id, amount_sum);
+
+-- Approximate analytics across banks select the sketches of a date range
+CREATE INDEX sketch_daily_date_idx ON sketch_daily (txn_date);
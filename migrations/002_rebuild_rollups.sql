@@ -0,0 +1,27 @@
+-- Rebuilds the daily rollups from fact_transactions, for databases whose facts were loaded before the
+-- simple-data-modeling-service writer maintained the rollups, or by the data-modeling-service writer (which
+-- does not maintain them). Run while no ingestion job is running. sketch_daily cannot be rebuilt in SQL: rebuild
+-- it per bank with POST /api/v1/simple-ingestion/sketches/rebuild/{bankId} on the simple-data-modeling-service,
+-- or by starting its job with fullRebuild=true.
+
+BEGIN;
+
+TRUNCATE rollup_customer_daily, rollup_category_daily, rollup_location_daily, rollup_bank_daily;
+
+INSERT INTO rollup_customer_daily (customer_id, txn_date, amount_sum, txn_count)
+    SELECT customer_id, CAST(transaction_time AS date), COALESCE(SUM(amount_standard), 0), COUNT(*) FROM fact_transactions
+    WHERE customer_id IS NOT NULL AND transaction_time IS NOT NULL GROUP BY 1, 2;
+
+INSERT INTO rollup_category_daily (category, txn_date, amount_sum, txn_count)
+    SELECT category, CAST(transaction_time AS date), COALESCE(SUM(amount_standard), 0), COUNT(*) FROM fact_transactions
+    WHERE category IS NOT NULL AND transaction_time IS NOT NULL GROUP BY 1, 2;
+
+INSERT INTO rollup_location_daily (location_code, txn_date, amount_sum, txn_count)
+    SELECT location_code, CAST(transaction_time AS date), COALESCE(SUM(amount_standard), 0), COUNT(*) FROM fact_transactions
+    WHERE location_code IS NOT NULL AND transaction_time IS NOT NULL GROUP BY 1, 2;
+
+INSERT INTO rollup_bank_daily (bank_id, txn_date, amount_sum, txn_count)
+    SELECT bank_id, CAST(transaction_time AS date), COALESCE(SUM(amount_standard), 0), COUNT(*) FROM fact_transactions
+    WHERE bank_id IS NOT NULL AND transaction_time IS NOT NULL GROUP BY 1, 2;
+
+COMMIT;
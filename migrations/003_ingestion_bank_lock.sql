@@ -0,0 +1,10 @@
+-- Adds the per-bank lock rows the simple-data-modeling-service writer takes before updating the rollups, to a
+-- database created from an older datamodelingdb.sql. Rollups that overlapping runs of a bank may already have
+-- counted twice are fixed by migrations/002_rebuild_rollups.sql.
+
+CREATE TABLE ingestion_bank_lock (
+    bank_id character varying(255) NOT NULL
+);
+
+ALTER TABLE ONLY ingestion_bank_lock
+    ADD CONSTRAINT ingestion_bank_lock_pkey PRIMARY KEY (bank_id);
@@ -0,0 +1,66 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.processor;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.benchmark.StagingTransactions;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.categorization.CategoryRuleService;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.FactTransactionEntity;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.RawSourceData;
+
+/**
+ * Per-row cost of {@link EnrichmentItemProcessor#process}: date and amount parsing, transaction type
+ * and keyword categorization with the default rules, over the staging rows in turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EnrichmentItemProcessorBenchmark {
+
+    private EnrichmentItemProcessor processor;
+    private RawSourceData[] rows;
+    private int next;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        // Field injection in the application; the rule service keeps its built-in rules without a database
+        processor = new EnrichmentItemProcessor();
+        inject(processor, "bankId", "bank_a");
+        inject(processor, "categoryRuleService", new CategoryRuleService(null));
+
+        List<StagingTransactions.Row> staging = StagingTransactions.load();
+        rows = new RawSourceData[staging.size()];
+        for (int i = 0; i < rows.length; i++) {
+            StagingTransactions.Row row = staging.get(i);
+            RawSourceData raw = new RawSourceData();
+            raw.setBankSpecificAccountId(row.accountId());
+            raw.setTransactionDate(row.transactionTime().toString());
+            raw.setAmount(row.amount());
+            raw.setDescription(row.description());
+            raw.setLocationCode(row.locationCode());
+            rows[i] = raw;
+        }
+    }
+
+    @Benchmark
+    public FactTransactionEntity process() throws Exception {
+        RawSourceData row = rows[next];
+        next = next + 1 == rows.length ? 0 : next + 1;
+        return processor.process(row);
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -2,9 +2,11 @@ package com.hibersoft.ms.bankcustomer.simpledatamodeling;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 // import org.springframework.kafka.annotation.EnableKafka; // Add this
 
 @SpringBootApplication
+@EnableScheduling
 // @EnableKafka // Add this
 public class SimpleDataModelingApplication {
     public static void main(String[] args) {
@@ -0,0 +1,187 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.categorization;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.CategoryRule;
+
+/**
+ * Immutable, compiled form of a set of {@link CategoryRule}s.
+ * <p>
+ * All keywords are compiled into one Aho-Corasick automaton, stored as a dense transition table
+ * over the (small) alphabet of characters that occur in the keywords. Categorizing a description is
+ * a single case-insensitive pass over its characters with a constant amount of work per character,
+ * however many rules there are. When several keywords occur, the rule with the highest priority wins
+ * (the earlier rule on a tie), which reproduces the first-match-wins order of an if/else chain.
+ */
+public final class CategoryMatcher {
+
+    public static final String DEFAULT_CATEGORY = "Other";
+
+    private static final int ROOT = 0;
+    private static final int OTHER_CHAR_CLASS = 0;
+    private static final int NO_RULE = -1;
+
+    private final int[] asciiClasses;
+    private final Map<Character, Integer> extendedClasses;
+    private final int alphabetSize;
+    private final int[] transitions;
+    private final int[] bestRuleByState;
+    private final String[] categories;
+    private final int[] priorities;
+    // The rule no other match can outrank: the first of the highest priority
+    private final int unbeatableRule;
+
+    private CategoryMatcher(int[] asciiClasses, Map<Character, Integer> extendedClasses, int alphabetSize,
+                            int[] transitions, int[] bestRuleByState, String[] categories, int[] priorities) {
+        this.asciiClasses = asciiClasses;
+        this.extendedClasses = extendedClasses;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.bestRuleByState = bestRuleByState;
+        this.categories = categories;
+        this.priorities = priorities;
+        int unbeatable = NO_RULE;
+        for (int rule = 0; rule < priorities.length; rule++) {
+            unbeatable = better(unbeatable, rule, priorities);
+        }
+        this.unbeatableRule = unbeatable;
+    }
+
+    public static CategoryMatcher compile(List<CategoryRule> rules) {
+        String[] categories = new String[rules.size()];
+        int[] priorities = new int[rules.size()];
+        char[][] keywords = new char[rules.size()][];
+
+        // 1. Normalize keywords and number the distinct characters they use (class 0 = any other character)
+        int[] asciiClasses = new int[128];
+        Map<Character, Integer> extendedClasses = new HashMap<>();
+        int alphabetSize = 1;
+        int totalLength = 0;
+        for (int r = 0; r < rules.size(); r++) {
+            CategoryRule rule = rules.get(r);
+            categories[r] = rule.getCategory();
+            priorities[r] = rule.getPriority();
+            String keyword = rule.getKeyword() == null ? "" : rule.getKeyword();
+            keywords[r] = new char[keyword.length()];
+            for (int i = 0; i < keyword.length(); i++) {
+                char ch = Character.toLowerCase(keyword.charAt(i));
+                keywords[r][i] = ch;
+                if (ch < 128) {
+                    if (asciiClasses[ch] == OTHER_CHAR_CLASS) {
+                        asciiClasses[ch] = alphabetSize++;
+                    }
+                } else if (!extendedClasses.containsKey(ch)) {
+                    extendedClasses.put(ch, alphabetSize++);
+                }
+            }
+            totalLength += keyword.length();
+        }
+
+        // 2. Build the keyword trie
+        int[] transitions = new int[(totalLength + 1) * alphabetSize];
+        Arrays.fill(transitions, -1);
+        int[] bestRuleByState = new int[totalLength + 1];
+        Arrays.fill(bestRuleByState, NO_RULE);
+        int stateCount = 1;
+        for (int r = 0; r < rules.size(); r++) {
+            if (keywords[r].length == 0) {
+                continue; // An empty keyword would match everything; ignore it
+            }
+            int state = ROOT;
+            for (char ch : keywords[r]) {
+                int slot = state * alphabetSize + classOf(ch, asciiClasses, extendedClasses);
+                if (transitions[slot] == -1) {
+                    transitions[slot] = stateCount++;
+                }
+                state = transitions[slot];
+            }
+            bestRuleByState[state] = better(r, bestRuleByState[state], priorities);
+        }
+
+        // 3. Breadth-first: resolve failure links into direct transitions and propagate the best rule
+        //    along the suffix chain, so matching never has to follow failure links.
+        int[] failure = new int[stateCount];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < alphabetSize; c++) {
+            int child = transitions[c];
+            if (child == -1) {
+                transitions[c] = ROOT;
+            } else {
+                failure[child] = ROOT;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            bestRuleByState[state] = better(bestRuleByState[state], bestRuleByState[failure[state]], priorities);
+            for (int c = 0; c < alphabetSize; c++) {
+                int slot = state * alphabetSize + c;
+                int fallback = transitions[failure[state] * alphabetSize + c];
+                if (transitions[slot] == -1) {
+                    transitions[slot] = fallback;
+                } else {
+                    failure[transitions[slot]] = fallback;
+                    queue.add(transitions[slot]);
+                }
+            }
+        }
+
+        return new CategoryMatcher(asciiClasses, Map.copyOf(extendedClasses), alphabetSize,
+                Arrays.copyOf(transitions, stateCount * alphabetSize), Arrays.copyOf(bestRuleByState, stateCount),
+                categories, priorities);
+    }
+
+    /**
+     * @return the category of the highest-priority keyword contained in the description,
+     *         or {@link #DEFAULT_CATEGORY} when none matches
+     */
+    public String categorize(String description) {
+        if (description == null) {
+            return DEFAULT_CATEGORY;
+        }
+        int state = ROOT;
+        int best = NO_RULE;
+        for (int i = 0; i < description.length(); i++) {
+            char ch = Character.toLowerCase(description.charAt(i));
+            state = transitions[state * alphabetSize + classOf(ch, asciiClasses, extendedClasses)];
+            int rule = bestRuleByState[state];
+            if (rule != NO_RULE && better(rule, best, priorities) == rule) {
+                best = rule;
+                if (best == unbeatableRule) {
+                    break; // Nothing can outrank it
+                }
+            }
+        }
+        return best == NO_RULE ? DEFAULT_CATEGORY : categories[best];
+    }
+
+    public int ruleCount() {
+        return categories.length;
+    }
+
+    private static int classOf(char ch, int[] asciiClasses, Map<Character, Integer> extendedClasses) {
+        if (ch < 128) {
+            return asciiClasses[ch];
+        }
+        return extendedClasses.isEmpty() ? OTHER_CHAR_CLASS : extendedClasses.getOrDefault(ch, OTHER_CHAR_CLASS);
+    }
+
+    // Higher priority wins; on equal priority the rule declared first wins
+    private static int better(int rule, int other, int[] priorities) {
+        if (rule == NO_RULE) {
+            return other;
+        }
+        if (other == NO_RULE) {
+            return rule;
+        }
+        if (priorities[rule] != priorities[other]) {
+            return priorities[rule] > priorities[other] ? rule : other;
+        }
+        return Math.min(rule, other);
+    }
+}
@@ -0,0 +1,71 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.categorization;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.CategoryRule;
+
+/**
+ * Holds the compiled {@link CategoryMatcher} used by the enrichment step.
+ * <p>
+ * Rules live in the {@code category_rules} table and are reloaded on a fixed delay; the matcher is
+ * only recompiled when the rules actually changed and is swapped atomically, so worker threads
+ * never block on a reload. An unreadable or empty table keeps the rules currently in use
+ * (the built-in defaults at startup).
+ */
+@Service
+public class CategoryRuleService {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryRuleService.class);
+
+    static final String RULES_SQL = "SELECT keyword, category, priority FROM category_rules ORDER BY priority DESC, id";
+
+    // Same outcome as the original if/else chain: earlier categories outrank later ones
+    static final List<CategoryRule> DEFAULT_RULES = List.of(
+            new CategoryRule("utility", "Utilities", 50), new CategoryRule("hydro", "Utilities", 50),
+            new CategoryRule("bell", "Utilities", 50), new CategoryRule("rogers", "Utilities", 50),
+            new CategoryRule("groceries", "Groceries", 40), new CategoryRule("supermarket", "Groceries", 40),
+            new CategoryRule("costco", "Groceries", 40),
+            new CategoryRule("gas", "Transport", 30), new CategoryRule("petrol", "Transport", 30),
+            new CategoryRule("shell", "Transport", 30),
+            new CategoryRule("online", "Shopping", 20), new CategoryRule("amazon", "Shopping", 20),
+            new CategoryRule("purchase", "Shopping", 20),
+            new CategoryRule("dinner", "Dining", 10), new CategoryRule("restaurant", "Dining", 10));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicReference<CategoryMatcher> matcher = new AtomicReference<>(CategoryMatcher.compile(DEFAULT_RULES));
+    private volatile List<CategoryRule> currentRules = DEFAULT_RULES;
+
+    public CategoryRuleService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public String categorize(String description) {
+        return matcher.get().categorize(description);
+    }
+
+    @Scheduled(fixedDelayString = "${app.categorization.refresh-interval-ms:60000}")
+    public void refreshRules() {
+        List<CategoryRule> rules;
+        try {
+            rules = jdbcTemplate.query(RULES_SQL, (rs, rowNum) ->
+                    new CategoryRule(rs.getString(1), rs.getString(2), rs.getInt(3)));
+        } catch (DataAccessException e) {
+            log.warn("Could not load category rules, keeping the current {} rule(s): {}", currentRules.size(), e.getMessage());
+            return;
+        }
+        if (rules.isEmpty() || rules.equals(currentRules)) {
+            return;
+        }
+        matcher.set(CategoryMatcher.compile(rules));
+        currentRules = rules;
+        log.info("Loaded {} category rule(s)", rules.size());
+    }
+}
@@ -1,30 +1,62 @@
 package com.hibersoft.ms.bankcustomer.simpledatamodeling.config;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import javax.sql.DataSource;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
-import org.springframework.batch.item.database.JdbcCursorItemReader;
-import org.springframework.batch.item.database.JpaItemWriter;
-import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
-import org.springframework.batch.item.database.builder.JpaItemWriterBuilder;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.listener.CustomerSegmentationListener;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.listener.FactsUpdatedNotifier;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.mapper.RawSourceDataRowMapper;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.mapper.RowMapperRegistry;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.metrics.IngestionMetricsListener;
 import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.FactTransactionEntity;
 import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.RawSourceData;
-
-import jakarta.persistence.EntityManagerFactory;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.partition.BankTablePartitioner;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.partition.FactPartitionListener;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.partition.FactTablePartitions;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.rollup.DailyRollups;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.rollup.DailySketches;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.rollup.SketchRebuildListener;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.service.AimlServiceCaller;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.watermark.IncrementalIngestionListener;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.watermark.WatermarkRange;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.watermark.WatermarkRepository;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.writer.FactTransactionCopyWriter;
 
 @Configuration
 @EnableBatchProcessing
@@ -44,24 +76,68 @@ public class BatchConfiguration {
     //             .build();
     // }
 
+    // Partitioner: Splits the dynamic bank table into key ranges, one per worker step
+    @Bean
+    @StepScope
+    public BankTablePartitioner bankTablePartitioner(
+        DataSource dataSource,
+        @Value("#{jobParameters['bankId']}") String bankId,
+        @Value("#{jobParameters['gridSize']}") Long gridSize,
+        @Value("#{jobExecutionContext['watermarkRange']}") WatermarkRange watermarkRange
+    ) {
+        String tableName = bankId.toLowerCase() + "_transactions";
+        return new BankTablePartitioner(new JdbcTemplate(dataSource), tableName, gridSize != null ? gridSize.intValue() : null,
+                watermarkRange);
+    }
+
+    // Reader: Pages through one key range (partition) of the dynamic bank table by primary key.
+    // Each page is a bounded "WHERE bank_specific_account_id > :lastKey ORDER BY ... LIMIT pageSize" query, so heap
+    // use stays flat, and the last key read is saved in the step ExecutionContext so a restart resumes right after it.
     @Bean
     @StepScope
-    public JdbcCursorItemReader<RawSourceData> sourceDataReader(
+    public JdbcPagingItemReader<RawSourceData> sourceDataReader(
         DataSource dataSource,
-        @Value("#{jobParameters['bankId']}") String bankId
+        @Value("#{jobParameters['bankId']}") String bankId,
+        @Value("#{stepExecutionContext['minKey']}") String minKey,
+        @Value("#{stepExecutionContext['maxKey']}") String maxKey,
+        @Value("#{jobExecutionContext['watermarkRange']}") WatermarkRange watermarkRange,
+        @Value("${app.ingestion.page-size:1000}") int pageSize,
+        @Value("${app.ingestion.fetch-size:1000}") int fetchSize
     ) {
-        log.info("Configuring source data reader dynamically for bankId: {}", bankId);
+        log.info("Configuring source data reader dynamically for bankId: {} [{} - {})", bankId, minKey, maxKey);
         String tableName = bankId.toLowerCase() + "_transactions";
-        String sql = "SELECT bank_specific_account_id, transaction_date, amount, description, location_code FROM " + tableName;
-        
-        log.info("Reader SQL: {}", sql);
 
-        return new JdbcCursorItemReaderBuilder<RawSourceData>()
+        Map<String, Object> parameterValues = new HashMap<>();
+        List<String> conditions = new ArrayList<>();
+        if (minKey != null) {
+            conditions.add("bank_specific_account_id >= :minKey");
+            parameterValues.put("minKey", minKey);
+        }
+        if (maxKey != null) {
+            conditions.add("bank_specific_account_id < :maxKey");
+            parameterValues.put("maxKey", maxKey);
+        }
+        if (watermarkRange != null) {
+            // Incremental run: only rows past the bank's watermark (up to the newest row at job start)
+            watermarkRange.appendConditions(conditions, parameterValues);
+        }
+
+        log.info("Reader table: {}, range: {}, pageSize: {}, fetchSize: {}", tableName, conditions, pageSize, fetchSize);
+
+        JdbcPagingItemReaderBuilder<RawSourceData> builder = new JdbcPagingItemReaderBuilder<RawSourceData>()
                 .dataSource(dataSource)
                 .name("bankDataReader-" + bankId) // Unique name
-                .sql(sql)
-                .rowMapper(new BeanPropertyRowMapper<>(RawSourceData.class))
-                .build();
+                .selectClause("SELECT " + RawSourceDataRowMapper.COLUMNS)
+                .fromClause("FROM " + tableName)
+                .sortKeys(Map.of("bank_specific_account_id", Order.ASCENDING))
+                .pageSize(pageSize)
+                .fetchSize(fetchSize)
+                .rowMapper(RowMapperRegistry.forType(RawSourceData.class));
+        if (!conditions.isEmpty()) {
+            builder.whereClause(String.join(" AND ", conditions))
+                   .parameterValues(parameterValues);
+        }
+        return builder.build();
     }
 
     // Processor: Simple pass-through with maximum logging
@@ -113,36 +189,162 @@ public class BatchConfiguration {
     // }
     // -------------------------
 
-    // Writer: Writes facts to FACT_TRANSACTIONS table (logging is handled by Spring Batch implicitly)
+    // Writer: Streams facts into FACT_TRANSACTIONS with COPY (multi-row JDBC batch on non-PostgreSQL databases)
+    // and keeps the daily rollups and sketches read by the analytics service in step, in the same transaction
     @Bean
-    public JpaItemWriter<FactTransactionEntity> writer(EntityManagerFactory entityManagerFactory) {
-        log.info("Configuring JpaItemWriter for FACT_TRANSACTIONS");
-        return new JpaItemWriterBuilder<FactTransactionEntity>()
-                .entityManagerFactory(entityManagerFactory)
-                .build();
+    public FactTransactionCopyWriter writer(DataSource dataSource,
+                                            @Value("${app.ingestion.rollups.enabled:true}") boolean rollupsEnabled,
+                                            @Value("${app.ingestion.sketches.enabled:true}") boolean sketchesEnabled) {
+        log.info("Configuring FactTransactionCopyWriter for FACT_TRANSACTIONS (daily rollups: {}, daily sketches: {})",
+                rollupsEnabled, sketchesEnabled);
+        return new FactTransactionCopyWriter(dataSource, rollupsEnabled ? new DailyRollups(dataSource) : null,
+                sketchesEnabled ? new DailySketches(dataSource) : null);
     }
 
-    // Step: Defines the chunk size and flow
+    // Listener: Scores the distinct customers of each chunk with one batched segmentation request
     @Bean
-    public Step ingestionStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
-                              JdbcCursorItemReader<RawSourceData> reader, JpaItemWriter<FactTransactionEntity> writer,
-                              ItemProcessor<RawSourceData, FactTransactionEntity> processor) {
-        log.info("Configuring ingestionStep with chunk size 10");
-        return new StepBuilder("ingestionStep", jobRepository)
-                .<RawSourceData, FactTransactionEntity>chunk(10, transactionManager)
+    public CustomerSegmentationListener customerSegmentationListener(AimlServiceCaller aimlServiceCaller) {
+        return new CustomerSegmentationListener(aimlServiceCaller);
+    }
+
+    // Executor: Runs the partitions of one job concurrently (platform or virtual threads)
+    @Bean
+    public TaskExecutor ingestionTaskExecutor(
+        @Value("${app.ingestion.pool-size:4}") int poolSize,
+        @Value("${app.ingestion.virtual-threads:false}") boolean virtualThreads
+    ) {
+        log.info("Configuring ingestion task executor: poolSize={}, virtualThreads={}", poolSize, virtualThreads);
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ingestion-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(poolSize);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("ingestion-");
+        return executor;
+    }
+
+    // Executor: Runs whole bank jobs launched by start-all; at most max-concurrent-banks at a time, the rest queue
+    @Bean(defaultCandidate = false)
+    public ThreadPoolTaskExecutor bankJobTaskExecutor(@Value("${app.ingestion.max-concurrent-banks:4}") int maxConcurrentBanks) {
+        log.info("Configuring bank job task executor: maxConcurrentBanks={}", maxConcurrentBanks);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentBanks);
+        executor.setMaxPoolSize(maxConcurrentBanks);
+        executor.setThreadNamePrefix("bank-job-");
+        return executor;
+    }
+
+    // Launcher: Returns as soon as the job execution is created; the job itself runs on bankJobTaskExecutor.
+    // Not a default candidate, so the synchronous jobLauncher stays the one injected by type.
+    @Bean(defaultCandidate = false)
+    public JobLauncher asyncJobLauncher(JobRepository jobRepository,
+                                        @Qualifier("bankJobTaskExecutor") TaskExecutor bankJobTaskExecutor) throws Exception {
+        TaskExecutorJobLauncher jobLauncher = new TaskExecutorJobLauncher();
+        jobLauncher.setJobRepository(jobRepository);
+        jobLauncher.setTaskExecutor(bankJobTaskExecutor);
+        jobLauncher.afterPropertiesSet();
+        return jobLauncher;
+    }
+
+    // Listener: Read/process/write timers and chunk latency of one partition, tagged with its bank and step
+    @Bean
+    @StepScope
+    public IngestionMetricsListener<RawSourceData, FactTransactionEntity> ingestionMetricsListener(
+        MeterRegistry meterRegistry,
+        @Value("#{jobParameters['bankId']}") String bankId,
+        @Value("#{stepExecution.stepName}") String stepName
+    ) {
+        return new IngestionMetricsListener<>(meterRegistry, bankId.toUpperCase(), stepName);
+    }
+
+    // Worker step: Defines the chunk size and flow for a single partition
+    @Bean
+    public Step ingestionWorkerStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                    JdbcPagingItemReader<RawSourceData> reader, FactTransactionCopyWriter writer,
+                                    ItemProcessor<RawSourceData, FactTransactionEntity> processor,
+                                    CustomerSegmentationListener customerSegmentationListener,
+                                    IngestionMetricsListener<RawSourceData, FactTransactionEntity> ingestionMetricsListener,
+                                    @Value("${app.ingestion.chunk-size:1000}") int chunkSize,
+                                    @Value("${app.segmentation-service.enabled:true}") boolean segmentationEnabled) {
+        log.info("Configuring ingestionWorkerStep with chunk size {} (segmentation enabled: {})", chunkSize, segmentationEnabled);
+        SimpleStepBuilder<RawSourceData, FactTransactionEntity> builder = new StepBuilder("ingestionWorkerStep", jobRepository)
+                .<RawSourceData, FactTransactionEntity>chunk(chunkSize, transactionManager)
                 .reader(reader)
                 .processor(processor)
-                .writer(writer)
+                .writer(writer);
+        if (segmentationEnabled) {
+            builder.listener(customerSegmentationListener);
+        }
+        // Registered after the segmentation listener, so scoring time is part of the chunk but not of the write timer
+        builder.listener((ChunkListener) ingestionMetricsListener)
+               .listener((ItemReadListener<RawSourceData>) ingestionMetricsListener)
+               .listener((ItemProcessListener<RawSourceData, FactTransactionEntity>) ingestionMetricsListener)
+               .listener((ItemWriteListener<FactTransactionEntity>) ingestionMetricsListener);
+        return builder.build();
+    }
+
+    // Step: Partitions the bank table and fans the partitions out to worker steps
+    @Bean
+    public Step ingestionStep(JobRepository jobRepository, Step ingestionWorkerStep,
+                              BankTablePartitioner bankTablePartitioner, TaskExecutor ingestionTaskExecutor,
+                              @Value("${app.ingestion.grid-size:4}") int gridSize) {
+        log.info("Configuring partitioned ingestionStep with default grid size {}", gridSize);
+        return new StepBuilder("ingestionStep", jobRepository)
+                .partitioner("ingestionWorkerStep", bankTablePartitioner)
+                .step(ingestionWorkerStep)
+                .gridSize(gridSize)
+                .taskExecutor(ingestionTaskExecutor)
                 .build();
     }
 
+    // Listener: Fixes the watermark range of each run and advances the bank's watermark when the run completes
+    @Bean
+    public IncrementalIngestionListener incrementalIngestionListener(WatermarkRepository watermarkRepository,
+                                                                     @Value("${app.ingestion.watermark.settle:PT1M}") Duration settle) {
+        return new IncrementalIngestionListener(watermarkRepository, settle);
+    }
+
+    // Listener: Creates the monthly fact partitions of the run's range (after the range is fixed)
+    @Bean
+    public FactPartitionListener factPartitionListener(FactTablePartitions factTablePartitions,
+                                                       WatermarkRepository watermarkRepository) {
+        return new FactPartitionListener(factTablePartitions, watermarkRepository);
+    }
+
+    // Listener: Notifies the analytics service once a run has written facts
+    @Bean
+    public FactsUpdatedNotifier factsUpdatedNotifier(JdbcTemplate jdbcTemplate) {
+        return new FactsUpdatedNotifier(jdbcTemplate);
+    }
+
+    // Listener: Rebuilds the bank's daily sketches after a full rebuild (also used by the rebuild endpoint)
+    @Bean
+    public SketchRebuildListener sketchRebuildListener(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        return new SketchRebuildListener(new DailySketches(dataSource), new TransactionTemplate(transactionManager));
+    }
+
     // Job: Orchestrates the step
     @Bean
-    public Job ingestBankDataJob(JobRepository jobRepository, Step ingestionStep) {
+    public Job ingestBankDataJob(JobRepository jobRepository, Step ingestionStep,
+                                 IncrementalIngestionListener incrementalIngestionListener,
+                                 FactPartitionListener factPartitionListener,
+                                 FactsUpdatedNotifier factsUpdatedNotifier,
+                                 SketchRebuildListener sketchRebuildListener,
+                                 @Value("${app.ingestion.sketches.enabled:true}") boolean sketchesEnabled) {
         log.info("Building ingestBankDataJob");
-        return new JobBuilder("ingestBankDataJob", jobRepository)
-                .start(ingestionStep)
-                .build();
+        JobBuilder builder = new JobBuilder("ingestBankDataJob", jobRepository)
+                .listener(incrementalIngestionListener)
+                .listener(factPartitionListener)
+                .listener(factsUpdatedNotifier);
+        if (sketchesEnabled) {
+            // Registered last, so its afterJob runs before the notification
+            builder.listener(sketchRebuildListener);
+        }
+        return builder.start(ingestionStep).build();
     }
 }
 
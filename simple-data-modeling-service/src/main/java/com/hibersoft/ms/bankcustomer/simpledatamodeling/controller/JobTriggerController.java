@@ -1,23 +1,32 @@
 package com.hibersoft.ms.bankcustomer.simpledatamodeling.controller;
 
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.JobParametersBuilder;
 import org.springframework.batch.core.launch.JobLauncher;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Arrays;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.catalog.BankCatalog;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.partition.FactTablePartitions;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.rollup.SketchRebuildListener;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.watermark.IncrementalIngestionListener;
+
 @RestController
 @RequestMapping("/api/v1/simple-ingestion")
 public class JobTriggerController {
@@ -25,18 +34,39 @@ public class JobTriggerController {
     @Autowired
     private JobLauncher jobLauncher;
 
+    @Autowired
+    @Qualifier("asyncJobLauncher")
+    private JobLauncher asyncJobLauncher;
+
     @Autowired
     private Job ingestBankDataJob; 
 
+    @Autowired
+    private BankCatalog bankCatalog;
+
+    @Autowired
+    private FactTablePartitions factTablePartitions;
+
+    @Autowired
+    private SketchRebuildListener sketchRebuildListener;
+
      private static final Logger log = LoggerFactory.getLogger(JobTriggerController.class);
 
     @PostMapping("/start/{bankId}")
-    public ResponseEntity<Map<String, String>> startJob(@PathVariable String bankId) throws Exception {
-        log.info("API requested job launch for Bank ID: {}", bankId);
-        JobParameters jobParameters = new JobParametersBuilder()
+    public ResponseEntity<Map<String, String>> startJob(@PathVariable String bankId,
+                                                        @RequestParam(required = false) Integer gridSize,
+                                                        @RequestParam(defaultValue = "false") boolean fullRebuild) throws Exception {
+        log.info("API requested job launch for Bank ID: {} (gridSize={}, fullRebuild={})", bankId, gridSize, fullRebuild);
+        JobParametersBuilder parametersBuilder = new JobParametersBuilder()
                 .addString("bankId", bankId)
                 .addLong("run.id", System.currentTimeMillis())
-                .toJobParameters();
+                // By default only rows past the bank's watermark are ingested
+                .addJobParameter(IncrementalIngestionListener.FULL_REBUILD, fullRebuild, Boolean.class);
+        if (gridSize != null) {
+            // Number of key-range partitions the bank table is split into for this run
+            parametersBuilder.addLong("gridSize", gridSize.longValue());
+        }
+        JobParameters jobParameters = parametersBuilder.toJobParameters();
 
         log.debug("Launching job with parameters: {}", jobParameters);
         jobLauncher.run(ingestBankDataJob, jobParameters);
@@ -48,29 +78,57 @@ public class JobTriggerController {
         ));
     }
 
+    // Discovers every bank and launches one job per bank without waiting for them to finish;
+    // the jobs run in parallel (bounded by app.ingestion.max-concurrent-banks) on the async launcher
     @PostMapping("/start-all")
-    public ResponseEntity<Map<String, String>> startJobForAllBanks() {
-        log.info("API requested job launch for all banks");
-        
-        // In a real scenario, this would dynamically get a list of bank IDs
-        List<String> allBankIds = Arrays.asList("BANK_A", "BANK_B"); // Example list
-        
+    public ResponseEntity<Map<String, Object>> startJobForAllBanks(@RequestParam(defaultValue = "false") boolean fullRebuild) {
+        log.info("API requested job launch for all banks (fullRebuild={})", fullRebuild);
+
+        List<String> allBankIds = bankCatalog.discoverBankIds();
+
+        Map<String, Long> executions = new LinkedHashMap<>();
+        Map<String, String> failures = new LinkedHashMap<>();
         allBankIds.forEach(bankId -> {
             JobParameters jobParameters = new JobParametersBuilder()
                     .addString("bankId", bankId)
                     .addLong("run.id", System.currentTimeMillis() + bankId.hashCode())
+                    .addJobParameter(IncrementalIngestionListener.FULL_REBUILD, fullRebuild, Boolean.class)
                     .toJobParameters();
             try {
-                jobLauncher.run(ingestBankDataJob, jobParameters);
-                log.info("Job launched for Bank ID: {}", bankId);
+                JobExecution execution = asyncJobLauncher.run(ingestBankDataJob, jobParameters);
+                executions.put(bankId, execution.getId());
+                log.info("Job launched for Bank ID: {} (execution {})", bankId, execution.getId());
             } catch (Exception e) {
                 log.error("Failed to launch job for Bank ID: {}", bankId, e);
+                failures.put(bankId, e.getMessage());
             }
         });
 
-        return ResponseEntity.ok(Map.of(
-            "status", "STARTED",
-            "message", "Ingestion job launched for all configured banks"
-        ));
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", "STARTED");
+        response.put("message", "Ingestion job launched for " + executions.size() + " of " + allBankIds.size() + " discovered banks");
+        response.put("executions", executions);
+        if (!failures.isEmpty()) {
+            response.put("failures", failures);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    // Detaches the monthly fact partitions before the given month (e.g. before=2023-01) for archival;
+    // the detached tables stay in the database until they are dumped and dropped
+    @PostMapping("/fact-partitions/detach")
+    public ResponseEntity<Map<String, Object>> detachFactPartitions(@RequestParam YearMonth before) {
+        log.info("API requested detaching fact partitions before {}", before);
+        List<String> detached = factTablePartitions.detachMonthsBefore(before);
+        return ResponseEntity.ok(Map.of("detached", detached));
+    }
+
+    // Recomputes the bank's daily sketches from its facts (distinct customers and amount quantiles), e.g. for
+    // facts loaded before the sketches were kept; chunks of the bank wait until it is done
+    @PostMapping("/sketches/rebuild/{bankId}")
+    public ResponseEntity<Map<String, Object>> rebuildSketches(@PathVariable String bankId) {
+        log.info("API requested rebuilding the daily sketches of {}", bankId);
+        int cells = sketchRebuildListener.rebuild(bankId);
+        return ResponseEntity.ok(Map.of("bankId", bankId.toUpperCase(), "cells", cells));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.service.AimlServiceCaller;
+
+@RestController
+@RequestMapping("/api/v1/simple-segmentation")
+public class SegmentationController {
+
+    @Autowired
+    private AimlServiceCaller aimlService;
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentationController.class);
+
+    // Retrains the model through the segmentation service; cached predictions are dropped once the new model answers
+    @PostMapping("/trigger-training")
+    public ResponseEntity<Map<String, Object>> triggerTraining() {
+        log.info("API requested model retraining");
+        Map<String, Object> response = aimlService.triggerTraining();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response != null ? response : Map.of("status", "STARTED"));
+    }
+
+    // Drops every cached prediction now (e.g. for a segmentation service that reports no model_version)
+    @DeleteMapping("/cache")
+    public ResponseEntity<Map<String, String>> invalidateCache() {
+        aimlService.invalidateSegmentCache();
+        return ResponseEntity.ok(Map.of(
+            "status", "INVALIDATED",
+            "message", "Segment prediction cache cleared"
+        ));
+    }
+}
@@ -0,0 +1,100 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.listener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.web.client.RestClientException;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.FactTransactionEntity;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.service.AimlServiceCaller;
+
+/**
+ * Assigns customer segments once per chunk instead of once per row.
+ * <p>
+ * Before a chunk is written, the spending of every distinct customer in it is summed per category
+ * and all profiles are scored with a single {@link AimlServiceCaller#getCustomerSegments} call. If the
+ * segmentation service is unavailable the facts keep the placeholder segment set by the processor
+ * and the chunk is still written.
+ */
+public class CustomerSegmentationListener implements ItemWriteListener<FactTransactionEntity> {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerSegmentationListener.class);
+
+    // Feature names of the segmentation model, exactly as train_model.FEATURES (the training query's
+    // aliases, folded to lower case by PostgreSQL); /predict-segment rejects profiles missing any of them
+    static final List<String> FEATURES = List.of("utilities", "groceries", "transport", "shopping", "dining", "other");
+
+    // Category of the facts summed into each feature, as in train_model.fetch_data_for_training
+    private static final Map<String, String> FEATURE_BY_CATEGORY = Map.of(
+            "Utilities", "utilities", "Groceries", "groceries", "Transport", "transport",
+            "Shopping", "shopping", "Dining", "dining", "Other", "other");
+
+    private final AimlServiceCaller aimlService;
+
+    public CustomerSegmentationListener(AimlServiceCaller aimlService) {
+        this.aimlService = aimlService;
+    }
+
+    @Override
+    public void beforeWrite(Chunk<? extends FactTransactionEntity> items) {
+        Map<String, Map<String, BigDecimal>> profiles = buildProfiles(items);
+        if (profiles.isEmpty()) {
+            return;
+        }
+
+        List<Integer> segments;
+        try {
+            segments = aimlService.getCustomerSegments(new ArrayList<>(profiles.values()));
+        } catch (RestClientException e) {
+            log.warn("Segmentation of {} customer(s) failed, keeping placeholder segments: {}", profiles.size(), e.getMessage());
+            return;
+        }
+
+        Map<String, String> segmentByCustomer = new LinkedHashMap<>();
+        int i = 0;
+        for (String customerId : profiles.keySet()) {
+            Integer segment = segments.get(i++);
+            if (segment != null) {
+                segmentByCustomer.put(customerId, String.valueOf(segment));
+            }
+        }
+        for (FactTransactionEntity fact : items) {
+            String segment = segmentByCustomer.get(fact.getCustomerId());
+            if (segment != null) {
+                fact.setCustomerSegment(segment);
+            }
+        }
+        log.debug("Segmented {} customer(s) for a chunk of {} fact(s)", segmentByCustomer.size(), items.size());
+    }
+
+    /**
+     * Spending per feature for each distinct customer, in first-seen order. Built like the training data:
+     * every fact's signed {@code amount_standard} is added to the feature of its category, whatever its
+     * transaction type, and facts of categories without a feature are left out.
+     */
+    static Map<String, Map<String, BigDecimal>> buildProfiles(Chunk<? extends FactTransactionEntity> items) {
+        Map<String, Map<String, BigDecimal>> profiles = new LinkedHashMap<>();
+        for (FactTransactionEntity fact : items) {
+            if (fact.getCustomerId() == null) {
+                continue;
+            }
+            Map<String, BigDecimal> profile = profiles.computeIfAbsent(fact.getCustomerId(), id -> {
+                Map<String, BigDecimal> empty = new LinkedHashMap<>();
+                FEATURES.forEach(feature -> empty.put(feature, BigDecimal.ZERO));
+                return empty;
+            });
+            String feature = fact.getCategory() != null ? FEATURE_BY_CATEGORY.get(fact.getCategory()) : null;
+            if (fact.getAmountStandard() != null && feature != null) {
+                profile.merge(feature, fact.getAmountStandard(), BigDecimal::add);
+            }
+        }
+        return profiles;
+    }
+}
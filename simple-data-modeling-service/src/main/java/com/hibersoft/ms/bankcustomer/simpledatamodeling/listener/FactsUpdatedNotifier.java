@@ -0,0 +1,53 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Tells the analytics service that a bank's facts changed: when {@code ingestBankDataJob} completes
+ * after writing facts, sends {@code NOTIFY facts_updated, '<bankId>'}. Every analytics replica listening
+ * on the channel drops its cached results.
+ * <p>
+ * Only done on PostgreSQL. A failed notification is logged and does not fail the job, which already
+ * committed its facts; the analytics cache then catches up when its entries expire.
+ */
+public class FactsUpdatedNotifier implements JobExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(FactsUpdatedNotifier.class);
+
+    public static final String CHANNEL = "facts_updated";
+
+    static final String NOTIFY_SQL = "SELECT pg_notify('" + CHANNEL + "', ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FactsUpdatedNotifier(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        long written = jobExecution.getStepExecutions().stream().mapToLong(StepExecution::getWriteCount).sum();
+        if (jobExecution.getStatus() != BatchStatus.COMPLETED || written == 0) {
+            return;
+        }
+        String bankId = jobExecution.getJobParameters().getString("bankId");
+        try {
+            boolean postgres = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+            if (postgres) {
+                jdbcTemplate.queryForObject(NOTIFY_SQL, Object.class, bankId);
+                log.info("Notified {} for {}", CHANNEL, bankId);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not notify {} for {}: {}", CHANNEL, bankId, e.getMessage());
+        }
+    }
+}
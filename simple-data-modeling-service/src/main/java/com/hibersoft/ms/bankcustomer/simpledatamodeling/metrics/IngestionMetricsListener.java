@@ -0,0 +1,162 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Publishes where a partition spends its time, tagged with {@code bankId} and {@code step}:
+ * <ul>
+ * <li>{@code ingestion.item.read} / {@code ingestion.item.process}: time per row in the reader and processor</li>
+ * <li>{@code ingestion.chunk.write}: time per chunk in the writer</li>
+ * <li>{@code ingestion.chunk}: latency of a whole chunk (read, process, write and commit), as a histogram</li>
+ * <li>{@code ingestion.chunk.throughput}: rows/s of each committed chunk</li>
+ * <li>{@code ingestion.items{stage=read|filtered|written}} and {@code ingestion.errors{stage=...}}: row and failure counts</li>
+ * </ul>
+ * One instance serves one step execution (the bean is step scoped) and is only called from that
+ * step's thread, so the start times are plain fields.
+ */
+public class IngestionMetricsListener<I, O> implements ChunkListener, ItemReadListener<I>, ItemProcessListener<I, O>,
+        ItemWriteListener<O> {
+
+    private final Timer readTimer;
+    private final Timer processTimer;
+    private final Timer writeTimer;
+    private final Timer chunkTimer;
+    private final DistributionSummary chunkThroughput;
+    private final Counter itemsRead;
+    private final Counter itemsFiltered;
+    private final Counter itemsWritten;
+    private final Counter readErrors;
+    private final Counter processErrors;
+    private final Counter writeErrors;
+    private final Counter chunkErrors;
+
+    private long readStart;
+    private long processStart;
+    private long writeStart;
+    private long chunkStart;
+    private long chunkItemsWritten;
+
+    public IngestionMetricsListener(MeterRegistry meterRegistry, String bankId, String stepName) {
+        Tags tags = Tags.of("bankId", bankId, "step", baseStepName(stepName));
+        this.readTimer = Timer.builder("ingestion.item.read").tags(tags).register(meterRegistry);
+        this.processTimer = Timer.builder("ingestion.item.process").tags(tags).register(meterRegistry);
+        this.writeTimer = Timer.builder("ingestion.chunk.write").tags(tags).register(meterRegistry);
+        this.chunkTimer = Timer.builder("ingestion.chunk")
+                .description("Latency of a chunk from its first read to its commit")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(meterRegistry);
+        this.chunkThroughput = DistributionSummary.builder("ingestion.chunk.throughput")
+                .baseUnit("rows/s")
+                .tags(tags)
+                .register(meterRegistry);
+        this.itemsRead = items(meterRegistry, tags, "read");
+        this.itemsFiltered = items(meterRegistry, tags, "filtered");
+        this.itemsWritten = items(meterRegistry, tags, "written");
+        this.readErrors = errors(meterRegistry, tags, "read");
+        this.processErrors = errors(meterRegistry, tags, "process");
+        this.writeErrors = errors(meterRegistry, tags, "write");
+        this.chunkErrors = errors(meterRegistry, tags, "chunk");
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        chunkStart = System.nanoTime();
+        chunkItemsWritten = 0;
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        long elapsed = System.nanoTime() - chunkStart;
+        chunkTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        if (chunkItemsWritten > 0 && elapsed > 0) {
+            chunkThroughput.record(chunkItemsWritten * 1e9 / elapsed);
+        }
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        chunkErrors.increment();
+    }
+
+    @Override
+    public void beforeRead() {
+        readStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterRead(I item) {
+        readTimer.record(System.nanoTime() - readStart, TimeUnit.NANOSECONDS);
+        itemsRead.increment();
+    }
+
+    @Override
+    public void onReadError(Exception ex) {
+        readErrors.increment();
+    }
+
+    @Override
+    public void beforeProcess(I item) {
+        processStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterProcess(I item, O result) {
+        processTimer.record(System.nanoTime() - processStart, TimeUnit.NANOSECONDS);
+        if (result == null) {
+            itemsFiltered.increment();
+        }
+    }
+
+    @Override
+    public void onProcessError(I item, Exception e) {
+        processErrors.increment();
+    }
+
+    @Override
+    public void beforeWrite(Chunk<? extends O> items) {
+        writeStart = System.nanoTime();
+    }
+
+    @Override
+    public void afterWrite(Chunk<? extends O> items) {
+        writeTimer.record(System.nanoTime() - writeStart, TimeUnit.NANOSECONDS);
+        itemsWritten.increment(items.size());
+        chunkItemsWritten += items.size();
+    }
+
+    @Override
+    public void onWriteError(Exception exception, Chunk<? extends O> items) {
+        writeErrors.increment();
+    }
+
+    // "ingestionWorkerStep:partition3" -> "ingestionWorkerStep", so the tag does not grow with the grid size
+    static String baseStepName(String stepName) {
+        int partitionSeparator = stepName.indexOf(':');
+        return partitionSeparator < 0 ? stepName : stepName.substring(0, partitionSeparator);
+    }
+
+    private static Counter items(MeterRegistry meterRegistry, Tags tags, String stage) {
+        return Counter.builder("ingestion.items").tags(tags).tag("stage", stage).register(meterRegistry);
+    }
+
+    private static Counter errors(MeterRegistry meterRegistry, Tags tags, String stage) {
+        return Counter.builder("ingestion.errors").tags(tags).tag("stage", stage).register(meterRegistry);
+    }
+}
@@ -0,0 +1,19 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// This maps to a row of the category_rules table: descriptions containing the keyword fall into the category
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class CategoryRule {
+    private String keyword;
+    private String category;
+    private int priority; // Highest priority wins when several keywords match
+}
@@ -8,12 +8,14 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Getter;
 import lombok.Setter;
 
 // This maps to FACT_TRANSACTIONS table structure
 @Entity
-@Table(name = "FACT_TRANSACTIONS")
+@Table(name = "FACT_TRANSACTIONS", uniqueConstraints = @UniqueConstraint(
+        name = "fact_transactions_natural_key", columnNames = {"bank_id", "source_transaction_id"}))
 @Getter
 @Setter
 public class FactTransactionEntity {
@@ -21,6 +23,7 @@ public class FactTransactionEntity {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String bankId;
+    private String sourceTransactionId; // Key of the row in the bank's table; unique per bank
     private String customerId;
     private LocalDateTime transactionTime;
     private BigDecimal amountStandard;
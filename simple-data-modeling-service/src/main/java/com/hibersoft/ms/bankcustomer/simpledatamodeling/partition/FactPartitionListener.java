@@ -0,0 +1,52 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.partition;
+
+import java.time.LocalDate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.watermark.WatermarkRange;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.watermark.WatermarkRepository;
+
+/**
+ * Creates the {@code fact_transactions} partitions a run will write to before any chunk starts: one per
+ * month between the oldest and the newest {@code transaction_date} among the rows of the run's
+ * {@link WatermarkRange} (a range of insertion order, so late rows can reach far back). Must be registered
+ * after the listener that puts the range into the job ExecutionContext.
+ */
+public class FactPartitionListener implements JobExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(FactPartitionListener.class);
+
+    private final FactTablePartitions factTablePartitions;
+    private final WatermarkRepository watermarkRepository;
+
+    public FactPartitionListener(FactTablePartitions factTablePartitions, WatermarkRepository watermarkRepository) {
+        this.factTablePartitions = factTablePartitions;
+        this.watermarkRepository = watermarkRepository;
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        WatermarkRange range = (WatermarkRange) jobExecution.getExecutionContext().get(WatermarkRange.CONTEXT_KEY);
+        if (range == null || range.to() == null) {
+            return;
+        }
+        String bankId = jobExecution.getJobParameters().getString("bankId");
+        WatermarkRepository.DateSpan span = watermarkRepository.findDateSpan(bankId.toLowerCase() + "_transactions", range);
+        if (span.first() == null) {
+            return;
+        }
+        LocalDate firstDay = day(span.first());
+        LocalDate lastDay = day(span.last());
+        log.debug("Ensuring fact partitions from {} to {} for {}", firstDay, lastDay, bankId);
+        factTablePartitions.ensureMonths(firstDay, lastDay);
+    }
+
+    // transaction_date is text starting with an ISO date, e.g. 2024-03-01T10:00:00 or 2024-03-01 10:00:00
+    private static LocalDate day(String transactionDate) {
+        return LocalDate.parse(transactionDate.substring(0, 10));
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.batch.core.Step;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.categorization.CategoryRuleService;
 import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.RawSourceData;
 import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.FactTransactionEntity;
 import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.RawSourceData;
@@ -28,27 +29,9 @@ public class EnrichmentItemProcessor implements ItemProcessor<RawSourceData, Fac
     @Autowired
     private AimlServiceCaller aimlService;
 
-    // ... (Add the categorizeTransaction helper method here from
-    // BatchConfiguration) ...
-    private String categorizeTransaction(String description) {
-        // ... (categorization logic) ...
-        String lowerDesc = description.toLowerCase();
-        if (lowerDesc.contains("utility") || lowerDesc.contains("hydro") || lowerDesc.contains("bell")
-                || lowerDesc.contains("rogers")) {
-            return "Utilities";
-        } else if (lowerDesc.contains("groceries") || lowerDesc.contains("supermarket")
-                || lowerDesc.contains("costco")) {
-            return "Groceries";
-        } else if (lowerDesc.contains("gas") || lowerDesc.contains("petrol") || lowerDesc.contains("shell")) {
-            return "Transport";
-        } else if (lowerDesc.contains("online") || lowerDesc.contains("amazon") || lowerDesc.contains("purchase")) {
-            return "Shopping";
-        } else if (lowerDesc.contains("dinner") || lowerDesc.contains("restaurant")) {
-            return "Dining";
-        } else {
-            return "Other";
-        }
-    }
+    // Keyword rules are compiled once into a single-pass matcher and reloaded from category_rules
+    @Autowired
+    private CategoryRuleService categoryRuleService;
 
     @Override
     public FactTransactionEntity process(RawSourceData rawData) throws Exception {
@@ -58,6 +41,9 @@ public class EnrichmentItemProcessor implements ItemProcessor<RawSourceData, Fac
         fact.setBankId(this.bankId.toUpperCase());
         // -----------------------------------------
 
+        // Natural key of the fact: the writer upserts on (bank_id, source_transaction_id)
+        fact.setSourceTransactionId(rawData.getBankSpecificAccountId());
+
         fact.setTransactionTime(LocalDateTime.parse(rawData.getTransactionDate()));
         fact.setAmountStandard(new BigDecimal(rawData.getAmount()));
         fact.setDescriptionStandard(rawData.getDescription());
@@ -67,8 +53,8 @@ public class EnrichmentItemProcessor implements ItemProcessor<RawSourceData, Fac
         fact.setTransactionType(rawData.getAmount().startsWith("-") ? "DEBIT" : "CREDIT");
         // --------------------------------------------------------------
 
-        fact.setCustomerId("U_" + rawData.getBankSpecificAccountId());
-        fact.setCategory(categorizeTransaction(rawData.getDescription()));
+        fact.setCustomerId("U_" + rawData.getAccountId());
+        fact.setCategory(categoryRuleService.categorize(rawData.getDescription()));
 
         // Call the AI/ML service (Conceptual for now) ---
         // The processor only has single transactions, so we can't aggregate yet. 
@@ -76,6 +62,7 @@ public class EnrichmentItemProcessor implements ItemProcessor<RawSourceData, Fac
         // In a real implementation: The batch job *first* inserts data into the fact table, 
         // and a *second* job/step aggregates the data and calls the AI/ML service in bulk.
         // and we can use a placeholder for the segment:
+        // (CustomerSegmentationListener replaces it per chunk with one batched request when segmentation is enabled)
         fact.setCustomerSegment("Not Segmented Yet"); 
 
         return fact;
@@ -0,0 +1,195 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.rollup;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.FactTransactionEntity;
+
+/**
+ * Keeps the daily rollup tables in step with {@code fact_transactions}.
+ * <p>
+ * Each rollup holds {@code amount_sum} and {@code txn_count} per key and {@code txn_date}. The fact
+ * writer loads the current version of the facts it is about to upsert, then applies the difference
+ * between the new and the previous versions, inside the chunk transaction: inserts add, rewrites of
+ * the same fact (re-runs, late corrections) move the amount between cells, and unchanged facts cost
+ * nothing. Cells are updated in key order so that concurrent partitions cannot deadlock.
+ * <p>
+ * Facts without a transaction time, and facts whose rollup key is null, are not counted in that rollup.
+ */
+public class DailyRollups {
+
+    public enum Rollup {
+        CUSTOMER("rollup_customer_daily", "customer_id", FactTransactionEntity::getCustomerId),
+        CATEGORY("rollup_category_daily", "category", FactTransactionEntity::getCategory),
+        LOCATION("rollup_location_daily", "location_code", FactTransactionEntity::getLocationCode),
+        BANK("rollup_bank_daily", "bank_id", FactTransactionEntity::getBankId);
+
+        private final String table;
+        private final String keyColumn;
+        private final Function<FactTransactionEntity, String> key;
+
+        Rollup(String table, String keyColumn, Function<FactTransactionEntity, String> key) {
+            this.table = table;
+            this.keyColumn = keyColumn;
+            this.key = key;
+        }
+
+        public String table() {
+            return table;
+        }
+
+        String upsertSql() {
+            return "INSERT INTO " + table + " (" + keyColumn + ", txn_date, amount_sum, txn_count) VALUES (?, ?, ?, ?) "
+                    + "ON CONFLICT (" + keyColumn + ", txn_date) DO UPDATE SET "
+                    + "amount_sum = " + table + ".amount_sum + EXCLUDED.amount_sum, "
+                    + "txn_count = " + table + ".txn_count + EXCLUDED.txn_count";
+        }
+
+        String mergeSql() {
+            return "MERGE INTO " + table + " t USING (SELECT CAST(? AS VARCHAR(255)) AS k, CAST(? AS DATE) AS d, "
+                    + "CAST(? AS NUMERIC(38, 2)) AS a, CAST(? AS BIGINT) AS c) s "
+                    + "ON t." + keyColumn + " = s.k AND t.txn_date = s.d "
+                    + "WHEN MATCHED THEN UPDATE SET amount_sum = t.amount_sum + s.a, txn_count = t.txn_count + s.c "
+                    + "WHEN NOT MATCHED THEN INSERT (" + keyColumn + ", txn_date, amount_sum, txn_count) VALUES (s.k, s.d, s.a, s.c)";
+        }
+    }
+
+    record Cell(String key, LocalDate day) implements Comparable<Cell> {
+        @Override
+        public int compareTo(Cell other) {
+            int byKey = key.compareTo(other.key);
+            return byKey != 0 ? byKey : day.compareTo(other.day);
+        }
+    }
+
+    static final class Delta {
+        BigDecimal amount = BigDecimal.ZERO;
+        long count;
+
+        boolean isZero() {
+            return count == 0 && amount.signum() == 0;
+        }
+    }
+
+    static final String PREVIOUS_SQL_PREFIX = "SELECT bank_id, source_transaction_id, customer_id, transaction_time, "
+            + "amount_standard, category, location_code FROM fact_transactions WHERE bank_id = ? AND source_transaction_id IN (";
+
+    // Keeps the IN list well below driver parameter limits whatever the chunk size
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DailyRollups(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Current version of the given facts in {@code fact_transactions}, by natural key; facts not
+     * stored yet are absent. Must run in the chunk transaction, before the facts are upserted.
+     */
+    public Map<List<String>, FactTransactionEntity> loadPrevious(Collection<? extends FactTransactionEntity> facts) {
+        Map<String, List<String>> sourceIdsByBank = new LinkedHashMap<>();
+        for (FactTransactionEntity fact : facts) {
+            sourceIdsByBank.computeIfAbsent(fact.getBankId(), bankId -> new ArrayList<>()).add(fact.getSourceTransactionId());
+        }
+
+        Map<List<String>, FactTransactionEntity> previous = new LinkedHashMap<>();
+        sourceIdsByBank.forEach((bankId, sourceIds) -> {
+            for (int from = 0; from < sourceIds.size(); from += LOOKUP_BATCH_SIZE) {
+                List<String> slice = sourceIds.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, sourceIds.size()));
+                Object[] args = new Object[slice.size() + 1];
+                args[0] = bankId;
+                for (int i = 0; i < slice.size(); i++) {
+                    args[i + 1] = slice.get(i);
+                }
+                String sql = PREVIOUS_SQL_PREFIX + String.join(", ", Collections.nCopies(slice.size(), "?")) + ")";
+                jdbcTemplate.query(sql, rs -> {
+                    FactTransactionEntity fact = new FactTransactionEntity();
+                    fact.setBankId(rs.getString(1));
+                    fact.setSourceTransactionId(rs.getString(2));
+                    fact.setCustomerId(rs.getString(3));
+                    Timestamp transactionTime = rs.getTimestamp(4);
+                    fact.setTransactionTime(transactionTime != null ? transactionTime.toLocalDateTime() : null);
+                    fact.setAmountStandard(rs.getBigDecimal(5));
+                    fact.setCategory(rs.getString(6));
+                    fact.setLocationCode(rs.getString(7));
+                    previous.put(naturalKey(fact), fact);
+                }, args);
+            }
+        });
+        return previous;
+    }
+
+    /**
+     * Adds the new versions of the facts to the rollups and takes their previous versions out.
+     * Must run in the chunk transaction, after the facts are upserted.
+     */
+    public void apply(Map<List<String>, FactTransactionEntity> previous, Collection<? extends FactTransactionEntity> facts) {
+        Map<Rollup, TreeMap<Cell, Delta>> deltas = deltas(previous, facts);
+        boolean postgres = Boolean.TRUE.equals(jdbcTemplate.execute(
+                (ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class)));
+        deltas.forEach((rollup, cells) -> {
+            List<Object[]> batchArgs = new ArrayList<>(cells.size());
+            cells.forEach((cell, delta) -> batchArgs.add(new Object[] { cell.key(), cell.day(), delta.amount, delta.count }));
+            if (!batchArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(postgres ? rollup.upsertSql() : rollup.mergeSql(), batchArgs);
+            }
+        });
+    }
+
+    // Non-zero changes per rollup cell, sorted by cell
+    static Map<Rollup, TreeMap<Cell, Delta>> deltas(Map<List<String>, FactTransactionEntity> previous,
+                                                    Collection<? extends FactTransactionEntity> facts) {
+        Map<Rollup, TreeMap<Cell, Delta>> deltas = new EnumMap<>(Rollup.class);
+        for (Rollup rollup : Rollup.values()) {
+            deltas.put(rollup, new TreeMap<>());
+        }
+        for (FactTransactionEntity fact : facts) {
+            FactTransactionEntity old = previous.get(naturalKey(fact));
+            if (old != null) {
+                add(deltas, old, -1);
+            }
+            add(deltas, fact, 1);
+        }
+        deltas.values().forEach(cells -> cells.values().removeIf(Delta::isZero));
+        return deltas;
+    }
+
+    public static List<String> naturalKey(FactTransactionEntity fact) {
+        return Arrays.asList(fact.getBankId(), fact.getSourceTransactionId());
+    }
+
+    private static void add(Map<Rollup, TreeMap<Cell, Delta>> deltas, FactTransactionEntity fact, int sign) {
+        if (fact.getTransactionTime() == null) {
+            return;
+        }
+        LocalDate day = fact.getTransactionTime().toLocalDate();
+        BigDecimal amount = fact.getAmountStandard() != null ? fact.getAmountStandard() : BigDecimal.ZERO;
+        for (Rollup rollup : Rollup.values()) {
+            String key = rollup.key.apply(fact);
+            if (key == null) {
+                continue;
+            }
+            Delta delta = deltas.get(rollup).computeIfAbsent(new Cell(key, day), cell -> new Delta());
+            delta.amount = sign > 0 ? delta.amount.add(amount) : delta.amount.subtract(amount);
+            delta.count += sign;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.rollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.sql.DataSource;
+
+import org.apache.datasketches.hll.HllSketch;
+import org.apache.datasketches.hll.Union;
+import org.apache.datasketches.kll.KllDoublesSketch;
+import org.apache.datasketches.memory.Memory;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.categorization.CategoryMatcher;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.FactTransactionEntity;
+
+/**
+ * Keeps {@code sketch_daily}: per {@code bank_id}, {@code category} and {@code txn_date}, a HyperLogLog
+ * sketch of the customer ids and a KLL sketch of the amounts, stored in their compact binary forms.
+ * The analytics service answers approximate distinct-customer and amount-quantile queries by merging
+ * the cells of a date range instead of scanning facts.
+ * <p>
+ * Sketches can only grow, so unlike {@link DailyRollups} a rewrite cannot take the previous version
+ * out: unchanged facts are skipped and new facts are merged into their cells, but the cells a corrected
+ * fact leaves and enters are recomputed from {@code fact_transactions} (which already holds the
+ * correction, as the chunk's facts are written first). Cells are locked and written in key order inside
+ * the chunk transaction, so that concurrent partitions cannot deadlock or lose each other's updates.
+ * {@link #rebuild(String)} recomputes every cell of a bank, e.g. for facts loaded before the sketches
+ * were kept. Facts without a transaction time are not sketched; facts without a category count as
+ * {@value CategoryMatcher#DEFAULT_CATEGORY}.
+ */
+public class DailySketches {
+
+    // 2^12 registers: about 1.6% relative standard error on distinct counts, about 2 KB per cell at most
+    public static final int HLL_LG_K = 12;
+    // About 1.65% normalized rank error on quantiles
+    public static final int KLL_K = 200;
+
+    static final String SELECT_SQL = "SELECT customers_hll, amounts_kll FROM sketch_daily "
+            + "WHERE bank_id = ? AND category = ? AND txn_date = ? FOR UPDATE";
+    static final String INSERT_SQL = "INSERT INTO sketch_daily (bank_id, category, txn_date, customers_hll, amounts_kll) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    // A partition that inserted the same new cell first wins; this one then merges into it
+    static final String INSERT_IF_ABSENT_SQL = INSERT_SQL + " ON CONFLICT (bank_id, category, txn_date) DO NOTHING";
+    static final String UPDATE_SQL = "UPDATE sketch_daily SET customers_hll = ?, amounts_kll = ? "
+            + "WHERE bank_id = ? AND category = ? AND txn_date = ?";
+    static final String DELETE_SQL = "DELETE FROM sketch_daily WHERE bank_id = ? AND category = ? AND txn_date = ?";
+    static final String DELETE_BANK_SQL = "DELETE FROM sketch_daily WHERE bank_id = ?";
+    static final String CELL_FACTS_SQL = "SELECT customer_id, amount_standard FROM fact_transactions "
+            + "WHERE bank_id = ? AND COALESCE(category, ?) = ? AND transaction_time >= ? AND transaction_time < ?";
+    static final String BANK_FACTS_SQL = "SELECT customer_id, amount_standard, COALESCE(category, ?), transaction_time "
+            + "FROM fact_transactions WHERE bank_id = ? AND transaction_time IS NOT NULL ORDER BY transaction_time";
+
+    record Cell(String bankId, String category, LocalDate day) implements Comparable<Cell> {
+        @Override
+        public int compareTo(Cell other) {
+            int byBank = bankId.compareTo(other.bankId);
+            if (byBank != 0) {
+                return byBank;
+            }
+            int byCategory = category.compareTo(other.category);
+            return byCategory != 0 ? byCategory : day.compareTo(other.day);
+        }
+    }
+
+    static final class CellSketches {
+        final HllSketch customers = new HllSketch(HLL_LG_K);
+        final KllDoublesSketch amounts = KllDoublesSketch.newHeapInstance(KLL_K);
+
+        void add(String customerId, BigDecimal amount) {
+            if (customerId != null) {
+                customers.update(customerId);
+            }
+            if (amount != null) {
+                amounts.update(amount.doubleValue());
+            }
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IngestionBankLock bankLock;
+
+    public DailySketches(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(10_000);
+        this.bankLock = new IngestionBankLock(dataSource);
+    }
+
+    /**
+     * Adds the new facts to their cells and recomputes the cells of corrected facts. {@code previous} holds
+     * the stored versions of the facts (see {@link DailyRollups#loadPrevious}). Must run in the chunk
+     * transaction, after the facts were written.
+     */
+    public void apply(Map<List<String>, FactTransactionEntity> previous, Collection<? extends FactTransactionEntity> facts) {
+        TreeSet<Cell> recomputed = corrected(previous, facts);
+        TreeMap<Cell, CellSketches> updates = updates(previous, facts);
+        updates.keySet().removeAll(recomputed);
+        if (updates.isEmpty() && recomputed.isEmpty()) {
+            return;
+        }
+        boolean postgres = isPostgres();
+        TreeSet<Cell> cells = new TreeSet<>(updates.keySet());
+        cells.addAll(recomputed);
+        for (Cell cell : cells) {
+            if (recomputed.contains(cell)) {
+                recompute(cell);
+            } else {
+                merge(cell, updates.get(cell), postgres);
+            }
+        }
+    }
+
+    /**
+     * Replaces every cell of the bank with sketches of its facts as they are now, a day at a time. Takes the
+     * bank's {@link IngestionBankLock}, so chunks of the bank wait for it; must run in a transaction.
+     *
+     * @return the number of cells written
+     */
+    public int rebuild(String bankId) {
+        bankLock.lock(List.of(bankId));
+        jdbcTemplate.update(DELETE_BANK_SQL, bankId);
+        TreeMap<Cell, CellSketches> day = new TreeMap<>();
+        int[] written = new int[1];
+        jdbcTemplate.query(BANK_FACTS_SQL, rs -> {
+            Cell cell = new Cell(bankId, rs.getString(3), rs.getTimestamp(4).toLocalDateTime().toLocalDate());
+            if (!day.isEmpty() && !day.firstKey().day().equals(cell.day())) {
+                written[0] += insert(day);
+            }
+            day.computeIfAbsent(cell, key -> new CellSketches()).add(rs.getString(1), rs.getBigDecimal(2));
+        }, CategoryMatcher.DEFAULT_CATEGORY, bankId);
+        written[0] += insert(day);
+        return written[0];
+    }
+
+    // Inserts the given cells (of a bank whose cells were deleted) and empties the map
+    private int insert(TreeMap<Cell, CellSketches> cells) {
+        cells.forEach((cell, sketches) -> jdbcTemplate.update(INSERT_SQL, cell.bankId(), cell.category(), cell.day(),
+                sketches.customers.toCompactByteArray(), sketches.amounts.toByteArray()));
+        int inserted = cells.size();
+        cells.clear();
+        return inserted;
+    }
+
+    // Sketches of the facts to add, per cell, sorted by cell
+    static TreeMap<Cell, CellSketches> updates(Map<List<String>, FactTransactionEntity> previous,
+                                               Collection<? extends FactTransactionEntity> facts) {
+        TreeMap<Cell, CellSketches> updates = new TreeMap<>();
+        for (FactTransactionEntity fact : facts) {
+            if (fact.getTransactionTime() == null || !changed(previous.get(DailyRollups.naturalKey(fact)), fact)) {
+                continue;
+            }
+            updates.computeIfAbsent(cell(fact), cell -> new CellSketches()).add(fact.getCustomerId(), fact.getAmountStandard());
+        }
+        return updates;
+    }
+
+    // Cells left or entered by facts whose stored, sketched version changed
+    static TreeSet<Cell> corrected(Map<List<String>, FactTransactionEntity> previous,
+                                   Collection<? extends FactTransactionEntity> facts) {
+        TreeSet<Cell> cells = new TreeSet<>();
+        for (FactTransactionEntity fact : facts) {
+            FactTransactionEntity old = previous.get(DailyRollups.naturalKey(fact));
+            if (old == null || old.getTransactionTime() == null || !changed(old, fact)) {
+                continue;
+            }
+            cells.add(cell(old));
+            if (fact.getTransactionTime() != null) {
+                cells.add(cell(fact));
+            }
+        }
+        return cells;
+    }
+
+    // Whether the fact is new or differs from its stored version in anything the sketches see
+    static boolean changed(FactTransactionEntity old, FactTransactionEntity fact) {
+        if (old == null || old.getTransactionTime() == null) {
+            return true;
+        }
+        return !cell(old).equals(cell(fact))
+                || !Objects.equals(old.getCustomerId(), fact.getCustomerId())
+                || !amountEquals(old, fact);
+    }
+
+    private void merge(Cell cell, CellSketches sketches, boolean postgres) {
+        List<byte[][]> stored = select(cell);
+        if (stored.isEmpty()) {
+            int inserted = jdbcTemplate.update(postgres ? INSERT_IF_ABSENT_SQL : INSERT_SQL, cell.bankId(), cell.category(),
+                    cell.day(), sketches.customers.toCompactByteArray(), sketches.amounts.toByteArray());
+            if (inserted == 1) {
+                return;
+            }
+            stored = select(cell);
+        }
+
+        Union customers = new Union(HLL_LG_K);
+        customers.update(HllSketch.heapify(stored.get(0)[0]));
+        customers.update(sketches.customers);
+        KllDoublesSketch amounts = KllDoublesSketch.heapify(Memory.wrap(stored.get(0)[1]));
+        amounts.merge(sketches.amounts);
+        jdbcTemplate.update(UPDATE_SQL, customers.toCompactByteArray(), amounts.toByteArray(),
+                cell.bankId(), cell.category(), cell.day());
+    }
+
+    // Replaces the cell with sketches of its current facts, or deletes it when none is left
+    private void recompute(Cell cell) {
+        List<byte[][]> stored = select(cell);
+        CellSketches sketches = new CellSketches();
+        int[] facts = new int[1];
+        LocalDateTime start = cell.day().atStartOfDay();
+        jdbcTemplate.query(CELL_FACTS_SQL, rs -> {
+            sketches.add(rs.getString(1), rs.getBigDecimal(2));
+            facts[0]++;
+        }, cell.bankId(), CategoryMatcher.DEFAULT_CATEGORY, cell.category(), start, start.plusDays(1));
+        if (facts[0] == 0) {
+            jdbcTemplate.update(DELETE_SQL, cell.bankId(), cell.category(), cell.day());
+        } else if (stored.isEmpty()) {
+            // No other chunk of the bank can insert the cell meanwhile: the writer holds the bank's lock
+            jdbcTemplate.update(INSERT_SQL, cell.bankId(), cell.category(), cell.day(),
+                    sketches.customers.toCompactByteArray(), sketches.amounts.toByteArray());
+        } else {
+            jdbcTemplate.update(UPDATE_SQL, sketches.customers.toCompactByteArray(), sketches.amounts.toByteArray(),
+                    cell.bankId(), cell.category(), cell.day());
+        }
+    }
+
+    private boolean isPostgres() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute(
+                (ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class)));
+    }
+
+    private List<byte[][]> select(Cell cell) {
+        return jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new byte[][] { rs.getBytes(1), rs.getBytes(2) },
+                cell.bankId(), cell.category(), cell.day());
+    }
+
+    private static Cell cell(FactTransactionEntity fact) {
+        String category = fact.getCategory() != null ? fact.getCategory() : CategoryMatcher.DEFAULT_CATEGORY;
+        return new Cell(fact.getBankId(), category, fact.getTransactionTime().toLocalDate());
+    }
+
+    private static boolean amountEquals(FactTransactionEntity old, FactTransactionEntity fact) {
+        if (old.getAmountStandard() == null || fact.getAmountStandard() == null) {
+            return old.getAmountStandard() == fact.getAmountStandard();
+        }
+        return old.getAmountStandard().compareTo(fact.getAmountStandard()) == 0;
+    }
+}
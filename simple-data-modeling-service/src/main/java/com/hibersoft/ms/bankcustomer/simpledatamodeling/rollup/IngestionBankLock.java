@@ -0,0 +1,47 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.rollup;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Per-bank locks on the rows of {@code ingestion_bank_lock}, held until the current transaction ends.
+ * Everything that reads facts of a bank and then adds to its rollups or sketches takes the bank's lock
+ * first, so that two writers cannot both count the same fact.
+ */
+public class IngestionBankLock {
+
+    // Upserting the bank's row locks it until the transaction ends
+    static final String LOCK_SQL = "INSERT INTO ingestion_bank_lock (bank_id) VALUES (?) "
+            + "ON CONFLICT (bank_id) DO UPDATE SET bank_id = EXCLUDED.bank_id";
+    static final String LOCK_MERGE_SQL = "MERGE INTO ingestion_bank_lock (bank_id) KEY (bank_id) VALUES (?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IngestionBankLock(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Locks the given banks in a fixed order, so two transactions locking the same banks cannot deadlock.
+     * Must run in a transaction.
+     */
+    public void lock(Collection<String> bankIds) {
+        TreeSet<String> sorted = bankIds.stream().filter(Objects::nonNull).collect(Collectors.toCollection(TreeSet::new));
+        if (sorted.isEmpty()) {
+            return;
+        }
+        boolean postgres = Boolean.TRUE.equals(jdbcTemplate.execute(
+                (ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class)));
+        for (String bankId : sorted) {
+            jdbcTemplate.update(postgres ? LOCK_SQL : LOCK_MERGE_SQL, bankId);
+        }
+    }
+}
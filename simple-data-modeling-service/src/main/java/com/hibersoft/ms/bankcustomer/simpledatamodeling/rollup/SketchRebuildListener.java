@@ -0,0 +1,53 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.rollup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.watermark.IncrementalIngestionListener;
+
+/**
+ * Rebuilds the daily sketches of a bank from its facts once a {@code fullRebuild} run completes (the
+ * writer only sketches new and corrected facts, so facts loaded before the sketches were kept would
+ * otherwise never be counted), and on request through {@link #rebuild(String)}. Must be registered
+ * after the listener notifying the analytics service, so that it runs before it when the job ends.
+ */
+public class SketchRebuildListener implements JobExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SketchRebuildListener.class);
+
+    private final DailySketches dailySketches;
+    private final TransactionTemplate transactionTemplate;
+
+    public SketchRebuildListener(DailySketches dailySketches, TransactionTemplate transactionTemplate) {
+        this.dailySketches = dailySketches;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        JobParameter<?> fullRebuildParameter = jobExecution.getJobParameters().getParameter(IncrementalIngestionListener.FULL_REBUILD);
+        boolean fullRebuild = fullRebuildParameter != null && Boolean.parseBoolean(String.valueOf(fullRebuildParameter.getValue()));
+        if (jobExecution.getStatus() != BatchStatus.COMPLETED || !fullRebuild) {
+            return;
+        }
+        rebuild(jobExecution.getJobParameters().getString("bankId"));
+    }
+
+    /**
+     * Replaces every sketch cell of the bank in one transaction.
+     *
+     * @return the number of cells written
+     */
+    public int rebuild(String bankId) {
+        String bank = bankId.toUpperCase();
+        long started = System.nanoTime();
+        Integer cells = transactionTemplate.execute(status -> dailySketches.rebuild(bank));
+        log.info("Rebuilt {} daily sketch cell(s) of {} in {} ms", cells, bank, (System.nanoTime() - started) / 1_000_000);
+        return cells != null ? cells : 0;
+    }
+}
@@ -1,51 +1,261 @@
 package com.hibersoft.ms.bankcustomer.simpledatamodeling.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.CustomerProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class AimlServiceCaller {
 
+    private static final Logger log = LoggerFactory.getLogger(AimlServiceCaller.class);
+
     // Use the Docker internal service name and port here
     // private final String segmentationServiceUrl = "http://customer-segmentation-app:5000/api/v1/segmentation/predict-segment";
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
 
     // Inject the URL from application.properties
-    @Value("${app.segmentation-service.url}")
-    private String segmentationServiceUrl; // This property is now dynamic
+    private final String segmentationServiceUrl; // This property is now dynamic
+
+    // Profiles sent per request; larger inputs are split into several requests
+    private final int maxBatchSize;
+
+    // Caps the requests open against the segmentation service across all callers (e.g. concurrent partitions)
+    private final Semaphore inFlightRequests;
+
+    // Endpoint that retrains the model
+    private final String trainingServiceUrl;
+
+    // Segment per quantized spending profile (size-bounded W-TinyLFU eviction plus a TTL)
+    private final Cache<QuantizedProfile, Integer> segmentCache;
+    private final BigDecimal bucketWidth;
 
-    // public AimlServiceCaller(RestTemplate restTemplate) {
-    //     this.restTemplate = restTemplate;
-    // }
+    // Newest model_version seen in a prediction response (the service's model file time, so it only grows)
+    private static final long UNKNOWN_VERSION = Long.MIN_VALUE;
+    private final AtomicLong servingModelVersion = new AtomicLong(UNKNOWN_VERSION);
+
+    @Autowired
+    public AimlServiceCaller(@Value("${app.segmentation-service.url}") String segmentationServiceUrl,
+                             @Value("${app.segmentation-service.training-url}") String trainingServiceUrl,
+                             @Value("${app.segmentation-service.max-batch-size:500}") int maxBatchSize,
+                             @Value("${app.segmentation-service.max-in-flight:4}") int maxInFlight,
+                             @Value("${app.segmentation-service.cache.max-size:100000}") long cacheMaxSize,
+                             @Value("${app.segmentation-service.cache.ttl-seconds:3600}") long cacheTtlSeconds,
+                             @Value("${app.segmentation-service.cache.bucket-width:10}") BigDecimal bucketWidth,
+                             MeterRegistry meterRegistry) {
+        this(new RestTemplate(), segmentationServiceUrl, trainingServiceUrl, maxBatchSize, maxInFlight,
+             cacheMaxSize, Duration.ofSeconds(cacheTtlSeconds), bucketWidth, meterRegistry);
+    }
+
+    AimlServiceCaller(RestTemplate restTemplate, String segmentationServiceUrl, String trainingServiceUrl,
+                      int maxBatchSize, int maxInFlight, long cacheMaxSize, Duration cacheTtl, BigDecimal bucketWidth,
+                      MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.segmentationServiceUrl = segmentationServiceUrl;
+        this.trainingServiceUrl = trainingServiceUrl;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.inFlightRequests = new Semaphore(Math.max(1, maxInFlight), true);
+        if (bucketWidth.signum() <= 0) {
+            throw new IllegalArgumentException("app.segmentation-service.cache.bucket-width must be positive");
+        }
+        this.bucketWidth = bucketWidth;
+        this.segmentCache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        // Publishes cache.gets{result=hit|miss}, cache.evictions, cache.size, ... tagged cache=segmentCache
+        CaffeineCacheMetrics.monitor(meterRegistry, segmentCache, "segmentCache");
+    }
 
     public Integer getCustomerSegment(Map<String, BigDecimal> spendingProfile) {
-        // Convert the BigDecimal map to the string-based format the Python API expects
-        Map<String, String> stringProfile = new HashMap<>();
-        spendingProfile.forEach((category, amount) -> stringProfile.put(category, amount.toPlainString()));
+        return getCustomerSegments(Collections.singletonList(spendingProfile)).get(0);
+    }
+
+    /**
+     * Scores several spending profiles with as few round trips as possible. Profiles whose quantized
+     * vector is cached are answered locally, and profiles sharing a vector are sent only once.
+     * <p>
+     * Cluster ids are not stable across trainings, so the cache follows the model that is actually
+     * serving: the first response from a newer {@code model_version} drops every cached prediction, and
+     * responses from an older one are not cached. Until a cache miss reaches the retrained model, cached
+     * predictions of the previous one are served (at most for the cache TTL).
+     *
+     * @return one segment per profile, in input order ({@code null} where the service returned no prediction)
+     */
+    public List<Integer> getCustomerSegments(List<Map<String, BigDecimal>> spendingProfiles) {
+        List<Integer> segments = new ArrayList<>(Collections.nCopies(spendingProfiles.size(), null));
+        Map<QuantizedProfile, List<Integer>> missPositions = new LinkedHashMap<>();
+        List<Map<String, BigDecimal>> missProfiles = new ArrayList<>();
+        for (int i = 0; i < spendingProfiles.size(); i++) {
+            QuantizedProfile key = QuantizedProfile.of(spendingProfiles.get(i), bucketWidth);
+            Integer cached = segmentCache.getIfPresent(key);
+            if (cached != null) {
+                segments.set(i, cached);
+                continue;
+            }
+            List<Integer> positions = missPositions.get(key);
+            if (positions == null) {
+                positions = new ArrayList<>();
+                missPositions.put(key, positions);
+                missProfiles.add(spendingProfiles.get(i)); // First profile of the bucket represents it
+            }
+            positions.add(i);
+        }
+        if (missProfiles.isEmpty()) {
+            return segments;
+        }
 
-        // The Python API expects a list of profiles
-        List<Map<String, String>> requestBody = Collections.singletonList(stringProfile);
+        List<Integer> scored = scoreInBatches(missProfiles, new ArrayList<>(missPositions.keySet()));
+        int m = 0;
+        for (Map.Entry<QuantizedProfile, List<Integer>> miss : missPositions.entrySet()) {
+            Integer segment = scored.get(m++);
+            for (int position : miss.getValue()) {
+                segments.set(position, segment);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Starts a retraining of the segmentation model in the background. Cached predictions are dropped once
+     * the retrained model answers (see {@link #getCustomerSegments}), not here: until then the old one serves.
+     */
+    public Map<String, Object> triggerTraining() {
+        return restTemplate.postForObject(trainingServiceUrl, Map.of(), Map.class);
+    }
+
+    public void invalidateSegmentCache() {
+        log.info("Invalidating {} cached segment prediction(s)", segmentCache.estimatedSize());
+        segmentCache.invalidateAll();
+    }
+
+    // Scores the profiles and caches each segment under the key at the same index
+    private List<Integer> scoreInBatches(List<Map<String, BigDecimal>> spendingProfiles, List<QuantizedProfile> keys) {
+        if (spendingProfiles.size() <= maxBatchSize) {
+            return postBatch(spendingProfiles, keys);
+        }
+
+        // Several batches: send them concurrently, still bounded by the in-flight limit
+        List<Future<List<Integer>>> batches = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < spendingProfiles.size(); from += maxBatchSize) {
+                int to = Math.min(from + maxBatchSize, spendingProfiles.size());
+                List<Map<String, BigDecimal>> batch = spendingProfiles.subList(from, to);
+                List<QuantizedProfile> batchKeys = keys.subList(from, to);
+                batches.add(executor.submit(() -> postBatch(batch, batchKeys)));
+            }
+        }
+        List<Integer> segments = new ArrayList<>(spendingProfiles.size());
+        try {
+            for (Future<List<Integer>> batch : batches) {
+                segments.addAll(batch.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestClientException("Interrupted while waiting for segmentation results", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RestClientException("Segmentation request failed", e.getCause());
+        }
+        return segments;
+    }
+
+    private List<Integer> postBatch(List<Map<String, BigDecimal>> spendingProfiles, List<QuantizedProfile> keys) {
+        // Convert the BigDecimal maps to the string-based format the Python API expects
+        List<Map<String, String>> requestBody = new ArrayList<>(spendingProfiles.size());
+        for (Map<String, BigDecimal> spendingProfile : spendingProfiles) {
+            Map<String, String> stringProfile = new HashMap<>();
+            spendingProfile.forEach((category, amount) -> stringProfile.put(category, amount.toPlainString()));
+            requestBody.add(stringProfile);
+        }
 
         // Make the POST request
-        // The response structure is {"predictions": [segment_id]}
-        Map<String, List<Integer>> response = restTemplate.postForObject(
-            segmentationServiceUrl, 
-            requestBody, 
-            Map.class
-        );
+        // The response structure is {"predictions": [segment_id, ...], "model_version": n}, one entry per profile
+        Map<String, Object> response;
+        try {
+            inFlightRequests.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestClientException("Interrupted while waiting for a segmentation request slot", e);
+        }
+        try {
+            response = restTemplate.postForObject(
+                segmentationServiceUrl,
+                requestBody,
+                Map.class
+            );
+        } finally {
+            inFlightRequests.release();
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Integer> predictions = response != null && response.get("predictions") instanceof List<?> list
+                ? (List<Integer>) list
+                : List.of();
+        Long version = response != null && response.get("model_version") instanceof Number number ? number.longValue() : null;
+        boolean cacheable = observeModelVersion(version);
+        List<Integer> segments = new ArrayList<>(spendingProfiles.size());
+        for (int i = 0; i < spendingProfiles.size(); i++) {
+            Integer segment = i < predictions.size() ? predictions.get(i) : null; // null if prediction fails
+            segments.add(segment);
+            if (segment != null && cacheable) {
+                segmentCache.put(keys.get(i), segment);
+            }
+        }
+        // A newer model answered another batch meanwhile: these predictions must not outlive its invalidation
+        if (cacheable && version != null && servingModelVersion.get() != version) {
+            segmentCache.invalidateAll(keys);
+        }
+        return segments;
+    }
 
-        if (response != null && response.containsKey("predictions") && !response.get("predictions").isEmpty()) {
-            return response.get("predictions").get(0);
+    /**
+     * Records the model version of a response and drops the cache when it is newer than any seen before.
+     * @param version the response's model_version, or {@code null} if the service does not report one
+     * @return whether the response's predictions may be cached (it is from the newest model seen)
+     */
+    private boolean observeModelVersion(Long version) {
+        if (version == null) {
+            return true;
+        }
+        long known = servingModelVersion.get();
+        while (version > known) {
+            if (servingModelVersion.compareAndSet(known, version)) {
+                if (known != UNKNOWN_VERSION) {
+                    log.info("Segmentation model {} replaced {}", version, known);
+                    invalidateSegmentCache();
+                }
+                return true;
+            }
+            known = servingModelVersion.get();
         }
-        return null; // Return null if prediction fails
+        return version == known;
     }
 }
 
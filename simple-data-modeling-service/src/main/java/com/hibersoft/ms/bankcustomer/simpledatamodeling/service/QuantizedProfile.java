@@ -0,0 +1,23 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache key for a spending profile: every category amount is replaced by the index of the
+ * {@code bucketWidth}-wide bucket it falls into, so customers with nearly identical spending
+ * share one segment prediction.
+ */
+public record QuantizedProfile(Map<String, Long> buckets) {
+
+    public static QuantizedProfile of(Map<String, BigDecimal> spendingProfile, BigDecimal bucketWidth) {
+        Map<String, Long> buckets = new HashMap<>();
+        spendingProfile.forEach((category, amount) -> {
+            BigDecimal value = amount == null ? BigDecimal.ZERO : amount;
+            buckets.put(category, value.divide(bucketWidth, 0, RoundingMode.FLOOR).longValue());
+        });
+        return new QuantizedProfile(Map.copyOf(buckets));
+    }
+}
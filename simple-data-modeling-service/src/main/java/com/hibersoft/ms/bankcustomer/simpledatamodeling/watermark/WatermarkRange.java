@@ -0,0 +1,34 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.watermark;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The slice of a bank table one run ingests: rows after {@code from} (exclusive, {@code null} for a
+ * full rebuild or a first run) up to {@code to} (inclusive, the newest settled row when the run started,
+ * {@code null} when there is none and the run reads nothing). Bounding the run by {@code to} means rows
+ * inserted while it is running are left for the next run instead of being skipped by the advanced watermark.
+ */
+public record WatermarkRange(IngestionWatermark from, IngestionWatermark to) implements Serializable {
+
+    // Key of the range in the job ExecutionContext
+    public static final String CONTEXT_KEY = "watermarkRange";
+
+    /**
+     * Adds the {@code ingest_seq} predicates of this range, with their named parameters.
+     */
+    public void appendConditions(List<String> conditions, Map<String, Object> parameterValues) {
+        if (to == null) {
+            // No settled row yet: the run reads nothing
+            conditions.add("1 = 0");
+            return;
+        }
+        if (from != null) {
+            conditions.add("ingest_seq > :fromSeq");
+            parameterValues.put("fromSeq", from.ingestSeq());
+        }
+        conditions.add("ingest_seq <= :toSeq");
+        parameterValues.put("toSeq", to.ingestSeq());
+    }
+}
@@ -9,12 +9,14 @@ import org.springframework.context.annotation.Import;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.web.servlet.MockMvc;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 
 import javax.sql.DataSource;
 import org.springframework.batch.core.JobParametersBuilder;
 import org.springframework.batch.item.database.JdbcCursorItemReader;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -26,22 +28,46 @@ import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.RawSourceData;
 @AutoConfigureMockMvc
 @SpringBatchTest
 @Import(BatchConfiguration.class)
-@Sql(scripts = "classpath:batch-schema-h2.sql", executionPhase = ExecutionPhase.BEFORE_TEST_CLASS)
+@Sql(scripts = { "classpath:batch-schema-h2.sql", "classpath:ingestion-schema-h2.sql" }, executionPhase = ExecutionPhase.BEFORE_TEST_CLASS)
 class SimpleDataModelingApplicationTests {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private DataSource dataSource;
+
     @Test
     void testStartJobEndpoint_TriggersSuccessfully() throws Exception {
         mockMvc.perform(post("/api/v1/simple-ingestion/start/BANK_A"))
                .andExpect(status().isOk());
     }
 
+    @Test
+    void testStartJobEndpoint_AcceptsGridSize() throws Exception {
+        mockMvc.perform(post("/api/v1/simple-ingestion/start/BANK_A").param("gridSize", "8"))
+               .andExpect(status().isOk());
+    }
+
     @Test
     void testStartAllEndpoint_TriggersSuccessfully() throws Exception {
         mockMvc.perform(post("/api/v1/simple-ingestion/start-all"))
                .andExpect(status().isOk());
         // Additional assertions can be added to verify job launch logic if needed
     }
+
+    @Test
+    void testStartAllEndpoint_ReturnsExecutionIdPerDiscoveredBank() throws Exception {
+        // Arrange
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS bank_z_transactions");
+        jdbcTemplate.execute("CREATE TABLE bank_z_transactions (bank_specific_account_id VARCHAR(255) PRIMARY KEY, "
+                + "transaction_date VARCHAR(255), amount VARCHAR(255), description VARCHAR(255), location_code VARCHAR(255), "
+                + "ingest_seq BIGINT GENERATED BY DEFAULT AS IDENTITY, ingested_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL)");
+
+        // Act & Assert: the response does not wait for the job to run
+        mockMvc.perform(post("/api/v1/simple-ingestion/start-all"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.executions.BANK_Z").isNumber());
+    }
 }
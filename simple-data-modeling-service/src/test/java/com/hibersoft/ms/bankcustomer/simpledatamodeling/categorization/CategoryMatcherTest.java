@@ -0,0 +1,94 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.categorization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.CategoryRule;
+
+public class CategoryMatcherTest {
+
+    @Test
+    public void testCategorize_MatchesOriginalIfElseChain() {
+        // Arrange
+        CategoryMatcher matcher = CategoryMatcher.compile(CategoryRuleService.DEFAULT_RULES);
+        String[] words = { "Shell", "GAS", "online", "Costco", "dinner", "Rogers", "hydro", "Amazon", "bill", "coffee",
+                "restaurant", "purchase", "petrol", "supermarket", "bell", "cash", "é", "groceries", "utility", "x" };
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder description = new StringBuilder();
+            int wordCount = 1 + random.nextInt(4);
+            for (int w = 0; w < wordCount; w++) {
+                description.append(words[random.nextInt(words.length)]).append(random.nextBoolean() ? " " : "");
+            }
+
+            // Act & Assert
+            assertEquals(legacyCategorize(description.toString()), matcher.categorize(description.toString()),
+                    description.toString());
+        }
+    }
+
+    @Test
+    public void testCategorize_HighestPriorityWinsOverEarlierMatch() {
+        // Arrange: "she" ends inside "shell" and is a suffix-linked match of a longer keyword
+        CategoryMatcher matcher = CategoryMatcher.compile(List.of(
+                new CategoryRule("she", "Low", 1),
+                new CategoryRule("hello", "High", 5),
+                new CategoryRule("ell", "Mid", 3)));
+
+        // Act & Assert
+        assertEquals("Low", matcher.categorize("ashe"));
+        assertEquals("Mid", matcher.categorize("shell"));
+        assertEquals("High", matcher.categorize("SHELLO"));
+    }
+
+    @Test
+    public void testCategorize_EarlierRuleWinsATieWhereverItsKeywordOccurs() {
+        // Arrange
+        CategoryMatcher matcher = CategoryMatcher.compile(List.of(
+                new CategoryRule("amazon", "Shopping", 5),
+                new CategoryRule("fresh", "Groceries", 5),
+                new CategoryRule("costco", "Groceries", 1)));
+
+        // Act & Assert: the second rule's keyword comes first in the text, the first rule still wins
+        assertEquals("Shopping", matcher.categorize("FRESH AMAZON"));
+        assertEquals("Shopping", matcher.categorize("amazon fresh"));
+        assertEquals("Groceries", matcher.categorize("costco fresh"));
+    }
+
+    @Test
+    public void testCategorize_HandlesNullNonAsciiAndNoRules() {
+        // Arrange
+        CategoryMatcher matcher = CategoryMatcher.compile(List.of(new CategoryRule("Café", "Dining", 1)));
+
+        // Act & Assert
+        assertEquals("Dining", matcher.categorize("LE CAFÉ DU COIN"));
+        assertEquals(CategoryMatcher.DEFAULT_CATEGORY, matcher.categorize("cafe"));
+        assertEquals(CategoryMatcher.DEFAULT_CATEGORY, matcher.categorize(null));
+        assertEquals(CategoryMatcher.DEFAULT_CATEGORY, CategoryMatcher.compile(List.of()).categorize("anything"));
+    }
+
+    // The hard-coded categorization the matcher replaced
+    private String legacyCategorize(String description) {
+        String lowerDesc = description.toLowerCase();
+        if (lowerDesc.contains("utility") || lowerDesc.contains("hydro") || lowerDesc.contains("bell")
+                || lowerDesc.contains("rogers")) {
+            return "Utilities";
+        } else if (lowerDesc.contains("groceries") || lowerDesc.contains("supermarket")
+                || lowerDesc.contains("costco")) {
+            return "Groceries";
+        } else if (lowerDesc.contains("gas") || lowerDesc.contains("petrol") || lowerDesc.contains("shell")) {
+            return "Transport";
+        } else if (lowerDesc.contains("online") || lowerDesc.contains("amazon") || lowerDesc.contains("purchase")) {
+            return "Shopping";
+        } else if (lowerDesc.contains("dinner") || lowerDesc.contains("restaurant")) {
+            return "Dining";
+        } else {
+            return "Other";
+        }
+    }
+}
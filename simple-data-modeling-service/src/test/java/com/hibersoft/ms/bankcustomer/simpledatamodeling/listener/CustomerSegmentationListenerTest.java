@@ -0,0 +1,105 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.listener;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.batch.item.Chunk;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.FactTransactionEntity;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.service.AimlServiceCaller;
+
+public class CustomerSegmentationListenerTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBeforeWrite_ScoresDistinctCustomersInOneCall() {
+        // Arrange
+        AimlServiceCaller aimlService = mock(AimlServiceCaller.class);
+        when(aimlService.getCustomerSegments(anyList())).thenReturn(Arrays.asList(1, null));
+        Chunk<FactTransactionEntity> chunk = new Chunk<>(
+                fact("U_A", "10.00", "CREDIT", "Dining"),
+                fact("U_B", "5.00", "CREDIT", "Pets"),
+                fact("U_A", "-2.50", "DEBIT", "Dining"),
+                fact("U_A", "100.00", "CREDIT", "Other"));
+
+        // Act
+        new CustomerSegmentationListener(aimlService).beforeWrite(chunk);
+
+        // Assert
+        ArgumentCaptor<List<Map<String, BigDecimal>>> profiles = ArgumentCaptor.forClass(List.class);
+        verify(aimlService, times(1)).getCustomerSegments(profiles.capture());
+        // Signed amounts of every type, as the training query sums them; categories without a feature are left out
+        assertEquals(2, profiles.getValue().size());
+        assertEquals(Set.copyOf(CustomerSegmentationListener.FEATURES), profiles.getValue().get(0).keySet());
+        assertEquals(new BigDecimal("7.50"), profiles.getValue().get(0).get("dining"));
+        assertEquals(new BigDecimal("100.00"), profiles.getValue().get(0).get("other"));
+        assertEquals(BigDecimal.ZERO, profiles.getValue().get(1).get("other"));
+        assertEquals("1", chunk.getItems().get(0).getCustomerSegment());
+        assertEquals("1", chunk.getItems().get(3).getCustomerSegment());
+        assertEquals("Not Segmented Yet", chunk.getItems().get(1).getCustomerSegment());
+    }
+
+    @Test
+    public void testBuildProfiles_KeysAreTheModelFeatures() throws IOException {
+        // Arrange: the feature list of the segmentation service, when it is checked out next to this module
+        Path trainModel = Path.of("..", "customer-segmentation-service", "train_model.py");
+        assumeTrue(Files.exists(trainModel));
+        Matcher features = Pattern.compile("^FEATURES = \\[(.*)]", Pattern.MULTILINE).matcher(Files.readString(trainModel));
+        assertTrue(features.find());
+        List<String> expected = Arrays.stream(features.group(1).split(","))
+                .map(feature -> feature.trim().replace("'", "").replace("\"", ""))
+                .toList();
+
+        // Act
+        Map<String, Map<String, BigDecimal>> profiles = CustomerSegmentationListener.buildProfiles(
+                new Chunk<>(fact("U_A", "10.00", "CREDIT", "Groceries")));
+
+        // Assert: /predict-segment answers 400 unless every feature is present
+        assertEquals(expected, CustomerSegmentationListener.FEATURES);
+        assertEquals(Set.copyOf(expected), profiles.get("U_A").keySet());
+    }
+
+    @Test
+    public void testBeforeWrite_KeepsPlaceholderWhenServiceIsDown() {
+        // Arrange
+        AimlServiceCaller aimlService = mock(AimlServiceCaller.class);
+        when(aimlService.getCustomerSegments(anyList())).thenThrow(new ResourceAccessException("Connection refused"));
+        Chunk<FactTransactionEntity> chunk = new Chunk<>(fact("U_A", "-10.00", "DEBIT", "Dining"));
+
+        // Act
+        new CustomerSegmentationListener(aimlService).beforeWrite(chunk);
+
+        // Assert
+        assertEquals("Not Segmented Yet", chunk.getItems().get(0).getCustomerSegment());
+    }
+
+    private FactTransactionEntity fact(String customerId, String amount, String type, String category) {
+        FactTransactionEntity fact = new FactTransactionEntity();
+        fact.setCustomerId(customerId);
+        fact.setAmountStandard(new BigDecimal(amount));
+        fact.setTransactionType(type);
+        fact.setCategory(category);
+        fact.setCustomerSegment("Not Segmented Yet");
+        return fact;
+    }
+}
@@ -0,0 +1,183 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.rollup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.FactTransactionEntity;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.writer.FactTransactionCopyWriter;
+
+public class DailyRollupsTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private FactTransactionCopyWriter writer;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:ingestion-schema-h2.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE fact_transactions (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "bank_id VARCHAR(255), source_transaction_id VARCHAR(255), customer_id VARCHAR(255), transaction_time TIMESTAMP, "
+                + "amount_standard NUMERIC(19,2), description_standard VARCHAR(255), location_code VARCHAR(255), "
+                + "transaction_type VARCHAR(255), is_valid BOOLEAN, category VARCHAR(255), customer_segment VARCHAR(255), "
+                + "UNIQUE (bank_id, source_transaction_id))");
+        writer = new FactTransactionCopyWriter(database, new DailyRollups(database));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testWrite_AddsNewFactsToEveryRollup() throws Exception {
+        // Arrange
+        Chunk<FactTransactionEntity> chunk = new Chunk<>(
+                fact("ACC1", "U_1", "2024-03-01T09:00:00", "12.50", "Groceries", "L1"),
+                fact("ACC2", "U_1", "2024-03-01T18:30:00", "40.00", "Dining", "L2"),
+                fact("ACC3", "U_2", "2024-03-02T08:00:00", "5.00", "Groceries", "L1"));
+
+        // Act
+        writer.write(chunk);
+
+        // Assert
+        assertEquals(List.of(Map.of("CUSTOMER_ID", "U_1", "TXN_DATE", Date.valueOf("2024-03-01"),
+                        "AMOUNT_SUM", new BigDecimal("52.50"), "TXN_COUNT", 2L),
+                Map.of("CUSTOMER_ID", "U_2", "TXN_DATE", Date.valueOf("2024-03-02"),
+                        "AMOUNT_SUM", new BigDecimal("5.00"), "TXN_COUNT", 1L)),
+                jdbcTemplate.queryForList("SELECT * FROM rollup_customer_daily ORDER BY customer_id"));
+        assertEquals(new BigDecimal("17.50"), sum("rollup_category_daily", "category = 'Groceries'"));
+        assertEquals(2L, count("rollup_location_daily", "location_code = 'L1'"));
+        assertEquals(new BigDecimal("57.50"), sum("rollup_bank_daily", "bank_id = 'BANK_A'"));
+    }
+
+    @Test
+    public void testWrite_RewrittenFactMovesBetweenCellsAndUnchangedFactsCountOnce() throws Exception {
+        // Arrange
+        writer.write(new Chunk<>(
+                fact("ACC1", "U_1", "2024-03-01T09:00:00", "12.50", "Groceries", "L1"),
+                fact("ACC2", "U_1", "2024-03-01T18:30:00", "40.00", "Dining", "L2")));
+
+        // Act: ACC1 is corrected (amount, category and day), ACC2 is re-ingested unchanged
+        writer.write(new Chunk<>(
+                fact("ACC1", "U_1", "2024-03-02T09:00:00", "15.00", "Shopping", "L1"),
+                fact("ACC2", "U_1", "2024-03-01T18:30:00", "40.00", "Dining", "L2")));
+
+        // Assert
+        assertEquals(new BigDecimal("0.00"), sum("rollup_category_daily", "category = 'Groceries'"));
+        assertEquals(0L, count("rollup_category_daily", "category = 'Groceries'"));
+        assertEquals(new BigDecimal("15.00"), sum("rollup_category_daily", "category = 'Shopping'"));
+        assertEquals(new BigDecimal("40.00"), sum("rollup_customer_daily", "txn_date = DATE '2024-03-01'"));
+        assertEquals(new BigDecimal("15.00"), sum("rollup_customer_daily", "txn_date = DATE '2024-03-02'"));
+        assertEquals(2L, count("rollup_bank_daily", "bank_id = 'BANK_A'"));
+        assertEquals(new BigDecimal("55.00"), sum("rollup_bank_daily", "bank_id = 'BANK_A'"));
+    }
+
+    @Test
+    public void testWrite_OverlappingRunsOfABankCountANewFactOnce() throws Exception {
+        // Arrange: two runs of BANK_A read the same new fact; the first one's chunk stays uncommitted for a while
+        jdbcTemplate.execute("SET DEFAULT_LOCK_TIMEOUT 10000");
+        // The lock row already exists: unlike PostgreSQL's ON CONFLICT, H2 does not wait on an uncommitted insert of the same key
+        jdbcTemplate.update("INSERT INTO ingestion_bank_lock (bank_id) VALUES ('BANK_A')");
+        TransactionTemplate transactions = new TransactionTemplate(new DataSourceTransactionManager(database));
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        FactTransactionEntity fact = fact("ACC1", "U_1", "2024-03-01T09:00:00", "12.50", "Groceries", "L1");
+        CountDownLatch firstWritten = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        Thread first = Thread.ofVirtual().uncaughtExceptionHandler((thread, e) -> failures.add(e)).start(() -> transactions.executeWithoutResult(status -> {
+            write(new Chunk<>(fact));
+            firstWritten.countDown();
+            await(releaseFirst);
+        }));
+        assertTrue(firstWritten.await(10, TimeUnit.SECONDS));
+
+        // Act: the second run's chunk waits for the first one's lock, then sees its fact as the previous version
+        Thread second = Thread.ofVirtual().uncaughtExceptionHandler((thread, e) -> failures.add(e)).start(() -> transactions.executeWithoutResult(status -> write(new Chunk<>(
+                fact("ACC1", "U_1", "2024-03-01T09:00:00", "12.50", "Groceries", "L1")))));
+        Thread.sleep(200);
+        releaseFirst.countDown();
+        first.join(10_000);
+        second.join(10_000);
+
+        // Assert
+        assertEquals(List.of(), failures);
+        assertEquals(1L, count("rollup_bank_daily", "bank_id = 'BANK_A'"));
+        assertEquals(new BigDecimal("12.50"), sum("rollup_customer_daily", "customer_id = 'U_1'"));
+    }
+
+    @Test
+    public void testDeltas_AreEmptyForAnUnchangedFact() {
+        // Arrange
+        FactTransactionEntity stored = fact("ACC1", "U_1", "2024-03-01T09:00:00", "12.50", "Groceries", "L1");
+        FactTransactionEntity reingested = fact("ACC1", "U_1", "2024-03-01T09:00:00", "12.50", "Groceries", "L1");
+
+        // Act
+        var deltas = DailyRollups.deltas(Map.of(DailyRollups.naturalKey(stored), stored), List.of(reingested));
+
+        // Assert
+        assertTrue(deltas.values().stream().allMatch(Map::isEmpty));
+    }
+
+    private void write(Chunk<FactTransactionEntity> chunk) {
+        try {
+            writer.write(chunk);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BigDecimal sum(String table, String condition) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(amount_sum), 0) FROM " + table + " WHERE " + condition,
+                BigDecimal.class);
+    }
+
+    private long count(String table, String condition) {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(txn_count), 0) FROM " + table + " WHERE " + condition, Long.class);
+    }
+
+    private static FactTransactionEntity fact(String sourceTransactionId, String customerId, String time, String amount,
+                                              String category, String locationCode) {
+        FactTransactionEntity fact = new FactTransactionEntity();
+        fact.setBankId("BANK_A");
+        fact.setSourceTransactionId(sourceTransactionId);
+        fact.setCustomerId(customerId);
+        fact.setTransactionTime(LocalDateTime.parse(time));
+        fact.setAmountStandard(new BigDecimal(amount));
+        fact.setCategory(category);
+        fact.setLocationCode(locationCode);
+        fact.setTransactionType("DEBIT");
+        return fact;
+    }
+}
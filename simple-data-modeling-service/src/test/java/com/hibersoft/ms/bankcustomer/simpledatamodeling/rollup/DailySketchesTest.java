@@ -0,0 +1,181 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.rollup;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.datasketches.hll.HllSketch;
+import org.apache.datasketches.kll.KllDoublesSketch;
+import org.apache.datasketches.memory.Memory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.model.FactTransactionEntity;
+import com.hibersoft.ms.bankcustomer.simpledatamodeling.writer.FactTransactionCopyWriter;
+
+public class DailySketchesTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private FactTransactionCopyWriter writer;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("classpath:ingestion-schema-h2.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE fact_transactions (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "bank_id VARCHAR(255), source_transaction_id VARCHAR(255), customer_id VARCHAR(255), transaction_time TIMESTAMP, "
+                + "amount_standard NUMERIC(19,2), description_standard VARCHAR(255), location_code VARCHAR(255), "
+                + "transaction_type VARCHAR(255), is_valid BOOLEAN, category VARCHAR(255), customer_segment VARCHAR(255), "
+                + "UNIQUE (bank_id, source_transaction_id))");
+        writer = new FactTransactionCopyWriter(database, null, new DailySketches(database));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    public void testWrite_MergesChunksIntoOneSketchPerBankCategoryAndDay() throws Exception {
+        // Arrange
+        writer.write(new Chunk<>(
+                fact("ACC1", "U_1", "2024-03-01T09:00:00", "10.00", "Groceries"),
+                fact("ACC2", "U_2", "2024-03-01T10:00:00", "20.00", "Groceries"),
+                fact("ACC3", "U_1", "2024-03-01T11:00:00", "99.00", "Dining")));
+
+        // Act: a second chunk adds to the existing Groceries cell, and a fact without category goes to Other
+        writer.write(new Chunk<>(
+                fact("ACC4", "U_3", "2024-03-01T12:00:00", "30.00", "Groceries"),
+                fact("ACC5", "U_1", "2024-03-01T13:00:00", "40.00", "Groceries"),
+                fact("ACC6", "U_4", "2024-03-02T08:00:00", "5.00", null)));
+
+        // Assert
+        assertEquals(List.of("BANK_A|Dining|2024-03-01", "BANK_A|Groceries|2024-03-01", "BANK_A|Other|2024-03-02"),
+                jdbcTemplate.queryForList("SELECT bank_id || '|' || category || '|' || txn_date FROM sketch_daily "
+                        + "ORDER BY bank_id, category, txn_date", String.class));
+        assertEquals(3.0, customers("Groceries").getEstimate(), 0.01);
+        KllDoublesSketch amounts = amounts("Groceries");
+        assertEquals(4, amounts.getN());
+        assertEquals(10.0, amounts.getMinItem());
+        assertEquals(40.0, amounts.getMaxItem());
+    }
+
+    @Test
+    public void testWrite_ReingestedFactsAreNotCountedTwice() throws Exception {
+        // Arrange
+        writer.write(new Chunk<>(fact("ACC1", "U_1", "2024-03-01T09:00:00", "10.00", "Groceries")));
+
+        // Act
+        writer.write(new Chunk<>(
+                fact("ACC1", "U_1", "2024-03-01T09:00:00", "10.00", "Groceries"),
+                fact("ACC2", "U_1", "2024-03-01T10:00:00", "20.00", "Groceries")));
+
+        // Assert
+        assertEquals(2, amounts("Groceries").getN());
+        assertEquals(1.0, customers("Groceries").getEstimate(), 0.01);
+    }
+
+    @Test
+    public void testWrite_CorrectedFactsAreRecomputedInsteadOfAddedAgain() throws Exception {
+        // Arrange
+        writer.write(new Chunk<>(
+                fact("ACC1", "U_1", "2024-03-01T09:00:00", "10.00", "Groceries"),
+                fact("ACC2", "U_2", "2024-03-01T10:00:00", "20.00", "Groceries"),
+                fact("ACC3", "U_3", "2024-03-01T11:00:00", "99.00", "Dining")));
+
+        // Act: ACC1 is corrected in place, and the only Dining fact moves to Groceries
+        writer.write(new Chunk<>(
+                fact("ACC1", "U_1", "2024-03-01T09:00:00", "15.00", "Groceries"),
+                fact("ACC3", "U_3", "2024-03-01T11:00:00", "99.00", "Groceries")));
+
+        // Assert
+        assertEquals(List.of("Groceries"), jdbcTemplate.queryForList("SELECT category FROM sketch_daily", String.class));
+        KllDoublesSketch amounts = amounts("Groceries");
+        assertEquals(3, amounts.getN());
+        assertEquals(15.0, amounts.getMinItem());
+        assertEquals(99.0, amounts.getMaxItem());
+        assertEquals(3.0, customers("Groceries").getEstimate(), 0.01);
+    }
+
+    @Test
+    public void testRebuild_ReplacesTheCellsOfTheBankWithSketchesOfItsFacts() throws Exception {
+        // Arrange: a stale cell, and facts loaded without sketches
+        writer.write(new Chunk<>(fact("ACC1", "U_1", "2024-03-01T09:00:00", "10.00", "Dining")));
+        jdbcTemplate.update("DELETE FROM fact_transactions");
+        insertFact("ACC2", "U_1", "2024-03-01T09:00:00", "10.00", "Groceries");
+        insertFact("ACC3", "U_2", "2024-03-01T18:00:00", "30.00", "Groceries");
+        insertFact("ACC4", "U_2", "2024-03-02T08:00:00", "5.00", null);
+
+        // Act
+        int cells = new DailySketches(database).rebuild("BANK_A");
+
+        // Assert
+        assertEquals(2, cells);
+        assertEquals(List.of("BANK_A|Groceries|2024-03-01", "BANK_A|Other|2024-03-02"),
+                jdbcTemplate.queryForList("SELECT bank_id || '|' || category || '|' || txn_date FROM sketch_daily "
+                        + "ORDER BY bank_id, category, txn_date", String.class));
+        assertEquals(2.0, customers("Groceries").getEstimate(), 0.01);
+        assertEquals(2, amounts("Groceries").getN());
+        assertEquals(1, amounts("Other").getN());
+    }
+
+    @Test
+    public void testChanged_IgnoresFieldsTheSketchesDoNotSee() {
+        // Arrange
+        FactTransactionEntity stored = fact("ACC1", "U_1", "2024-03-01T09:00:00", "12.50", "Groceries");
+        FactTransactionEntity sameCellAndAmount = fact("ACC1", "U_1", "2024-03-01T17:00:00", "12.5", "Groceries");
+        sameCellAndAmount.setLocationCode("L9");
+        FactTransactionEntity corrected = fact("ACC1", "U_1", "2024-03-01T09:00:00", "15.00", "Groceries");
+
+        // Act / Assert
+        assertFalse(DailySketches.changed(stored, sameCellAndAmount));
+        assertTrue(DailySketches.changed(stored, corrected));
+        assertTrue(DailySketches.changed(null, corrected));
+        assertTrue(DailySketches.updates(Map.of(DailyRollups.naturalKey(stored), stored), List.of(sameCellAndAmount)).isEmpty());
+    }
+
+    private HllSketch customers(String category) {
+        return HllSketch.heapify(jdbcTemplate.queryForObject(
+                "SELECT customers_hll FROM sketch_daily WHERE category = ?", byte[].class, category));
+    }
+
+    private KllDoublesSketch amounts(String category) {
+        return KllDoublesSketch.heapify(Memory.wrap(jdbcTemplate.queryForObject(
+                "SELECT amounts_kll FROM sketch_daily WHERE category = ?", byte[].class, category)));
+    }
+
+    private void insertFact(String sourceTransactionId, String customerId, String time, String amount, String category) {
+        jdbcTemplate.update("INSERT INTO fact_transactions (bank_id, source_transaction_id, customer_id, transaction_time, "
+                + "amount_standard, category) VALUES ('BANK_A', ?, ?, ?, ?, ?)",
+                sourceTransactionId, customerId, LocalDateTime.parse(time), new BigDecimal(amount), category);
+    }
+
+    private static FactTransactionEntity fact(String sourceTransactionId, String customerId, String time, String amount,
+                                              String category) {
+        FactTransactionEntity fact = new FactTransactionEntity();
+        fact.setBankId("BANK_A");
+        fact.setSourceTransactionId(sourceTransactionId);
+        fact.setCustomerId(customerId);
+        fact.setTransactionTime(LocalDateTime.parse(time));
+        fact.setAmountStandard(new BigDecimal(amount));
+        fact.setCategory(category);
+        fact.setTransactionType("DEBIT");
+        return fact;
+    }
+}
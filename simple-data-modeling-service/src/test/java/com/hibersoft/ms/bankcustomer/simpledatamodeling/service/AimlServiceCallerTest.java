@@ -0,0 +1,140 @@
+package com.hibersoft.ms.bankcustomer.simpledatamodeling.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.ExpectedCount.twice;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AimlServiceCallerTest {
+
+    private static final String URL = "http://segmentation/predict-segment";
+    private static final String TRAINING_URL = "http://segmentation/trigger-training";
+
+    @Test
+    public void testGetCustomerSegments_SendsOneRequestPerBatchInInputOrder() {
+        // Arrange
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+        server.expect(once(), requestTo(URL))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(content().json("[{\"Dining\":\"1\"},{\"Dining\":\"2\"}]"))
+                .andRespond(withSuccess("{\"predictions\":[10,20]}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo(URL))
+                .andExpect(content().json("[{\"Dining\":\"3\"}]"))
+                .andRespond(withSuccess("{\"predictions\":[]}", MediaType.APPLICATION_JSON));
+        AimlServiceCaller caller = caller(restTemplate, 2, BigDecimal.ONE, new SimpleMeterRegistry());
+
+        // Act
+        List<Integer> segments = caller.getCustomerSegments(List.of(
+                Map.of("Dining", new BigDecimal("1")),
+                Map.of("Dining", new BigDecimal("2")),
+                Map.of("Dining", new BigDecimal("3"))));
+
+        // Assert
+        assertEquals(Arrays.asList(10, 20, null), segments);
+        server.verify();
+    }
+
+    @Test
+    public void testGetCustomerSegment_UsesBatchEndpointForSingleProfile() {
+        // Arrange
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(once(), requestTo(URL))
+                .andExpect(content().json("[{\"Groceries\":\"12.50\"}]"))
+                .andRespond(withSuccess("{\"predictions\":[3]}", MediaType.APPLICATION_JSON));
+        AimlServiceCaller caller = caller(restTemplate, 500, BigDecimal.TEN, new SimpleMeterRegistry());
+
+        // Act
+        Integer segment = caller.getCustomerSegment(Map.of("Groceries", new BigDecimal("12.50")));
+
+        // Assert
+        assertEquals(3, segment);
+        server.verify();
+    }
+
+    @Test
+    public void testGetCustomerSegments_ServesSimilarProfilesFromCacheUntilRetrainedModelAnswers() {
+        // Arrange: the retrained model (version 2) first answers the request for 81.00
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(once(), requestTo(URL))
+                .andExpect(content().json("[{\"Dining\":\"41.20\"}]"))
+                .andRespond(withSuccess("{\"predictions\":[2],\"model_version\":1}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo(TRAINING_URL))
+                .andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess("{\"status\":\"STARTED\"}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo(URL))
+                .andExpect(content().json("[{\"Dining\":\"81.00\"}]"))
+                .andRespond(withSuccess("{\"predictions\":[1],\"model_version\":2}", MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo(URL))
+                .andExpect(content().json("[{\"Dining\":\"41.20\"}]"))
+                .andRespond(withSuccess("{\"predictions\":[3],\"model_version\":2}", MediaType.APPLICATION_JSON));
+        MeterRegistry registry = new SimpleMeterRegistry();
+        AimlServiceCaller caller = caller(restTemplate, 500, BigDecimal.TEN, registry);
+
+        // Act: 41.20 and 48.99 share the [40, 50) bucket, so the second batch is answered locally
+        List<Integer> first = caller.getCustomerSegments(List.of(
+                Map.of("Dining", new BigDecimal("41.20")), Map.of("Dining", new BigDecimal("48.99"))));
+        List<Integer> second = caller.getCustomerSegments(List.of(Map.of("Dining", new BigDecimal("45.00"))));
+        caller.triggerTraining();
+        Integer whileTraining = caller.getCustomerSegment(Map.of("Dining", new BigDecimal("45.00")));
+        Integer retrained = caller.getCustomerSegment(Map.of("Dining", new BigDecimal("81.00")));
+        Integer afterTraining = caller.getCustomerSegment(Map.of("Dining", new BigDecimal("41.20")));
+
+        // Assert: the 202 of the training request leaves the cache alone; version 2 drops it
+        assertEquals(List.of(2, 2), first);
+        assertEquals(List.of(2), second);
+        assertEquals(2, whileTraining);
+        assertEquals(1, retrained);
+        assertEquals(3, afterTraining);
+        assertEquals(2.0, registry.get("cache.gets").tag("cache", "segmentCache").tag("result", "hit").functionCounter().count());
+        assertEquals(4.0, registry.get("cache.gets").tag("cache", "segmentCache").tag("result", "miss").functionCounter().count());
+        server.verify();
+    }
+
+    @Test
+    public void testGetCustomerSegments_DoesNotCachePredictionsOfAnOlderModel() {
+        // Arrange: a response of version 1 arrives after one of version 2 (e.g. from another worker)
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(once(), requestTo(URL))
+                .andRespond(withSuccess("{\"predictions\":[1],\"model_version\":2}", MediaType.APPLICATION_JSON));
+        server.expect(twice(), requestTo(URL))
+                .andRespond(withSuccess("{\"predictions\":[0],\"model_version\":1}", MediaType.APPLICATION_JSON));
+        AimlServiceCaller caller = caller(restTemplate, 500, BigDecimal.TEN, new SimpleMeterRegistry());
+
+        // Act
+        caller.getCustomerSegment(Map.of("Dining", new BigDecimal("81.00")));
+        Integer stale = caller.getCustomerSegment(Map.of("Dining", new BigDecimal("41.20")));
+        Integer again = caller.getCustomerSegment(Map.of("Dining", new BigDecimal("41.20")));
+
+        // Assert: both requests for 41.20 reached the service
+        assertEquals(0, stale);
+        assertEquals(0, again);
+        server.verify();
+    }
+
+    private AimlServiceCaller caller(RestTemplate restTemplate, int maxBatchSize, BigDecimal bucketWidth, MeterRegistry registry) {
+        return new AimlServiceCaller(restTemplate, URL, TRAINING_URL, maxBatchSize, 4, 1000, Duration.ofMinutes(5),
+                bucketWidth, registry);
+    }
+}
@@ -0,0 +1,67 @@
+-- Control and rollup tables of the ingestion job (see datamodelingdb.sql); FACT_TRANSACTIONS itself is created by Hibernate
+
+DROP TABLE IF EXISTS ingestion_watermark;
+
+CREATE TABLE ingestion_watermark (
+    bank_id VARCHAR(255) NOT NULL PRIMARY KEY,
+    last_ingest_seq BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+DROP TABLE IF EXISTS ingestion_bank_lock;
+
+CREATE TABLE ingestion_bank_lock (
+    bank_id VARCHAR(255) NOT NULL PRIMARY KEY
+);
+
+-- Daily rollups maintained by the fact writer
+
+DROP TABLE IF EXISTS rollup_customer_daily;
+DROP TABLE IF EXISTS rollup_category_daily;
+DROP TABLE IF EXISTS rollup_location_daily;
+DROP TABLE IF EXISTS rollup_bank_daily;
+
+CREATE TABLE rollup_customer_daily (
+    customer_id VARCHAR(255) NOT NULL,
+    txn_date DATE NOT NULL,
+    amount_sum NUMERIC(38, 2) NOT NULL,
+    txn_count BIGINT NOT NULL,
+    PRIMARY KEY (customer_id, txn_date)
+);
+
+CREATE TABLE rollup_category_daily (
+    category VARCHAR(255) NOT NULL,
+    txn_date DATE NOT NULL,
+    amount_sum NUMERIC(38, 2) NOT NULL,
+    txn_count BIGINT NOT NULL,
+    PRIMARY KEY (category, txn_date)
+);
+
+CREATE TABLE rollup_location_daily (
+    location_code VARCHAR(255) NOT NULL,
+    txn_date DATE NOT NULL,
+    amount_sum NUMERIC(38, 2) NOT NULL,
+    txn_count BIGINT NOT NULL,
+    PRIMARY KEY (location_code, txn_date)
+);
+
+CREATE TABLE rollup_bank_daily (
+    bank_id VARCHAR(255) NOT NULL,
+    txn_date DATE NOT NULL,
+    amount_sum NUMERIC(38, 2) NOT NULL,
+    txn_count BIGINT NOT NULL,
+    PRIMARY KEY (bank_id, txn_date)
+);
+
+-- Daily sketches maintained by the fact writer
+
+DROP TABLE IF EXISTS sketch_daily;
+
+CREATE TABLE sketch_daily (
+    bank_id VARCHAR(255) NOT NULL,
+    category VARCHAR(255) NOT NULL,
+    txn_date DATE NOT NULL,
+    customers_hll VARBINARY NOT NULL,
+    amounts_kll VARBINARY NOT NULL,
+    PRIMARY KEY (bank_id, category, txn_date)
+);